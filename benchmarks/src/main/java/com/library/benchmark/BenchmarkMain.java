@@ -0,0 +1,29 @@
+package com.library.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Điểm vào của benchmarks.jar: như org.openjdk.jmh.Main nhưng mặc định ghi thêm kết quả dạng JSON
+ * vào jmh-result.json (để so giữa các lần chạy). Truyền -rf/-rff để đổi định dạng hoặc tên file.
+ */
+public final class BenchmarkMain {
+    private static final String[] JSON_RESULT = {"-rf", "json", "-rff", "jmh-result.json"};
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = Arrays.asList(args);
+        if (options.contains("-rf") || options.contains("-rff") || options.contains("-h")
+                || options.contains("-l") || options.contains("-lp")) {
+            Main.main(args);
+            return;
+        }
+        String[] withJson = Arrays.copyOf(JSON_RESULT, JSON_RESULT.length + args.length);
+        System.arraycopy(args, 0, withJson, JSON_RESULT.length, args.length);
+        Main.main(withJson);
+    }
+}
@@ -0,0 +1,75 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.repository.BookRepository;
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Tra sách theo ISBN trên 200.000 cuốn: ConcurrentHashMap<String, Book> (cách lưu trước đây)
+ * so với BookRepository khóa long. Truy vấn dùng chuỗi mới tạo như khi đọc từ bàn phím/HTTP
+ * (không có sẵn hashCode), thứ tự giả ngẫu nhiên nên phần lớn là cache miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class BookLookupBenchmark {
+    private static final int BOOKS = 200_000;
+    private static final int QUERIES = 1 << 16;
+
+    private Map<String, Book> legacyBooks;
+    private BookRepository bookRepository;
+    private char[][] queries;
+    private long[] queryKeys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacyBooks = new ConcurrentHashMap<>();
+        bookRepository = new BookRepository();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book(isbn(i), "Sách " + i, "Tác giả " + (i % 5_000), 2000);
+            legacyBooks.put(book.getIsbn(), book);
+            bookRepository.save(book);
+        }
+        queries = new char[QUERIES][];
+        queryKeys = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int book = (int) ((i * 2_654_435_761L) % BOOKS);
+            queries[i] = isbn(book).toCharArray();
+            queryKeys[i] = Isbn.withCheckDigit(978_000_000_000L + book);
+        }
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Book legacyStringMap() {
+        return legacyBooks.get(new String(queries[nextQuery()]));
+    }
+
+    @Benchmark
+    public Optional<Book> repositoryByString() {
+        return bookRepository.findByIsbn(new String(queries[nextQuery()]));
+    }
+
+    @Benchmark
+    public Optional<Book> repositoryByKey() {
+        return bookRepository.findByIsbn(queryKeys[nextQuery()]);
+    }
+
+    private static String isbn(int i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+}
@@ -0,0 +1,69 @@
+package com.library.benchmark;
+
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Thông lượng mượn + trả khi mỗi luồng phục vụ một thành viên và một cuốn sách riêng.
+ * Khóa theo dải ISBN/memberId nên các luồng không tranh nhau: chạy -t 1, -t 2, -t 4, -t 8
+ * và so sánh, thông lượng nên tăng gần tuyến tính theo số nhân.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class CirculationBenchmark {
+    private static final int DESKS = 64;
+
+    private TransactionService transactionService;
+    private String[] memberIds;
+    private String[] isbns;
+    private final AtomicInteger nextDesk = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Desk {
+        private String memberId;
+        private String isbn;
+
+        @Setup(Level.Trial)
+        public void setUp(CirculationBenchmark benchmark) {
+            int desk = benchmark.nextDesk.getAndIncrement() % DESKS;
+            memberId = benchmark.memberIds[desk];
+            isbn = benchmark.isbns[desk];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BookService bookService = new BookService(new BookRepository());
+        MemberService memberService = new MemberService(new MemberRepository());
+        transactionService = new TransactionService(new TransactionRepository(), bookService, memberService);
+
+        memberIds = new String[DESKS];
+        isbns = new String[DESKS];
+        for (int i = 0; i < DESKS; i++) {
+            isbns[i] = bookService.addBook(Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i)),
+                    "Sách " + i, "Tác giả", 2020).getIsbn();
+            memberIds[i] = memberService.registerMember("Quầy " + i, "desk" + i + "@email.com", "1234567890")
+                    .getMemberId();
+        }
+    }
+
+    @Benchmark
+    public Transaction borrowAndReturn(Desk desk) throws Exception {
+        transactionService.borrowBook(desk.memberId, desk.isbn);
+        return transactionService.returnBook(desk.memberId, desk.isbn);
+    }
+}
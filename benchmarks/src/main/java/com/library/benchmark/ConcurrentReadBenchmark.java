@@ -0,0 +1,89 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.TransactionRepository;
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Thông lượng đọc của repository khi nhiều luồng dùng chung. Chạy với số luồng khác nhau
+ * (vd. -t 1 rồi -t 8) để xem đọc có tăng theo số nhân không; nhóm "mixed" có thêm một luồng ghi
+ * liên tục để thấy đọc không bị khóa ghi chặn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ConcurrentReadBenchmark {
+    private static final int BOOKS = 100_000;
+    private static final int MEMBERS = 10_000;
+    private static final int TRANSACTIONS = 500_000;
+
+    private BookRepository bookRepository;
+    private TransactionRepository transactionRepository;
+    private final AtomicLong nextTransaction = new AtomicLong(TRANSACTIONS);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bookRepository = new BookRepository();
+        transactionRepository = new TransactionRepository();
+        for (int i = 0; i < BOOKS; i++) {
+            bookRepository.save(new Book(isbn(i), "Tên sách số " + i,
+                    "Tác giả " + (i % 5_000), 1900 + i % 120));
+        }
+        LocalDateTime start = LocalDateTime.now().minusYears(5);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transactionRepository.save(transaction(i, start.plusMinutes(i)));
+        }
+    }
+
+    @Benchmark
+    public Optional<Book> findBookByIsbn() {
+        return bookRepository.findByIsbn(isbn(ThreadLocalRandom.current().nextInt(BOOKS)));
+    }
+
+    @Benchmark
+    public List<Transaction> findTransactionsByMember() {
+        return transactionRepository.findByMemberId(
+                String.format("MEM-%08X", ThreadLocalRandom.current().nextInt(MEMBERS)));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<Transaction> mixedRead() {
+        return transactionRepository.findByMemberId(
+                String.format("MEM-%08X", ThreadLocalRandom.current().nextInt(MEMBERS)));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedWrite() {
+        transactionRepository.save(transaction(nextTransaction.getAndIncrement(), LocalDateTime.now()));
+    }
+
+    private static Transaction transaction(long i, LocalDateTime borrowDate) {
+        Transaction transaction = new Transaction(String.format("TXN-%012X", i),
+                String.format("MEM-%08X", i % MEMBERS), isbn(i % BOOKS));
+        transaction.setBorrowDate(borrowDate);
+        transaction.setDueDate(borrowDate.plusDays(14));
+        transaction.setReturnDate(borrowDate.plusDays(7));
+        return transaction;
+    }
+
+    private static String isbn(long i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+}
@@ -0,0 +1,143 @@
+package com.library.benchmark;
+
+import com.library.api.LibraryHttpServer;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Isbn;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Kiểm thử tải API HTTP (không phải JMH): dựng server trong cùng tiến trình rồi mở N client đồng thời,
+ * mỗi client là một virtual thread lặp mượn -> trả -> tìm sách trên cuốn sách riêng của mình.
+ *
+ *   java -cp target/benchmarks.jar com.library.benchmark.HttpLoadTest [clients] [giây]
+ *
+ * Mặc định 2000 client trong 20 giây. Hệ điều hành cần cho phép đủ file descriptor (ulimit -n).
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        LibraryStatistics statistics = new LibraryStatistics();
+        BookService bookService = new BookService(new BookRepository(), statistics);
+        MemberService memberService = new MemberService(new MemberRepository(), statistics);
+        TransactionService transactionService =
+                new TransactionService(new TransactionRepository(), bookService, memberService, statistics);
+        String[] memberIds = new String[clients];
+        String[] isbns = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            isbns[i] = bookService.addBook(Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i)),
+                    "Sách tải " + i, "Tác giả", 2020).getIsbn();
+            memberIds[i] = memberService.registerMember("Kiosk " + i, "kiosk" + i + "@email.com", "1234567890")
+                    .getMemberId();
+        }
+
+        LibraryHttpServer server = new LibraryHttpServer(bookService, memberService, transactionService, statistics);
+        server.start(0);
+        String baseUrl = "http://" + LibraryHttpServer.DEFAULT_HOST + ":" + server.getPort() + "/api/";
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        AtomicInteger errors = new AtomicInteger();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                String loan = "{\"memberId\":\"" + memberIds[i] + "\",\"isbn\":\"" + isbns[i] + "\"}";
+                String search = baseUrl + "books?q=t%E1%BA%A3i+" + i;
+                results.add(executor.submit(() -> {
+                    LatencyLog log = new LatencyLog();
+                    while (System.nanoTime() < deadline) {
+                        log.record(client, post(baseUrl + "borrow", loan), 201, errors);
+                        log.record(client, post(baseUrl + "return", loan), 200, errors);
+                        log.record(client, HttpRequest.newBuilder(URI.create(search)).build(), 200, errors);
+                    }
+                    return log.toArray();
+                }));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        server.stop();
+
+        long[] latencies = results.stream()
+                .flatMapToLong(future -> {
+                    try {
+                        return Arrays.stream(future.get());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .sorted()
+                .toArray();
+        System.out.printf("Client đồng thời: %d, thời gian: %.1f s%n", clients, elapsed);
+        System.out.printf("Request: %d (%.0f req/s), lỗi: %d%n", latencies.length, latencies.length / elapsed, errors.get());
+        System.out.printf("Độ trễ (ms) p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+        System.out.printf("Khoản mượn còn mở: %d (phải là 0)%n", statistics.getOpenLoans());
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    /*
+     * Độ trễ từng request của một client (ns)
+     */
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void record(HttpClient client, HttpRequest request, int expectedStatus, AtomicInteger errors) {
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != expectedStatus) {
+                    errors.incrementAndGet();
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = System.nanoTime() - begin;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.library.benchmark;
+
+import com.library.repository.TransactionRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cấp mã giao dịch: cách cũ (UUID ngẫu nhiên, cắt chuỗi, viết hoa, thử lại tới khi không trùng)
+ * so với dãy tăng dần của repository. Chạy thêm -t 4 để thấy dãy vẫn rẻ khi nhiều luồng cùng cấp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+    private TransactionRepository transactionRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionRepository = new TransactionRepository();
+    }
+
+    @Benchmark
+    public String legacyUuid() {
+        String transactionId;
+        do {
+            transactionId = "TXN-" + UUID.randomUUID().toString().substring(0, 12).toUpperCase();
+        } while (transactionRepository.existsById(transactionId));
+        return transactionId;
+    }
+
+    @Benchmark
+    public String sequence() {
+        return transactionRepository.nextId();
+    }
+}
@@ -0,0 +1,65 @@
+package com.library.benchmark;
+
+import com.library.util.InputValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Kiểm tra đầu vào ở quầy và khi nhập hàng loạt: email, số điện thoại, ISBN, năm xuất bản,
+ * trên một tập đầu vào trộn hợp lệ và không hợp lệ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputValidatorBenchmark {
+    private static final String[] EMAILS = {
+            "dangvan@email.com", "nguyen.thi.b@thu-vien.edu.vn", "khong-phai-email", "a@b", "user+tag@example.org",
+            "@thieu-ten.com", "ten@ten@ten.com", "reader2024@gmail.com"
+    };
+    private static final String[] PHONES = {
+            "0901234567", "+84901234567", "090-123-4567", "12345", "0987 654 321", "abcdefghij",
+            "0123456789", "+1 (555) 010-0000"
+    };
+    private static final String[] ISBNS = {
+            "978-0132350884", "978-0-13-235088-4", "0-596-52068-9", "080442957X", "978-0132350885",
+            "khong-phai-isbn", "979-10-90636-07-1", "ISBN-13: 978-0134685991"
+    };
+    private static final int[] YEARS = {2008, 1450, 2100, 1999, 0, 2024, -5, 1900};
+
+    private int next;
+
+    private int nextInput() {
+        next = (next + 1) & 7;
+        return next;
+    }
+
+    @Benchmark
+    public boolean email() {
+        return InputValidator.isValidEmail(EMAILS[nextInput()]);
+    }
+
+    @Benchmark
+    public boolean phone() {
+        return InputValidator.isValidPhone(PHONES[nextInput()]);
+    }
+
+    @Benchmark
+    public boolean isbn() {
+        return InputValidator.isValidIsbn(ISBNS[nextInput()]);
+    }
+
+    @Benchmark
+    public void bookRow(Blackhole blackhole) {
+        // Một dòng nhập sách: ISBN, tên, tác giả, năm
+        int i = nextInput();
+        blackhole.consume(InputValidator.isValidIsbn(ISBNS[i]));
+        blackhole.consume(InputValidator.isNotEmpty(EMAILS[i]));
+        blackhole.consume(InputValidator.isNotEmpty(PHONES[i]));
+        blackhole.consume(InputValidator.isValidPublicationYear(YEARS[i]));
+    }
+}
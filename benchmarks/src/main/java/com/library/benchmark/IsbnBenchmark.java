@@ -0,0 +1,46 @@
+package com.library.benchmark;
+
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/*
+ * Kiểm tra ISBN: cách cũ (replaceAll + regex lớn, không kiểm chữ số kiểm tra) so với Isbn.parse.
+ * Chạy với -prof gc để thấy Isbn.parse không cấp phát (gc.alloc.rate.norm ~ 0 B/op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IsbnBenchmark {
+    // Bản sao của InputValidator.ISBN_PATTERN trước khi thay bằng Isbn
+    private static final Pattern LEGACY_PATTERN =
+            Pattern.compile("^(?:ISBN(?:-1[03])?:? )?(?=[0-9X]{10}$|(?=(?:[0-9]+[- ]){3})[- 0-9X]{13}$|97[89][0-9]{10}$|(?=(?:[0-9]+[- ]){4})[- 0-9]{17}$)(?:97[89][- ]?)?[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9X]$");
+
+    private static final String[] INPUTS = {
+            "978-0132350884", "978-0-13-235088-4", "9780596520687", "0-596-52068-9",
+            "080442957X", "978-6049950421", "979-10-90636-07-1", "không-phải-isbn"
+    };
+
+    private int next;
+
+    private String nextInput() {
+        next = (next + 1) & 7;
+        return INPUTS[next];
+    }
+
+    @Benchmark
+    public boolean legacyRegex() {
+        String isbn = nextInput();
+        return LEGACY_PATTERN.matcher(isbn.replaceAll("[\\s-]", "")).matches();
+    }
+
+    @Benchmark
+    public long handWrittenParse() {
+        return Isbn.parse(nextInput());
+    }
+}
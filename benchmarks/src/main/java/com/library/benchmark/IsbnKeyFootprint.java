@@ -0,0 +1,131 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.Transaction;
+import com.library.util.Isbn;
+import com.library.util.LongObjectMap;
+
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Đo bộ nhớ heap (không phải JMH) của khóa ISBN dạng chuỗi so với dạng long:
+ *  - bảng sách: ConcurrentHashMap<String, Book> so với LongObjectMap<Book> (không tính bản thân Book)
+ *  - giao dịch: ISBN là một String riêng (như khi đọc từ bàn phím/HTTP) so với Transaction hiện tại
+ *  - danh sách sách đang mượn của thành viên: ArrayList<String> so với long[]
+ *
+ *   java -Xmx2g -cp target/benchmarks.jar com.library.benchmark.IsbnKeyFootprint [số phần tử]
+ */
+public class IsbnKeyFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Book[] books = new Book[count];
+        for (int i = 0; i < count; i++) {
+            books[i] = new Book(isbn(i), "Sách " + i, "Tác giả", 2000);
+        }
+
+        System.out.printf("%,d phần tử, byte/phần tử%n", count);
+        report("Bảng sách ConcurrentHashMap<String, Book>", count, () -> {
+            Map<String, Book> map = new ConcurrentHashMap<>();
+            for (Book book : books) {
+                map.put(book.getIsbn(), book);
+            }
+            return map;
+        });
+        report("Bảng sách LongObjectMap<Book>", count, () -> {
+            LongObjectMap<Book> map = new LongObjectMap<>();
+            for (Book book : books) {
+                map.put(Isbn.parse(book.getIsbn()), book);
+            }
+            return map;
+        });
+        report("Giao dịch, ISBN là String", count, () -> {
+            List<LegacyTransaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transactions.add(new LegacyTransaction(new String(books[i].getIsbn().toCharArray())));
+            }
+            return transactions;
+        });
+        report("Giao dịch, ISBN là long (Transaction)", count, () -> {
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Transaction transaction = new Transaction();
+                transaction.setBookIsbn(new String(books[i].getIsbn().toCharArray()));
+                transactions.add(transaction);
+            }
+            return transactions;
+        });
+        int members = count / 5;
+        report("Thành viên mượn 5 cuốn, ArrayList<String>", members, () -> {
+            List<List<String>> borrowed = new ArrayList<>(members);
+            for (int i = 0; i < members; i++) {
+                List<String> isbns = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    isbns.add(new String(books[i * 5 + j].getIsbn().toCharArray()));
+                }
+                borrowed.add(isbns);
+            }
+            return borrowed;
+        });
+        report("Thành viên mượn 5 cuốn, long[]", members, () -> {
+            List<long[]> borrowed = new ArrayList<>(members);
+            for (int i = 0; i < members; i++) {
+                long[] keys = new long[0];
+                for (int j = 0; j < 5; j++) {
+                    // Chép-khi-ghi như Member.borrowBook
+                    keys = Arrays.copyOf(keys, keys.length + 1);
+                    keys[j] = Isbn.parse(books[i * 5 + j].getIsbn());
+                }
+                borrowed.add(keys);
+            }
+            return borrowed;
+        });
+    }
+
+    private static void report(String label, int count, Supplier<Object> build) {
+        long before = usedHeap();
+        Object retained = build.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(retained);
+        System.out.printf("  %-45s %6.1f%n", label, (after - before) / (double) count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static String isbn(int i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+
+    /*
+     * Bố cục trường của Transaction trước khi đổi sang khóa long
+     */
+    private static final class LegacyTransaction {
+        private String transactionId;
+        private String memberId;
+        private final String bookIsbn;
+        private LocalDateTime borrowDate;
+        private LocalDateTime dueDate;
+        private LocalDateTime returnDate;
+        private Transaction.TransactionType type;
+        private double lateFee;
+
+        LegacyTransaction(String bookIsbn) {
+            this.bookIsbn = bookIsbn;
+        }
+    }
+}
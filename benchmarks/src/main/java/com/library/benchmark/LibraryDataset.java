@@ -0,0 +1,164 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Isbn;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/*
+ * Bộ dữ liệu tổng hợp cho benchmark, cùng seed thì cùng dữ liệu:
+ *  - sách: ISBN-13 hợp lệ, tên ghép từ 3 từ trong VOCABULARY, tác giả trong AUTHORS.length * 50 tên
+ *  - thành viên: books / 10 (ít nhất 100)
+ *  - giao dịch: books * 2, ngày mượn tăng dần trong 5 năm; 10% cuối (tối đa 2 cuốn mỗi thành viên,
+ *    mỗi cuốn một khoản) còn đang mượn trên các sách đầu danh sách, phần còn lại đã trả
+ *
+ * Cỡ dữ liệu chọn bằng tham số books của benchmark (vd. -p books=10000000, cần -Xmx lớn).
+ */
+public final class LibraryDataset {
+    public static final long DEFAULT_SEED = 20_240_101L;
+
+    static final String[] VOCABULARY = {
+            "lịch", "sử", "việt", "nam", "java", "lập", "trình", "cơ", "sở", "dữ", "liệu", "thuật", "toán",
+            "mạng", "máy", "tính", "kinh", "tế", "học", "văn", "hóa", "nghệ", "sân", "triết", "khoa",
+            "vật", "lý", "sinh", "thiên", "hà", "địa", "chính", "trị", "tâm", "ngôn", "ngữ", "âm", "nhạc",
+            "hội", "họa", "kiến", "trúc", "y", "dược", "nông", "nghiệp", "luật", "giáo", "dục", "thể",
+            "thao", "du", "hành", "ẩm", "thực", "tiểu", "thuyết", "truyện", "ngắn", "thơ", "ký", "sự"
+    };
+    private static final String[] AUTHORS = {
+            "Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng",
+            "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý", "Smith", "Martin", "Bloch", "Knuth"
+    };
+
+    private final int bookCount;
+    private final int memberCount;
+    private final int transactionCount;
+    private final int openLoanCount;
+    private final LibraryStatistics statistics = new LibraryStatistics();
+    private final BookRepository bookRepository = new BookRepository();
+    private final MemberRepository memberRepository = new MemberRepository();
+    private final TransactionRepository transactionRepository = new TransactionRepository();
+    private final String[] memberIds;
+
+    private LibraryDataset(int bookCount) {
+        this.bookCount = bookCount;
+        this.memberCount = Math.max(100, bookCount / 10);
+        this.transactionCount = bookCount * 2;
+        this.openLoanCount = Math.min(transactionCount / 10, Math.min(memberCount * 2, bookCount / 2));
+        this.memberIds = new String[memberCount];
+    }
+
+    public static LibraryDataset generate(int books) {
+        return generate(books, DEFAULT_SEED);
+    }
+
+    public static LibraryDataset generate(int books, long seed) {
+        LibraryDataset dataset = new LibraryDataset(books);
+        dataset.populate(new SplittableRandom(seed));
+        return dataset;
+    }
+
+    private void populate(SplittableRandom random) {
+        for (int i = 0; i < bookCount; i++) {
+            String title = word(random) + " " + word(random) + " " + word(random) + " " + i;
+            String author = AUTHORS[random.nextInt(AUTHORS.length)] + " " + (random.nextInt(50) + 1);
+            bookRepository.save(new Book(isbn(i), title, author, 1950 + random.nextInt(75)));
+        }
+        for (int i = 0; i < memberCount; i++) {
+            memberIds[i] = memberRepository.nextId();
+            memberRepository.save(new Member(memberIds[i], "Thành viên " + i,
+                    "member" + i + "@email.com", "0900000000"));
+        }
+
+        LocalDateTime start = LocalDateTime.now().minusYears(5);
+        long minutesPerTransaction = Math.max(1, 5L * 365 * 24 * 60 / Math.max(1, transactionCount));
+        int firstOpen = transactionCount - openLoanCount;
+        for (int i = 0; i < transactionCount; i++) {
+            boolean open = i >= firstOpen;
+            int book = open ? i - firstOpen : openLoanCount + random.nextInt(bookCount - openLoanCount);
+            int member = open ? (i - firstOpen) % memberCount : random.nextInt(memberCount);
+            Transaction transaction = new Transaction(transactionRepository.nextId(), memberIds[member], isbn(book));
+            LocalDateTime borrowDate = start.plusMinutes(i * minutesPerTransaction);
+            transaction.setBorrowDate(borrowDate);
+            transaction.setDueDate(borrowDate.plusDays(14));
+            if (open) {
+                bookRepository.findByIsbn(Isbn.withCheckDigit(978_000_000_000L + book))
+                        .ifPresent(b -> b.setStatus(BookStatus.BORROWED));
+                memberRepository.findById(memberIds[member])
+                        .ifPresent(m -> m.borrowBook(transaction.getBookIsbnKey()));
+            } else {
+                int daysKept = 1 + random.nextInt(20);
+                transaction.setReturnDate(borrowDate.plusDays(daysKept));
+                transaction.setLateFee(Math.max(0, daysKept - 14));
+            }
+            transactionRepository.save(transaction);
+        }
+        statistics.rebuild(bookRepository, memberRepository, transactionRepository);
+    }
+
+    /*
+     * Các service dùng chung repository của bộ dữ liệu (không ghi nhật ký)
+     */
+    public TransactionService newTransactionService() {
+        BookService bookService = new BookService(bookRepository, statistics);
+        MemberService memberService = new MemberService(memberRepository, statistics);
+        return new TransactionService(transactionRepository, bookService, memberService, statistics);
+    }
+
+    public static String isbn(int i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+
+    public static String word(SplittableRandom random) {
+        return VOCABULARY[random.nextInt(VOCABULARY.length)];
+    }
+
+    public String memberId(int i) {
+        return memberIds[i];
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    /*
+     * Sách 0..openLoanCount-1 đang được mượn, các sách còn lại đều sẵn sàng
+     */
+    public int getOpenLoanCount() {
+        return openLoanCount;
+    }
+
+    public LibraryStatistics getStatistics() {
+        return statistics;
+    }
+
+    public BookRepository getBookRepository() {
+        return bookRepository;
+    }
+
+    public MemberRepository getMemberRepository() {
+        return memberRepository;
+    }
+
+    public TransactionRepository getTransactionRepository() {
+        return transactionRepository;
+    }
+}
@@ -0,0 +1,251 @@
+package com.library.benchmark;
+
+import com.library.exception.BookNotFoundException;
+import com.library.exception.InvalidOperationException;
+import com.library.exception.MemberNotFoundException;
+import com.library.service.BookService;
+import com.library.service.LibraryService;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Bộ sinh tải tổng hợp, cùng seed thì cùng danh mục và cùng chuỗi thao tác của mỗi luồng:
+ *  - danh mục: tên sách ghép từ các từ trong LibraryDataset.VOCABULARY (từ phổ biến xuất hiện nhiều hơn),
+ *    số đầu sách của mỗi tác giả theo Zipf (vài tác giả viết rất nhiều)
+ *  - độ phổ biến của sách theo Zipf trên các ISBN, thứ hạng được xáo ngẫu nhiên để sách "hot"
+ *    nằm rải rác chứ không dồn về đầu danh mục
+ *  - người mượn theo luật lũy thừa: một số ít thành viên chiếm phần lớn lượt mượn
+ *  - tỉ lệ các loại thao tác (tìm/mượn/trả/đăng ký) cấu hình được
+ *
+ * Danh mục được nạp qua các service của LibraryService như khi người dùng nhập vào, nên đi qua
+ * kiểm tra đầu vào, chỉ mục tìm kiếm và nhật ký WAL (nếu bật).
+ */
+public final class LibraryWorkload {
+
+    public enum Operation {
+        SEARCH, BORROW, RETURN, REGISTER
+    }
+
+    private static final int AUTHORS = 5_000;
+
+    private final int bookCount;
+    private final int memberCount;
+    private final long seed;
+    private final int[] cumulativeMix;
+    private final ZipfSampler bookPopularity;
+    private final ZipfSampler borrowerActivity;
+    private final int[] bookByRank;
+    private final int[] memberByRank;
+    private final String[] isbns;
+    private final String[] titles;
+    private final String[] memberIds;
+
+    /*
+     * mix: trọng số của từng Operation theo thứ tự ordinal, exponent: độ lệch Zipf (1.0 gần với lượt mượn thực tế)
+     */
+    public LibraryWorkload(int bookCount, int memberCount, double exponent, int[] mix, long seed) {
+        if (mix.length != Operation.values().length) {
+            throw new IllegalArgumentException("Cần trọng số cho " + Arrays.toString(Operation.values()));
+        }
+        this.bookCount = bookCount;
+        this.memberCount = memberCount;
+        this.seed = seed;
+        this.cumulativeMix = new int[mix.length];
+        int total = 0;
+        for (int i = 0; i < mix.length; i++) {
+            total += mix[i];
+            cumulativeMix[i] = total;
+        }
+        if (total - mix[Operation.RETURN.ordinal()] <= 0) {
+            // Chỉ có thể trả sách đã mượn nên cần ít nhất một loại thao tác khác
+            throw new IllegalArgumentException("Cần trọng số dương cho ít nhất một thao tác ngoài RETURN");
+        }
+        this.bookPopularity = new ZipfSampler(bookCount, exponent);
+        this.borrowerActivity = new ZipfSampler(memberCount, exponent);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.bookByRank = shuffledIndexes(bookCount, random);
+        this.memberByRank = shuffledIndexes(memberCount, random);
+        this.isbns = new String[bookCount];
+        this.titles = new String[bookCount];
+        this.memberIds = new String[memberCount];
+        ZipfSampler words = new ZipfSampler(LibraryDataset.VOCABULARY.length, 1.0);
+        for (int i = 0; i < bookCount; i++) {
+            isbns[i] = LibraryDataset.isbn(i);
+            titles[i] = LibraryDataset.VOCABULARY[words.sample(random) - 1] + " "
+                    + LibraryDataset.VOCABULARY[words.sample(random) - 1] + " "
+                    + LibraryDataset.VOCABULARY[words.sample(random) - 1] + " " + i;
+        }
+    }
+
+    /*
+     * Nạp sách và thành viên vào LibraryService bằng nhiều luồng (để group commit của WAL gom được nhóm)
+     */
+    public void populate(LibraryService libraryService, int threads) throws Exception {
+        BookService bookService = libraryService.getBookService();
+        MemberService memberService = libraryService.getMemberService();
+        ZipfSampler authors = new ZipfSampler(AUTHORS, 1.0);
+        String[] bookAuthors = new String[bookCount];
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        for (int i = 0; i < bookCount; i++) {
+            bookAuthors[i] = "Tác giả " + authors.sample(random);
+        }
+        int[] years = random.ints(bookCount, 1950, 2025).toArray();
+
+        AtomicInteger nextBook = new AtomicInteger();
+        AtomicInteger nextMember = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            Future<?>[] loaders = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                loaders[t] = executor.submit(() -> {
+                    for (int i = nextBook.getAndIncrement(); i < bookCount; i = nextBook.getAndIncrement()) {
+                        bookService.addBook(isbns[i], titles[i], bookAuthors[i], years[i]);
+                    }
+                    // Mã thành viên do dãy cấp nên thứ tự có thể khác giữa các lần chạy, vị trí i thì không
+                    for (int i = nextMember.getAndIncrement(); i < memberCount; i = nextMember.getAndIncrement()) {
+                        memberIds[i] = memberService.registerMember("Bạn đọc " + i, "reader" + i + "@email.com",
+                                String.format("09%08d", i % 100_000_000)).getMemberId();
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> loader : loaders) {
+                loader.get();
+            }
+        }
+    }
+
+    /*
+     * Luồng thứ index luôn nhận cùng chuỗi thao tác với cùng seed
+     */
+    public Worker newWorker(int index, LibraryService libraryService) {
+        return new Worker(index, new SplittableRandom(seed + (index + 1) * 0x9E3779B97F4A7C15L), libraryService);
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    private static int[] shuffledIndexes(int n, SplittableRandom random) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return indexes;
+    }
+
+    /*
+     * Trạng thái sinh tải của một luồng: chỉ trả những cuốn chính luồng này đã mượn
+     */
+    public final class Worker {
+        private final int index;
+        private final SplittableRandom random;
+        private final BookService bookService;
+        private final MemberService memberService;
+        private final TransactionService transactionService;
+        private String[] loanMembers = new String[16];
+        private String[] loanIsbns = new String[16];
+        private int loans;
+        private int registered;
+
+        private Worker(int index, SplittableRandom random, LibraryService libraryService) {
+            this.index = index;
+            this.random = random;
+            this.bookService = libraryService.getBookService();
+            this.memberService = libraryService.getMemberService();
+            this.transactionService = libraryService.getTransactionService();
+        }
+
+        /*
+         * Thao tác tiếp theo theo tỉ lệ cấu hình; RETURN khi luồng chưa giữ cuốn nào thì chọn lại
+         */
+        public Operation nextOperation() {
+            while (true) {
+                int pick = random.nextInt(cumulativeMix[cumulativeMix.length - 1]);
+                int i = 0;
+                while (pick >= cumulativeMix[i]) {
+                    i++;
+                }
+                Operation operation = Operation.values()[i];
+                if (operation != Operation.RETURN || loans > 0) {
+                    return operation;
+                }
+            }
+        }
+
+        /*
+         * Thực hiện thao tác; false nếu bị từ chối theo nghiệp vụ (sách đang được mượn, vượt hạn mức, ...)
+         */
+        public boolean execute(Operation operation) {
+            try {
+                switch (operation) {
+                    case SEARCH:
+                        bookService.searchBooks(titles[popularBook()]);
+                        break;
+                    case BORROW:
+                        String memberId = memberIds[memberByRank[borrowerActivity.sample(random) - 1]];
+                        String isbn = isbns[popularBook()];
+                        transactionService.borrowBook(memberId, isbn);
+                        addLoan(memberId, isbn);
+                        break;
+                    case RETURN:
+                        int loan = random.nextInt(loans);
+                        String loanMember = loanMembers[loan];
+                        String loanIsbn = loanIsbns[loan];
+                        removeLoan(loan);
+                        transactionService.returnBook(loanMember, loanIsbn);
+                        break;
+                    case REGISTER:
+                        int n = registered++;
+                        memberService.registerMember("Bạn đọc mới " + index + "-" + n,
+                                "new" + index + "." + n + "@email.com", "0912345678");
+                        break;
+                    default:
+                        throw new IllegalStateException("Thao tác không hỗ trợ: " + operation);
+                }
+                return true;
+            } catch (BookNotFoundException | MemberNotFoundException | InvalidOperationException e) {
+                return false;
+            }
+        }
+
+        private int popularBook() {
+            return bookByRank[bookPopularity.sample(random) - 1];
+        }
+
+        private void addLoan(String memberId, String isbn) {
+            if (loans == loanMembers.length) {
+                loanMembers = Arrays.copyOf(loanMembers, loans * 2);
+                loanIsbns = Arrays.copyOf(loanIsbns, loans * 2);
+            }
+            loanMembers[loans] = memberId;
+            loanIsbns[loans] = isbn;
+            loans++;
+        }
+
+        private void removeLoan(int loan) {
+            loans--;
+            loanMembers[loan] = loanMembers[loans];
+            loanIsbns[loan] = loanIsbns[loans];
+            loanMembers[loans] = null;
+            loanIsbns[loans] = null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.library.benchmark;
+
+import com.library.persistence.BinarySnapshot;
+import com.library.persistence.WriteAheadLog;
+import com.library.service.LibraryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Bộ lái tải vòng kín (không phải JMH) cho tầng service: nạp danh mục của LibraryWorkload vào
+ * LibraryService rồi cho N luồng, mỗi luồng liên tục lấy thao tác kế tiếp và chờ nó xong mới làm tiếp.
+ * Kết quả: thông lượng và độ trễ p50/p99/p999 theo từng loại thao tác, dùng để ước lượng sức chứa
+ * khi gộp nhiều chi nhánh vào một máy.
+ *
+ *   java -cp target/benchmarks.jar com.library.benchmark.LoadDriver \
+ *        threads=8 seconds=30 warmup=5 books=100000 members=10000 zipf=1.0 seed=1 \
+ *        mix=search:70,borrow:12,return:12,register:6
+ *
+ * LibraryService ghi nhật ký WAL vào thư mục hiện tại nên phải chạy trong thư mục không có dữ liệu
+ * thư viện; các file tạo ra bị xóa khi xong. Thêm -Dlibrary.wal.enabled=false để đo khi tắt nhật ký.
+ */
+public class LoadDriver {
+    // Cùng tên file với LibraryService
+    private static final Path DATA_FILE = Path.of("library_data.bin");
+    private static final Path LOG_FILE = Path.of("library_data.wal");
+    private static final Path LEGACY_DATA_FILE = Path.of("library_data.ser");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Tham số phải có dạng tên=giá trị: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int books = Integer.parseInt(options.getOrDefault("books", "100000"));
+        int members = Integer.parseInt(options.getOrDefault("members", String.valueOf(Math.max(100, books / 10))));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(LibraryDataset.DEFAULT_SEED)));
+        int[] mix = parseMix(options.getOrDefault("mix", "search:70,borrow:12,return:12,register:6"));
+
+        if (BinarySnapshot.exists(DATA_FILE) || Files.exists(LOG_FILE) || Files.exists(LEGACY_DATA_FILE)) {
+            System.err.println("Thư mục hiện tại đã có dữ liệu thư viện, hãy chạy trong một thư mục trống.");
+            System.exit(1);
+        }
+
+        LibraryService libraryService = LibraryService.getInstance();
+        LibraryWorkload workload = new LibraryWorkload(books, members, zipf, mix, seed);
+        long loadStart = System.nanoTime();
+        workload.populate(libraryService, threads);
+        System.out.printf("Nạp %d sách, %d thành viên: %.1f s%n", books, members,
+                (System.nanoTime() - loadStart) / 1e9);
+
+        LibraryWorkload.Operation[] operations = LibraryWorkload.Operation.values();
+        long measureStart = System.nanoTime() + warmup * 1_000_000_000L;
+        long deadline = measureStart + seconds * 1_000_000_000L;
+        List<Future<LatencyLog[]>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                LibraryWorkload.Worker worker = workload.newWorker(t, libraryService);
+                results.add(executor.submit(() -> {
+                    LatencyLog[] logs = new LatencyLog[operations.length];
+                    for (int i = 0; i < logs.length; i++) {
+                        logs[i] = new LatencyLog();
+                    }
+                    long now = System.nanoTime();
+                    while (now < deadline) {
+                        LibraryWorkload.Operation operation = worker.nextOperation();
+                        boolean accepted = worker.execute(operation);
+                        long end = System.nanoTime();
+                        if (now >= measureStart) {
+                            logs[operation.ordinal()].record(end - now, accepted);
+                        }
+                        now = end;
+                    }
+                    return logs;
+                }));
+            }
+        }
+
+        LatencyLog[] merged = new LatencyLog[operations.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = new LatencyLog();
+        }
+        for (Future<LatencyLog[]> result : results) {
+            LatencyLog[] logs = result.get();
+            for (int i = 0; i < logs.length; i++) {
+                merged[i].addAll(logs[i]);
+            }
+        }
+        LatencyLog total = new LatencyLog();
+        for (LatencyLog log : merged) {
+            total.addAll(log);
+        }
+
+        System.out.printf("Luồng: %d, đo %d s (bỏ %d s khởi động), zipf=%.2f, seed=%d, nhật ký WAL: %s%n",
+                threads, seconds, warmup, zipf, seed, WriteAheadLog.isEnabled() ? "bật" : "tắt");
+        System.out.printf("%-10s %10s %10s %9s %9s %9s %9s %9s%n",
+                "Thao tác", "Số lượt", "Lượt/s", "Từ chối", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (int i = 0; i < operations.length; i++) {
+            print(operations[i].name(), merged[i], seconds);
+        }
+        print("TỔNG", total, seconds);
+        System.out.printf("Khoản mượn còn mở: %d%n", libraryService.getStatistics().getOpenLoans());
+
+        libraryService.shutdown();
+        for (Path segment : WriteAheadLog.segments(LOG_FILE)) {
+            Files.deleteIfExists(segment);
+        }
+        Files.deleteIfExists(LOG_FILE);
+        for (Path generation : BinarySnapshot.generations(DATA_FILE)) {
+            Files.deleteIfExists(generation);
+        }
+    }
+
+    /*
+     * "search:70,borrow:12,..." -> trọng số theo thứ tự Operation; loại không nêu có trọng số 0
+     */
+    private static int[] parseMix(String text) {
+        int[] mix = new int[LibraryWorkload.Operation.values().length];
+        for (String part : text.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Sai định dạng mix: " + part);
+            }
+            mix[LibraryWorkload.Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] =
+                    Integer.parseInt(pair[1].trim());
+        }
+        return mix;
+    }
+
+    private static void print(String label, LatencyLog log, int seconds) {
+        long[] sorted = log.sorted();
+        System.out.printf("%-10s %10d %10.0f %9d %9.3f %9.3f %9.3f %9.3f%n", label, sorted.length,
+                sorted.length / (double) seconds, log.rejected,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    /*
+     * Độ trễ từng thao tác (ns) của một loại thao tác
+     */
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+        private long rejected;
+
+        void record(long nanos, boolean accepted) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!accepted) {
+                rejected++;
+            }
+        }
+
+        void addAll(LatencyLog other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            rejected += other.rejected;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.library.benchmark;
+
+import com.library.exception.BookNotFoundException;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.Timer;
+import com.library.model.Book;
+import com.library.service.BookService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Chi phí đo hiệu năng trên mỗi lần gọi: một cặp start/stop của Timer, và tra sách theo ISBN
+ * (phương thức service đã được đo) khi bật so với khi tắt bằng -Dlibrary.metrics.enabled=false.
+ * Chạy thêm -t 4 để thấy bộ đếm LongAdder không tranh chấp khi nhiều luồng cùng ghi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    private static final int BOOKS = 10_000;
+
+    private final Timer timer = MetricsRegistry.getInstance().timer("benchmark.timer");
+    private BookService bookService;
+    private String[] isbns;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LibraryDataset dataset = LibraryDataset.generate(BOOKS);
+        bookService = new BookService(dataset.getBookRepository(), dataset.getStatistics());
+        isbns = new String[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            isbns[i] = LibraryDataset.isbn(i);
+        }
+    }
+
+    @Benchmark
+    public void timerStartStop() {
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dlibrary.metrics.enabled=false")
+    public void timerStartStopDisabled() {
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    public Book findBookByIsbn() throws BookNotFoundException {
+        return bookService.findBookByIsbn(isbns[nextBook()]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dlibrary.metrics.enabled=false")
+    public Book findBookByIsbnDisabled() throws BookNotFoundException {
+        return bookService.findBookByIsbn(isbns[nextBook()]);
+    }
+
+    private int nextBook() {
+        next = next + 1 == BOOKS ? 0 : next + 1;
+        return next;
+    }
+}
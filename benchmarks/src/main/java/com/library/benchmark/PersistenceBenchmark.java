@@ -0,0 +1,127 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.persistence.BinarySnapshot;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * So sánh snapshot nhị phân với định dạng Java serialization cũ (library_data.ser):
+ * thời gian lưu, thời gian tải và kích thước file (in ra khi setup).
+ * openBinaryLazy đo thời gian mở snapshot khi giao dịch đã trả nằm lại trong file ánh xạ bộ nhớ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class PersistenceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int transactionCount;
+
+    private BookRepository bookRepository;
+    private MemberRepository memberRepository;
+    private TransactionRepository transactionRepository;
+    private Path binaryFile;
+    private Path serializedFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bookRepository = new BookRepository();
+        memberRepository = new MemberRepository();
+        transactionRepository = new TransactionRepository();
+
+        int bookCount = Math.max(1_000, transactionCount / 5);
+        int memberCount = Math.max(100, transactionCount / 20);
+        for (int i = 0; i < bookCount; i++) {
+            bookRepository.save(new Book(Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i)),
+                    "Tên sách số " + i, "Tác giả " + (i % 5_000), 1900 + i % 120));
+        }
+        for (int i = 0; i < memberCount; i++) {
+            memberRepository.save(new Member(String.format("MEM-%08X", i), "Thành viên " + i,
+                    "member" + i + "@email.com", "0900000000"));
+        }
+        LocalDateTime start = LocalDateTime.now().minusYears(10);
+        for (int i = 0; i < transactionCount; i++) {
+            Transaction transaction = new Transaction(String.format("TXN-%012X", i),
+                    String.format("MEM-%08X", i % memberCount),
+                    Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i % bookCount)));
+            LocalDateTime borrowDate = start.plusMinutes(i);
+            transaction.setBorrowDate(borrowDate);
+            transaction.setDueDate(borrowDate.plusDays(14));
+            transaction.setReturnDate(borrowDate.plusDays(i % 20));
+            transaction.setLateFee(Math.max(0, i % 20 - 14));
+            transactionRepository.save(transaction);
+        }
+
+        Path dir = Files.createTempDirectory("library-persistence");
+        binaryFile = dir.resolve("library_data.bin");
+        serializedFile = dir.resolve("library_data.ser");
+        saveBinary();
+        saveSerialized();
+        System.out.printf("%n[size] transactions=%d binary=%d bytes, serialized=%d bytes%n",
+                transactionCount, Files.size(BinarySnapshot.current(binaryFile)), Files.size(serializedFile));
+    }
+
+    @Benchmark
+    public void saveBinary() throws IOException {
+        BinarySnapshot.write(binaryFile, bookRepository, memberRepository, transactionRepository);
+    }
+
+    @Benchmark
+    public TransactionRepository loadBinary() throws IOException {
+        TransactionRepository transactions = new TransactionRepository();
+        BinarySnapshot.read(binaryFile, new BookRepository(), new MemberRepository(), transactions);
+        return transactions;
+    }
+
+    @Benchmark
+    public TransactionRepository openBinaryLazy() throws IOException {
+        TransactionRepository transactions = new TransactionRepository();
+        BinarySnapshot.open(binaryFile, new BookRepository(), new MemberRepository(), transactions);
+        return transactions;
+    }
+
+    @Benchmark
+    public void saveSerialized() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("books", bookRepository.findAll());
+        data.put("members", memberRepository.findAll());
+        data.put("transactions", transactionRepository.findAll());
+
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(serializedFile.toFile()))) {
+            oos.writeObject(data);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public TransactionRepository loadSerialized() throws IOException, ClassNotFoundException {
+        TransactionRepository transactions = new TransactionRepository();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(serializedFile.toFile()))) {
+            Map<String, Object> data = (Map<String, Object>) ois.readObject();
+            BookRepository books = new BookRepository();
+            MemberRepository members = new MemberRepository();
+            ((List<Book>) data.get("books")).forEach(books::save);
+            ((List<Member>) data.get("members")).forEach(members::save);
+            ((List<Transaction>) data.get("transactions")).forEach(transactions::save);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,78 @@
+package com.library.benchmark;
+
+import com.library.model.Transaction;
+import com.library.persistence.BinarySnapshot;
+import com.library.persistence.WriteAheadLog;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.LibraryStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Khởi động lại (đường đi của LibraryService.loadData): mở snapshot rồi phát lại nhật ký WAL có
+ * books / 10 cặp mượn/trả ghi sau snapshot, cuối cùng dựng lại thống kê.
+ * LibraryService là singleton gắn với file trong thư mục hiện tại nên benchmark gọi thẳng
+ * BinarySnapshot và WriteAheadLog trên thư mục tạm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class RecoveryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int books;
+
+    private Path snapshotFile;
+    private Path logFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LibraryDataset dataset = LibraryDataset.generate(books);
+        Path dir = Files.createTempDirectory("library-recovery");
+        snapshotFile = dir.resolve("library_data.bin");
+        logFile = dir.resolve("library_data.wal");
+        BinarySnapshot.write(snapshotFile, dataset.getBookRepository(), dataset.getMemberRepository(),
+                dataset.getTransactionRepository());
+
+        // Sách từ getOpenLoanCount() trở đi đều sẵn sàng nên mỗi cặp mượn/trả đều hợp lệ khi phát lại
+        WriteAheadLog log = new WriteAheadLog(logFile);
+        LocalDateTime now = LocalDateTime.now();
+        long lsn = 0;
+        for (int i = 0; i < books / 10; i++) {
+            int book = dataset.getOpenLoanCount() + i % (books - dataset.getOpenLoanCount());
+            Transaction transaction = new Transaction(dataset.getTransactionRepository().nextId(),
+                    dataset.memberId(i % dataset.getMemberCount()), LibraryDataset.isbn(book));
+            transaction.setBorrowDate(now);
+            transaction.setDueDate(now.plusDays(14));
+            log.bookBorrowed(transaction);
+            transaction.setReturnDate(now.plusDays(1));
+            lsn = log.bookReturned(transaction);
+        }
+        log.awaitDurable(lsn);
+        log.close();
+        System.out.printf("%n[size] snapshot=%d bytes, wal=%d bytes%n",
+                Files.size(BinarySnapshot.current(snapshotFile)), Files.size(logFile));
+    }
+
+    @Benchmark
+    public LibraryStatistics openAndReplay() throws IOException {
+        BookRepository bookRepository = new BookRepository();
+        MemberRepository memberRepository = new MemberRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        long lsn = BinarySnapshot.open(snapshotFile, bookRepository, memberRepository, transactionRepository);
+        WriteAheadLog.replay(logFile, lsn, bookRepository, memberRepository, transactionRepository);
+        LibraryStatistics statistics = new LibraryStatistics();
+        statistics.rebuild(bookRepository, memberRepository, transactionRepository);
+        return statistics;
+    }
+}
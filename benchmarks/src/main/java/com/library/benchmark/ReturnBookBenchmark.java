@@ -0,0 +1,77 @@
+package com.library.benchmark;
+
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Isbn;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Độ trễ mượn + trả một cuốn sách khi lịch sử giao dịch có từ 10k tới 10M bản ghi.
+ * Thành viên và cuốn sách được đo cũng có lịch sử lớn dần theo historySize (1/HOT_SHARE số giao dịch),
+ * nên kết quả chỉ phẳng khi cả update lẫn index theo thành viên/ISBN không phụ thuộc độ dài lịch sử.
+ *
+ * 10M giao dịch cần heap lớn: chạy với -p historySize=... để giới hạn trên máy yếu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class ReturnBookBenchmark {
+    private static final int HOT_SHARE = 100;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int historySize;
+
+    private TransactionService transactionService;
+    private String memberId;
+    private String isbn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        TransactionRepository transactionRepository = new TransactionRepository();
+        BookService bookService = new BookService(new BookRepository());
+        MemberService memberService = new MemberService(new MemberRepository());
+        transactionService = new TransactionService(transactionRepository, bookService, memberService);
+
+        isbn = bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008).getIsbn();
+        memberId = memberService.registerMember("Bench Reader", "bench@email.com", "1234567890").getMemberId();
+
+        // Lịch sử các giao dịch đã trả, một phần là của chính thành viên và cuốn sách được đo
+        String[] members = new String[1_000];
+        String[] isbns = new String[10_000];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = String.format("MEM-%08X", i);
+        }
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+        }
+
+        LocalDateTime start = LocalDateTime.now().minusYears(20);
+        for (int i = 0; i < historySize; i++) {
+            boolean hot = i % HOT_SHARE == 0;
+            Transaction transaction = new Transaction(String.format("TXN-%012X", i),
+                    hot ? memberId : members[i % members.length], hot ? isbn : isbns[i % isbns.length]);
+            LocalDateTime borrowDate = start.plusSeconds(i * 60L);
+            transaction.setBorrowDate(borrowDate);
+            transaction.setDueDate(borrowDate.plusDays(14));
+            transaction.setReturnDate(borrowDate.plusDays(7));
+            transactionRepository.save(transaction);
+        }
+    }
+
+    @Benchmark
+    public Transaction borrowAndReturn() throws Exception {
+        transactionService.borrowBook(memberId, isbn);
+        return transactionService.returnBook(memberId, isbn);
+    }
+}
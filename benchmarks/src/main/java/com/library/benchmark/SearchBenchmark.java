@@ -0,0 +1,86 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Tìm sách trên bộ dữ liệu LibraryDataset theo cỡ: một từ trong tên (nhiều kết quả), hai từ liền nhau
+ * (ít kết quả), tên tác giả, mảnh ISBN, và tra đúng ISBN.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class SearchBenchmark {
+    private static final int QUERIES = 1 << 10;
+
+    @Param({"10000", "100000", "1000000"})
+    private int books;
+
+    private BookRepository bookRepository;
+    private String[] words;
+    private String[] phrases;
+    private String[] authors;
+    private String[] isbnFragments;
+    private String[] isbns;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LibraryDataset dataset = LibraryDataset.generate(books);
+        bookRepository = dataset.getBookRepository();
+        SplittableRandom random = new SplittableRandom(7);
+        words = new String[QUERIES];
+        phrases = new String[QUERIES];
+        authors = new String[QUERIES];
+        isbnFragments = new String[QUERIES];
+        isbns = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            Book book = bookRepository.findByIsbn(LibraryDataset.isbn(random.nextInt(books))).orElseThrow();
+            String[] titleWords = book.getTitle().split(" ");
+            words[i] = LibraryDataset.word(random);
+            phrases[i] = titleWords[0] + " " + titleWords[1];
+            authors[i] = book.getAuthor();
+            isbnFragments[i] = book.getIsbn().substring(8);
+            isbns[i] = book.getIsbn();
+        }
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public List<Book> searchWord() {
+        return bookRepository.search(words[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Book> searchTitlePhrase() {
+        return bookRepository.findByTitle(phrases[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Book> searchAuthor() {
+        return bookRepository.findByAuthor(authors[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Book> searchIsbnFragment() {
+        return bookRepository.search(isbnFragments[nextQuery()]);
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbn() {
+        return bookRepository.findByIsbn(isbns[nextQuery()]);
+    }
+}
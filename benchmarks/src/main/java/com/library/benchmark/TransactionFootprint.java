@@ -0,0 +1,142 @@
+package com.library.benchmark;
+
+import com.library.model.Transaction;
+import com.library.util.IdSequence;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * Đo bộ nhớ của một giao dịch đã trả (không phải JMH): bố cục cũ (3 LocalDateTime, loại giao dịch,
+ * phí double, mỗi giao dịch một chuỗi memberId riêng như khi nạp từ nhật ký) so với Transaction hiện tại
+ * (giây epoch, độ lệch int, phí bằng cent, memberId dùng chung của thành viên).
+ *  - bố cục trường kiểu JOL: kích thước từng trường và cả đối tượng, giả định compressed oops/class pointers
+ *    (header 12 byte, tham chiếu 4 byte, căn 8 byte); JOL không có trong môi trường build nên tự tính bằng reflection
+ *  - byte/giao dịch đo thực tế trên heap, gồm đối tượng và những gì chỉ nó giữ; không tính transactionId
+ *    vì hai cách như nhau (chuỗi dùng chung với khóa map của repository)
+ *
+ *   java -Xmx2g -cp target/benchmarks.jar com.library.benchmark.TransactionFootprint [số giao dịch]
+ */
+public class TransactionFootprint {
+    private static final int HEADER_BYTES = 12;
+    private static final int MEMBERS = 10_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] memberIds = new String[MEMBERS];
+        IdSequence sequence = new IdSequence("MEM-", 8);
+        for (int i = 0; i < MEMBERS; i++) {
+            memberIds[i] = sequence.nextId();
+        }
+        LocalDateTime start = LocalDateTime.now().minusYears(5);
+
+        printLayout(LegacyTransaction.class);
+        printLayout(Transaction.class);
+
+        System.out.printf("%n%,d giao dịch đã trả, byte/giao dịch%n", count);
+        report("Bố cục cũ", count, () -> {
+            List<LegacyTransaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                LocalDateTime borrowDate = start.plusMinutes(i);
+                LegacyTransaction transaction = new LegacyTransaction();
+                transaction.memberId = new String(memberIds[i % MEMBERS].toCharArray());
+                transaction.bookIsbnKey = 9_780_000_000_000L + i;
+                transaction.borrowDate = borrowDate;
+                transaction.dueDate = borrowDate.plusDays(14);
+                transaction.returnDate = borrowDate.plusDays(i % 20);
+                transaction.type = Transaction.TransactionType.RETURN;
+                transaction.lateFee = Math.max(0, i % 20 - 14);
+                transactions.add(transaction);
+            }
+            return transactions;
+        });
+        report("Transaction hiện tại", count, () -> {
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                LocalDateTime borrowDate = start.plusMinutes(i);
+                Transaction transaction = new Transaction();
+                transaction.setMemberId(memberIds[i % MEMBERS]);
+                transaction.setBookIsbnKey(9_780_000_000_000L + i);
+                transaction.setBorrowDate(borrowDate);
+                transaction.setDueDate(borrowDate.plusDays(14));
+                transaction.setReturnDate(borrowDate.plusDays(i % 20));
+                transaction.setLateFee(Math.max(0, i % 20 - 14));
+                transactions.add(transaction);
+            }
+            return transactions;
+        });
+    }
+
+    /*
+     * Trường theo thứ tự khai báo (JVM có thể xếp lại để lấp chỗ trống nhưng tổng vẫn như vậy)
+     */
+    private static void printLayout(Class<?> type) {
+        System.out.printf("%n%s%n", type.getName());
+        System.out.printf("  %-14s %-30s %5s%n", "Trường", "Kiểu", "Byte");
+        System.out.printf("  %-14s %-30s %5d%n", "(header)", "", HEADER_BYTES);
+        int size = HEADER_BYTES;
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            int bytes = sizeOf(field.getType());
+            size += bytes;
+            System.out.printf("  %-14s %-30s %5d%n", field.getName(), field.getType().getSimpleName(), bytes);
+        }
+        int aligned = (size + 7) & ~7;
+        System.out.printf("  Kích thước đối tượng: %d byte (%d byte căn lề)%n", aligned, aligned - size);
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return 4;
+    }
+
+    private static void report(String label, int count, Supplier<Object> build) {
+        long before = usedHeap();
+        Object retained = build.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(retained);
+        System.out.printf("  %-45s %6.1f%n", label, (after - before) / (double) count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /*
+     * Bố cục trường của Transaction trước khi đổi sang giây epoch (ISBN đã là khóa long)
+     */
+    private static final class LegacyTransaction {
+        private String transactionId;
+        private String memberId;
+        private long bookIsbnKey;
+        private LocalDateTime borrowDate;
+        private LocalDateTime dueDate;
+        private LocalDateTime returnDate;
+        private Transaction.TransactionType type;
+        private double lateFee;
+    }
+}
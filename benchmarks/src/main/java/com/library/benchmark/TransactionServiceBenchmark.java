@@ -0,0 +1,56 @@
+package com.library.benchmark;
+
+import com.library.model.Transaction;
+import com.library.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Mượn + trả qua TransactionService trên bộ dữ liệu LibraryDataset theo cỡ: sách chọn ngẫu nhiên trong
+ * phần đang sẵn sàng, thành viên ngẫu nhiên, nên lịch sử của sách/thành viên có độ dài như dữ liệu thật.
+ * Kèm các truy vấn lịch sử hay dùng ở quầy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class TransactionServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int books;
+
+    private LibraryDataset dataset;
+    private TransactionService transactionService;
+    private final SplittableRandom random = new SplittableRandom(11);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = LibraryDataset.generate(books);
+        transactionService = dataset.newTransactionService();
+    }
+
+    @Benchmark
+    public Transaction borrowAndReturn() throws Exception {
+        int open = dataset.getOpenLoanCount();
+        String isbn = LibraryDataset.isbn(open + random.nextInt(dataset.getBookCount() - open));
+        // Mỗi thành viên đang giữ tối đa 2 cuốn, dưới hạn mức 5
+        String memberId = dataset.memberId(random.nextInt(dataset.getMemberCount()));
+        transactionService.borrowBook(memberId, isbn);
+        return transactionService.returnBook(memberId, isbn);
+    }
+
+    @Benchmark
+    public List<Transaction> memberHistory() {
+        return transactionService.getMemberTransactions(dataset.memberId(random.nextInt(dataset.getMemberCount())));
+    }
+
+    @Benchmark
+    public List<Transaction> overdueTransactions() {
+        return transactionService.getOverdueTransactions();
+    }
+}
@@ -1,16 +1,114 @@
 package com.library;
 
+import com.library.api.LibraryHttpServer;
+import com.library.metrics.FlightRecording;
 import com.library.service.LibraryService;
 import com.library.ui.ConsoleUI;
 import com.library.ui.MenuHandler;
 
+import java.io.FileNotFoundException;
+import java.net.InetSocketAddress;
+
 public class LibraryApplication
 {
+    private static final int DEFAULT_HTTP_PORT = 8080;
+
     public static void main(String[] args) {
+        // Bản ghi JFR liên tục (-Dlibrary.jfr.enabled=true), được ghi ra file khi tiến trình thoát
+        try {
+            FlightRecording.startFromSystemProperties();
+        } catch (Exception e) {
+            System.err.println("Không bật được bản ghi JFR: " + e.getMessage());
+        }
         LibraryApplication app = new LibraryApplication();
+        if (args.length > 0 && args[0].equals("--serve")) {
+            String host = LibraryHttpServer.DEFAULT_HOST;
+            int port = DEFAULT_HTTP_PORT;
+            if (args.length > 1) {
+                // [địa chỉ:]cổng, IPv6 viết trong ngoặc vuông: [::1]:8080
+                int colon = args[1].lastIndexOf(':');
+                if (colon >= 0) {
+                    host = parseHost(args[1].substring(0, colon));
+                }
+                port = host == null ? -1 : parsePort(args[1].substring(colon + 1));
+            }
+            if (port < 0) {
+                System.err.println("Địa chỉ không hợp lệ: " + args[1]);
+                System.err.println("Cách dùng: --serve [[địa chỉ:]cổng 0-65535], mặc định "
+                        + LibraryHttpServer.DEFAULT_HOST + ":" + DEFAULT_HTTP_PORT
+                        + " (chỉ máy này; 0.0.0.0 để mở cho mạng ngoài, API không có xác thực)");
+                System.exit(2);
+            }
+            if (!app.serve(host, port)) {
+                System.exit(1);
+            }
+            return;
+        }
         app.run();
     }
 
+    /*
+     * Bỏ ngoặc vuông quanh địa chỉ IPv6, hoặc null nếu rỗng
+     */
+    private static String parseHost(String text) {
+        if (text.startsWith("[") && text.endsWith("]")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        return text.isEmpty() ? null : text;
+    }
+
+    /*
+     * Cổng 0-65535 (0 = cổng trống bất kỳ), hoặc -1 nếu không hợp lệ
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text);
+            return port >= 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /*
+     * Chế độ máy chủ (--serve [[địa chỉ:]cổng]): không có menu, phục vụ API HTTP/JSON tới khi tiến trình bị dừng.
+     * Trả về false nếu không khởi động được (dữ liệu hỏng, cổng bận, địa chỉ sai).
+     */
+    public boolean serve(String host, int port) {
+        LibraryService libraryService = LibraryService.getInstance();
+        try {
+            libraryService.loadData();
+            System.out.println("✅ Dữ liệu được tải lên thành công.");
+        } catch (FileNotFoundException e) {
+            System.out.println("ℹ️  Không tìm thấy dữ liệu. Tải lên thư viện mới.");
+        } catch (Exception e) {
+            // Không phục vụ (và nhận thao tác ghi) trên một thư viện trống khi file dữ liệu đang hỏng
+            System.err.println("Không tải được dữ liệu: " + e.getMessage());
+            shutdown(libraryService);
+            return false;
+        }
+
+        LibraryHttpServer server = new LibraryHttpServer(libraryService);
+        try {
+            server.start(host, port);
+        } catch (Exception e) {
+            System.err.println("Không mở được " + host + ":" + port + ": " + e.getMessage());
+            shutdown(libraryService);
+            return false;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                libraryService.shutdown();
+            } catch (Exception e) {
+                System.err.println("Lỗi khi đóng nhật ký dữ liệu: " + e.getMessage());
+            }
+        }));
+        InetSocketAddress address = server.getAddress();
+        System.out.println("🌐 API thư viện đang chạy tại http://" + address.getHostString() + ":"
+                + address.getPort() + "/api/");
+        return true;
+    }
+
     public void run() {
         LibraryService libraryService = LibraryService.getInstance();
         ConsoleUI ui = new ConsoleUI();
@@ -19,7 +117,7 @@ public class LibraryApplication
         try {
             libraryService.loadData();
             System.out.println("✅ Dữ liệu được tải lên thành công.");
-        } catch (Exception e) {
+        } catch (FileNotFoundException e) {
             System.out.println("ℹ️  Không tìm thấy dữ liệu. Tải lên thư viện mới.");
 
             System.out.print("Bạn có muốn tải lên dữ liệu mẫu? (y/n): ");
@@ -28,6 +126,12 @@ public class LibraryApplication
                 libraryService.initializeSampleData();
                 System.out.println("✅ Dữ liệu mẫu tạo thành công!");
             }
+        } catch (Exception e) {
+            // Không chạy tiếp trên thư viện trống: lần lưu sau có thể ghi đè file dữ liệu đang hỏng
+            ui.displayError("Không tải được dữ liệu: " + e.getMessage());
+            shutdown(libraryService);
+            ui.close();
+            return;
         }
 
         boolean running = true;
@@ -63,6 +167,10 @@ public class LibraryApplication
                         ui.pause();
                         break;
                     case 6:
+                        menuHandler.handleViewMetrics();
+                        ui.pause();
+                        break;
+                    case 7:
                         System.out.print("\nLưu dữ liệu trước khi thoát? (y/n): ");
                         String save = ui.readString("").toLowerCase();
                         if (save.equals("y") || save.equals("yes")) {
@@ -72,7 +180,7 @@ public class LibraryApplication
                         System.out.println("\n Đã thoát hệ thống quản lý thư viện.");
                         break;
                     default:
-                        ui.displayError("Lựa chọn không hợp lệ! Hãy điền 1-6.");
+                        ui.displayError("Lựa chọn không hợp lệ! Hãy điền 1-7.");
                         ui.pause();
                 }
             } catch (Exception e) {
@@ -81,9 +189,18 @@ public class LibraryApplication
             }
         }
 
+        shutdown(libraryService);
         ui.close();
     }
 
+    private static void shutdown(LibraryService libraryService) {
+        try {
+            libraryService.shutdown();
+        } catch (Exception e) {
+            System.err.println("Lỗi khi đóng nhật ký dữ liệu: " + e.getMessage());
+        }
+    }
+
     private void handleBookManagement(ConsoleUI ui, MenuHandler menuHandler) {
         boolean back = false;
 
@@ -108,10 +225,13 @@ public class LibraryApplication
                     menuHandler.handleListAvailableBooks();
                     break;
                 case 6:
+                    menuHandler.handleImportBooks();
+                    break;
+                case 7:
                     back = true;
                     continue;
                 default:
-                    ui.displayError("Lựa chọn không hợp lệ! Hãy điền 1-6.");
+                    ui.displayError("Lựa chọn không hợp lệ! Hãy điền 1-7.");
             }
 
             if (!back) {
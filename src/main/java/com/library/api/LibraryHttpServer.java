@@ -0,0 +1,414 @@
+package com.library.api;
+
+import com.library.exception.BookNotFoundException;
+import com.library.exception.InvalidOperationException;
+import com.library.exception.MemberNotFoundException;
+import com.library.model.Book;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.service.BookService;
+import com.library.service.LibraryService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/*
+ * API HTTP/JSON cho kiosk và máy tự mượn trả, đặt trước tầng service (LibraryApplication --serve).
+ * Mỗi request chạy trên một virtual thread: request nào phải chờ khóa hay chờ nhật ký ghi xuống đĩa
+ * chỉ chiếm một virtual thread, nên hàng nghìn request đồng thời không cần pool luồng lớn.
+ *
+ *   GET    /api/books?q=...               tìm sách (không có q: tất cả)
+ *   GET    /api/books/{isbn}
+ *   POST   /api/books                     {"isbn","title","author","publicationYear"}
+ *   DELETE /api/books/{isbn}
+ *   GET    /api/members?q=...             tìm theo tên (không có q: tất cả)
+ *   GET    /api/members/{id}
+ *   GET    /api/members/{id}/transactions
+ *   POST   /api/members                   {"name","email","phone"}
+ *   POST   /api/members/{id}/activate | /deactivate
+ *   POST   /api/borrow | /api/return      {"memberId","isbn"}
+ *   GET    /api/transactions/overdue | /api/transactions/recent?limit=...
+ *   GET    /api/stats
+ *
+ * Lỗi trả về {"error": "..."}: 404 không tìm thấy, 409 thao tác không hợp lệ, 400 dữ liệu sai.
+ *
+ * API không có xác thực nên mặc định chỉ nghe trên loopback (DEFAULT_HOST); mở ra mạng thì phải chỉ rõ địa chỉ.
+ */
+public class LibraryHttpServer {
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    private static final int BACKLOG = 4096;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final BookService bookService;
+    private final MemberService memberService;
+    private final TransactionService transactionService;
+    private final LibraryStatistics statistics;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LibraryHttpServer(LibraryService libraryService) {
+        this(libraryService.getBookService(), libraryService.getMemberService(),
+                libraryService.getTransactionService(), libraryService.getStatistics());
+    }
+
+    public LibraryHttpServer(BookService bookService, MemberService memberService,
+                             TransactionService transactionService, LibraryStatistics statistics) {
+        this.bookService = bookService;
+        this.memberService = memberService;
+        this.transactionService = transactionService;
+        this.statistics = statistics;
+    }
+
+    /*
+     * Mở cổng trên loopback (0 = cổng bất kỳ còn trống, xem getPort)
+     */
+    public void start(int port) throws IOException {
+        start(DEFAULT_HOST, port);
+    }
+
+    /*
+     * Mở cổng trên địa chỉ cho trước (tên máy hoặc IP, "0.0.0.0" = mọi giao diện mạng)
+     */
+    public synchronized void start(String host, int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server đã chạy");
+        }
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            throw new IOException("Không phân giải được địa chỉ: " + host);
+        }
+        server = HttpServer.create(address, BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    public synchronized int getPort() {
+        return getAddress().getPort();
+    }
+
+    public synchronized InetSocketAddress getAddress() {
+        if (server == null) {
+            throw new IllegalStateException("Server chưa chạy");
+        }
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try {
+            Response response = route(exchange.getRequestMethod(), segments(exchange), exchange);
+            status = response.status;
+            body = response.body;
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (BookNotFoundException | MemberNotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (InvalidOperationException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (Exception e) {
+            status = 500;
+            body = error("Lỗi máy chủ: " + e.getMessage());
+        }
+
+        try (exchange) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private Response route(String method, String[] path, HttpExchange exchange) throws Exception {
+        String resource = path.length > 0 ? path[0] : "";
+        switch (resource) {
+            case "books":
+                return routeBooks(method, path, exchange);
+            case "members":
+                return routeMembers(method, path, exchange);
+            case "borrow":
+                requireMethod(method, "POST", path.length == 1);
+                Map<String, String> borrow = readBody(exchange);
+                return new Response(201, toJson(transactionService.borrowBook(
+                        required(borrow, "memberId"), required(borrow, "isbn"))));
+            case "return":
+                requireMethod(method, "POST", path.length == 1);
+                Map<String, String> giveBack = readBody(exchange);
+                return Response.ok(toJson(transactionService.returnBook(
+                        required(giveBack, "memberId"), required(giveBack, "isbn"))));
+            case "transactions":
+                requireMethod(method, "GET", path.length == 2);
+                if (path[1].equals("overdue")) {
+                    return Response.ok(toJsonArray(transactionService.getOverdueTransactions(), LibraryHttpServer::toJson));
+                }
+                if (path[1].equals("recent")) {
+                    int limit = parseInt(query(exchange).getOrDefault("limit", "10"), "limit");
+                    return Response.ok(toJsonArray(transactionService.getRecentTransactions(limit), LibraryHttpServer::toJson));
+                }
+                return Response.notFound();
+            case "stats":
+                requireMethod(method, "GET", path.length == 1);
+                return Response.ok(statisticsJson());
+            default:
+                return Response.notFound();
+        }
+    }
+
+    private Response routeBooks(String method, String[] path, HttpExchange exchange) throws Exception {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                String keyword = query(exchange).get("q");
+                List<Book> books = keyword == null ? bookService.getAllBooks() : bookService.searchBooks(keyword);
+                return Response.ok(toJsonArray(books, LibraryHttpServer::toJson));
+            }
+            requireMethod(method, "POST", true);
+            Map<String, String> body = readBody(exchange);
+            Book book = bookService.addBook(required(body, "isbn"), required(body, "title"), required(body, "author"),
+                    parseInt(required(body, "publicationYear"), "publicationYear"));
+            return new Response(201, toJson(book));
+        }
+        if (path.length == 2) {
+            if (method.equals("DELETE")) {
+                bookService.removeBook(path[1]);
+                return new Response(204, null);
+            }
+            requireMethod(method, "GET", true);
+            return Response.ok(toJson(bookService.findBookByIsbn(path[1])));
+        }
+        return Response.notFound();
+    }
+
+    private Response routeMembers(String method, String[] path, HttpExchange exchange) throws Exception {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                String name = query(exchange).get("q");
+                List<Member> members = name == null
+                        ? memberService.getAllMembers() : memberService.searchMembersByName(name);
+                return Response.ok(toJsonArray(members, LibraryHttpServer::toJson));
+            }
+            requireMethod(method, "POST", true);
+            Map<String, String> body = readBody(exchange);
+            Member member = memberService.registerMember(
+                    required(body, "name"), required(body, "email"), required(body, "phone"));
+            return new Response(201, toJson(member));
+        }
+        String memberId = path[1];
+        if (path.length == 2) {
+            requireMethod(method, "GET", true);
+            return Response.ok(toJson(memberService.findMemberById(memberId)));
+        }
+        if (path.length == 3) {
+            switch (path[2]) {
+                case "transactions":
+                    requireMethod(method, "GET", true);
+                    memberService.findMemberById(memberId);
+                    return Response.ok(toJsonArray(
+                            transactionService.getMemberTransactions(memberId), LibraryHttpServer::toJson));
+                case "activate":
+                    requireMethod(method, "POST", true);
+                    memberService.activateMember(memberId);
+                    return Response.ok(toJson(memberService.findMemberById(memberId)));
+                case "deactivate":
+                    requireMethod(method, "POST", true);
+                    memberService.deactivateMember(memberId);
+                    return Response.ok(toJson(memberService.findMemberById(memberId)));
+                default:
+                    return Response.notFound();
+            }
+        }
+        return Response.notFound();
+    }
+
+    private String statisticsJson() {
+        return "{\"totalBooks\":" + statistics.getTotalBooks()
+                + ",\"availableBooks\":" + statistics.getAvailableBooks()
+                + ",\"borrowedBooks\":" + statistics.getBorrowedBooks()
+                + ",\"totalMembers\":" + statistics.getTotalMembers()
+                + ",\"activeMembers\":" + statistics.getActiveMembers()
+                + ",\"totalTransactions\":" + statistics.getTotalTransactions()
+                + ",\"openLoans\":" + statistics.getOpenLoans()
+                + ",\"totalLateFees\":" + statistics.getTotalLateFees() + "}";
+    }
+
+    static String toJson(Book book) {
+        return "{\"isbn\":" + Json.quote(book.getIsbn())
+                + ",\"title\":" + Json.quote(book.getTitle())
+                + ",\"author\":" + Json.quote(book.getAuthor())
+                + ",\"publicationYear\":" + book.getPublicationYear()
+                + ",\"status\":" + Json.quote(book.getStatus().name())
+                + ",\"addedDate\":" + quoteDate(book.getAddedDate()) + "}";
+    }
+
+    static String toJson(Member member) {
+        return "{\"memberId\":" + Json.quote(member.getMemberId())
+                + ",\"name\":" + Json.quote(member.getName())
+                + ",\"email\":" + Json.quote(member.getEmail())
+                + ",\"phone\":" + Json.quote(member.getPhone())
+                + ",\"active\":" + member.isActive()
+                + ",\"registrationDate\":" + quoteDate(member.getRegistrationDate())
+                + ",\"borrowedBookIsbns\":" + toJsonArray(member.getBorrowedBookIsbns(), Json::quote) + "}";
+    }
+
+    static String toJson(Transaction transaction) {
+        return "{\"transactionId\":" + Json.quote(transaction.getTransactionId())
+                + ",\"memberId\":" + Json.quote(transaction.getMemberId())
+                + ",\"isbn\":" + Json.quote(transaction.getBookIsbn())
+                + ",\"type\":" + Json.quote(transaction.getType().name())
+                + ",\"borrowDate\":" + quoteDate(transaction.getBorrowDate())
+                + ",\"dueDate\":" + quoteDate(transaction.getDueDate())
+                + ",\"returnDate\":" + quoteDate(transaction.getReturnDate())
+                + ",\"lateFee\":" + transaction.getLateFee() + "}";
+    }
+
+    private static <T> String toJsonArray(List<T> items, Function<T, String> toJson) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(toJson.apply(items.get(i)));
+        }
+        return out.append(']').toString();
+    }
+
+    private static String quoteDate(Object date) {
+        return date == null ? "null" : Json.quote(date.toString());
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    /*
+     * Đường dẫn sau /api/, tách theo '/' (đã được giải mã %XX)
+     */
+    private static String[] segments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath().substring("/api/".length());
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path.isEmpty() ? new String[0] : path.split("/");
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Nội dung request quá lớn");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException("Thiếu trường: " + field);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Trường " + field + " phải là số nguyên: " + value);
+        }
+    }
+
+    private static void requireMethod(String method, String expected, boolean pathMatches) {
+        if (!pathMatches) {
+            throw new HttpError(404, "Không có endpoint này");
+        }
+        if (!method.equals(expected)) {
+            throw new HttpError(405, "Không hỗ trợ phương thức " + method);
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response notFound() {
+            return new Response(404, error("Không có endpoint này"));
+        }
+    }
+
+    /*
+     * Lỗi định tuyến (404/405), ném từ sâu trong route để trả về ngay
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
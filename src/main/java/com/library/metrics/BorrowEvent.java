@@ -0,0 +1,11 @@
+package com.library.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.library.Borrow")
+@Label("Borrow Book")
+@Description("TransactionService.borrowBook")
+public final class BorrowEvent extends LoanEvent {
+}
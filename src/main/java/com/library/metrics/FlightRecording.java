@@ -0,0 +1,48 @@
+package com.library.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/*
+ * Bản ghi JFR liên tục bật lúc khởi động bằng -Dlibrary.jfr.enabled=true: cấu hình "default" của JDK
+ * (GC, khóa, I/O...) cộng các sự kiện com.library.*, giữ -Dlibrary.jfr.maxAgeMinutes phút gần nhất
+ * (mặc định 30) trên đĩa và ghi ra -Dlibrary.jfr.file (mặc định library_recording.jfr) khi thoát.
+ * Lấy bản ghi lúc đang chạy: jcmd <pid> JFR.dump name=library filename=...
+ * Khi không bật, các sự kiện không được ghi và chi phí gần như bằng 0.
+ */
+public final class FlightRecording {
+    public static final String ENABLED_PROPERTY = "library.jfr.enabled";
+    public static final String MAX_AGE_PROPERTY = "library.jfr.maxAgeMinutes";
+    public static final String FILE_PROPERTY = "library.jfr.file";
+    private static final String NAME = "library";
+    private static final String DEFAULT_FILE = "library_recording.jfr";
+
+    private FlightRecording() {
+    }
+
+    /*
+     * Bắt đầu bản ghi theo cấu hình hệ thống, hoặc null nếu không bật
+     */
+    public static Recording startFromSystemProperties() throws IOException, ParseException {
+        if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "false"))) {
+            return null;
+        }
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName(NAME);
+        recording.enable(BorrowEvent.class);
+        recording.enable(ReturnEvent.class);
+        recording.enable(SearchEvent.class);
+        recording.enable(PersistenceEvent.class);
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(Long.getLong(MAX_AGE_PROPERTY, 30)));
+        recording.setDestination(Path.of(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)));
+        recording.setDumpOnExit(true);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,39 @@
+package com.library.metrics;
+
+import com.library.model.Transaction;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/*
+ * Phần chung của sự kiện JFR mượn/trả. Thời lượng (begin -> commit) gồm cả thời gian chờ khóa
+ * thành viên/sách và chờ nhật ký WAL ghi xuống đĩa.
+ */
+@Category({"Library", "Circulation"})
+@StackTrace(false)
+abstract class LoanEvent extends jdk.jfr.Event {
+    @Label("Member ID")
+    String memberId;
+
+    @Label("ISBN")
+    String isbn;
+
+    @Label("Transaction ID")
+    String transactionId;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /*
+     * Kết thúc sự kiện; transaction == null nghĩa là thao tác bị từ chối hoặc lỗi
+     */
+    public void end(String memberId, String isbn, Transaction transaction) {
+        if (shouldCommit()) {
+            this.memberId = memberId;
+            this.isbn = isbn;
+            this.transactionId = transaction == null ? null : transaction.getTransactionId();
+            this.succeeded = transaction != null;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.library.metrics;
+
+import com.library.util.Json;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Nơi đăng ký các Timer theo tên (vd. "book.addBook"). Các service đo từng thao tác bằng time/run theo tên;
+ * tên là hằng chuỗi nên mỗi lần gọi chỉ tốn một lần tra ConcurrentHashMap (hash đã được String lưu sẵn).
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T time(
+            String name, Timer.Call<T, E1, E2, E3> call) throws E1, E2, E3 {
+        return timer(name).time(call);
+    }
+
+    public <E1 extends Exception, E2 extends Exception, E3 extends Exception> void run(
+            String name, Timer.Action<E1, E2, E3> action) throws E1, E2, E3 {
+        timer(name).run(action);
+    }
+
+    /*
+     * Các Timer đã được gọi ít nhất một lần, theo tên
+     */
+    public List<Timer> getActiveTimers() {
+        List<Timer> active = new ArrayList<>();
+        for (Timer timer : timers.values()) {
+            if (timer.getCount() > 0) {
+                active.add(timer);
+            }
+        }
+        active.sort(Comparator.comparing(Timer::getName));
+        return active;
+    }
+
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+    }
+
+    /*
+     * Bảng số liệu dạng chữ, thời gian tính bằng micro giây
+     */
+    public String formatText() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-40s %10s %10s %10s %10s %10s %10s%n",
+                "Thao tác", "Số lần", "TB µs", "p50 µs", "p99 µs", "p999 µs", "max µs"));
+        for (Timer timer : getActiveTimers()) {
+            out.append(String.format("%-40s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    timer.getName(), timer.getCount(), timer.getMeanNanos() / 1e3,
+                    timer.getPercentileNanos(0.50) / 1e3, timer.getPercentileNanos(0.99) / 1e3,
+                    timer.getPercentileNanos(0.999) / 1e3, timer.getMaxNanos() / 1e3));
+        }
+        return out.toString();
+    }
+
+    /*
+     * {"timestamp": "...", "timers": {"book.addBook": {"count": 3, "meanNanos": ..., ...}, ...}}
+     */
+    public String formatJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"timestamp\":").append(Json.quote(LocalDateTime.now().toString())).append(",\"timers\":{");
+        boolean first = true;
+        for (Timer timer : getActiveTimers()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append(Json.quote(timer.getName()))
+                    .append(":{\"count\":").append(timer.getCount())
+                    .append(",\"meanNanos\":").append(Math.round(timer.getMeanNanos()))
+                    .append(",\"p50Nanos\":").append(timer.getPercentileNanos(0.50))
+                    .append(",\"p99Nanos\":").append(timer.getPercentileNanos(0.99))
+                    .append(",\"p999Nanos\":").append(timer.getPercentileNanos(0.999))
+                    .append(",\"maxNanos\":").append(timer.getMaxNanos())
+                    .append('}');
+        }
+        return out.append("}}").toString();
+    }
+}
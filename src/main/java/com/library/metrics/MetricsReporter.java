@@ -0,0 +1,99 @@
+package com.library.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Ghi số liệu ra file theo chu kỳ trên một luồng nền (không in ra console để khỏi lẫn với menu).
+ * File kết thúc bằng ".json" thì ghi JSON, còn lại ghi bảng chữ; file được thay nguyên tử mỗi lần ghi.
+ *
+ *   -Dlibrary.metrics.dumpSeconds=60 -Dlibrary.metrics.dumpFile=library_metrics.json
+ */
+public class MetricsReporter implements Closeable {
+    public static final String INTERVAL_PROPERTY = "library.metrics.dumpSeconds";
+    public static final String FILE_PROPERTY = "library.metrics.dumpFile";
+    private static final String DEFAULT_FILE = "library_metrics.json";
+
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final ScheduledExecutorService executor;
+    private volatile IOException lastError;
+
+    private MetricsReporter(MetricsRegistry registry, Path file) {
+        this.registry = registry;
+        this.file = file;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Bắt đầu ghi mỗi intervalSeconds giây; lịch chỉ được đặt khi đối tượng đã dựng xong
+     */
+    public static MetricsReporter start(MetricsRegistry registry, Path file, long intervalSeconds) {
+        MetricsReporter reporter = new MetricsReporter(registry, file);
+        reporter.executor.scheduleAtFixedRate(reporter::dumpQuietly, intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+        return reporter;
+    }
+
+    /*
+     * Bộ ghi theo cấu hình hệ thống, hoặc null nếu không bật (dumpSeconds không đặt hoặc <= 0)
+     */
+    public static MetricsReporter fromSystemProperties(MetricsRegistry registry) {
+        long interval = Long.getLong(INTERVAL_PROPERTY, 0);
+        if (interval <= 0) {
+            return null;
+        }
+        return start(registry, Path.of(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)), interval);
+    }
+
+    public void dump() throws IOException {
+        String content = file.getFileName().toString().endsWith(".json")
+                ? registry.formatJson() + System.lineSeparator()
+                : registry.formatText();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+            lastError = null;
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+
+    /*
+     * Dừng ghi theo chu kỳ và ghi lần cuối
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+}
@@ -0,0 +1,53 @@
+package com.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Lưu hoặc nạp dữ liệu của LibraryService. Với saveData khi bật nhật ký, snapshot được ghi ở nền
+ * (background = true) nên thời lượng chỉ gồm phần chạy trên luồng gọi.
+ */
+@Name("com.library.Persistence")
+@Label("Library Persistence")
+@Description("LibraryService.saveData / loadData")
+@Category({"Library", "Persistence"})
+@StackTrace(false)
+public final class PersistenceEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Background")
+    boolean background;
+
+    @Label("Books")
+    long books;
+
+    @Label("Members")
+    long members;
+
+    @Label("Transactions")
+    long transactions;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public void end(String operation, String file, boolean background, long books, long members,
+                    long transactions, boolean succeeded) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.file = file;
+            this.background = background;
+            this.books = books;
+            this.members = members;
+            this.transactions = transactions;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.library.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.library.Return")
+@Label("Return Book")
+@Description("TransactionService.returnBook")
+public final class ReturnEvent extends LoanEvent {
+}
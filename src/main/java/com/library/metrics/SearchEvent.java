@@ -0,0 +1,40 @@
+package com.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Một lần tìm sách trong BookRepository. candidates = -1 nghĩa là chỉ mục không thu hẹp được
+ * truy vấn và phải quét toàn bộ danh mục (thường là nguyên nhân của lần tìm chậm).
+ */
+@Name("com.library.Search")
+@Label("Book Search")
+@Description("BookRepository.findByTitle / findByAuthor / search")
+@Category({"Library", "Search"})
+@StackTrace(false)
+public final class SearchEvent extends jdk.jfr.Event {
+    @Label("Field")
+    String field;
+
+    @Label("Query")
+    String query;
+
+    @Label("Index Candidates")
+    int candidates;
+
+    @Label("Results")
+    int results;
+
+    public void end(String field, String query, int candidates, int results) {
+        if (shouldCommit()) {
+            this.field = field;
+            this.query = query;
+            this.candidates = candidates;
+            this.results = results;
+            commit();
+        }
+    }
+}
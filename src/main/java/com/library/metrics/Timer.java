@@ -0,0 +1,132 @@
+package com.library.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Đo số lần gọi và độ trễ của một thao tác:
+ *
+ *   return METRICS.time("book.findBookByIsbn", () -> ...);
+ *
+ * Bộ đếm là LongAdder nên nhiều luồng ghi cùng lúc không tranh chấp một biến.
+ * Khi tắt bằng -Dlibrary.metrics.enabled=false thì start/stop không làm gì (JIT bỏ hẳn nhánh ghi).
+ */
+public final class Timer {
+    public static final String ENABLED_PROPERTY = "library.metrics.enabled";
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public void stop(long start) {
+        if (ENABLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Chạy và đo một khối lệnh, ngoại lệ của khối lệnh được ném tiếp nguyên vẹn
+     */
+    public <T, E1 extends Exception, E2 extends Exception, E3 extends Exception> T time(Call<T, E1, E2, E3> call)
+            throws E1, E2, E3 {
+        if (!ENABLED) {
+            return call.call();
+        }
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public <E1 extends Exception, E2 extends Exception, E3 extends Exception> void run(Action<E1, E2, E3> action)
+            throws E1, E2, E3 {
+        if (!ENABLED) {
+            action.run();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        if (!ENABLED) {
+            return;
+        }
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.record(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanNanos() {
+        long calls = getCount();
+        return calls == 0 ? 0 : getTotalNanos() / (double) calls;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /*
+     * Phân vị (vd. 0.99) theo histogram, không vượt quá giá trị lớn nhất đã ghi
+     */
+    public long getPercentileNanos(double quantile) {
+        return Math.min(histogram.valueAt(quantile), getMaxNanos());
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        histogram.reset();
+    }
+
+    /*
+     * Khối lệnh cho time/run, ném tối đa ba loại ngoại lệ kiểm tra. Java chỉ tự suy ra E1..E3 khi khối lệnh ném
+     * không quá một loại; ném nhiều loại thì ghi rõ ở lời gọi, loại còn thiếu là RuntimeException:
+     *
+     *   METRICS.<MemberNotFoundException, InvalidOperationException, RuntimeException>run("member.x", () -> ...);
+     */
+    @FunctionalInterface
+    public interface Call<T, E1 extends Exception, E2 extends Exception, E3 extends Exception> {
+        T call() throws E1, E2, E3;
+    }
+
+    @FunctionalInterface
+    public interface Action<E1 extends Exception, E2 extends Exception, E3 extends Exception> {
+        void run() throws E1, E2, E3;
+    }
+}
@@ -1,25 +1,50 @@
 package com.library.model;
 
+import com.library.util.Isbn;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
-
 public class Member implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final long[] NO_BOOKS = new long[0];
+    private static final String[] NO_LEGACY_BOOKS = new String[0];
+
+    /*
+     * Giữ nguyên dạng tuần tự hóa cũ (borrowedBookIsbns là List<String>) để đọc được file .ser đã có
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("memberId", String.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("email", String.class),
+            new ObjectStreamField("phone", String.class),
+            new ObjectStreamField("registrationDate", LocalDate.class),
+            new ObjectStreamField("borrowedBookIsbns", List.class),
+            new ObjectStreamField("isActive", boolean.class)
+    };
 
     private String memberId;
     private String name;
     private String email;
     private String phone;
     private LocalDate registrationDate;
-    private List<String> borrowedBookIsbns;
+    // Khóa ISBN (Isbn.parse) của sách đang mượn; mảng chép-khi-ghi, không bao giờ bị sửa sau khi gán
+    private volatile long[] borrowedBooks;
+    // ISBN cũ sai chữ số kiểm tra không có khóa chung nên giữ nguyên chuỗi; hầu như luôn rỗng
+    private volatile String[] legacyBooks;
     private boolean isActive;
 
     public Member() {
-        this.borrowedBookIsbns = new ArrayList<>();
+        this.borrowedBooks = NO_BOOKS;
+        this.legacyBooks = NO_LEGACY_BOOKS;
         this.registrationDate = LocalDate.now();
         this.isActive = true;
     }
@@ -29,7 +54,8 @@ public class Member implements Serializable {
         this.name = name;
         this.email = email;
         this.phone = phone;
-        this.borrowedBookIsbns = new ArrayList<>();
+        this.borrowedBooks = NO_BOOKS;
+        this.legacyBooks = NO_LEGACY_BOOKS;
         this.registrationDate = LocalDate.now();
         this.isActive = true;
     }
@@ -75,11 +101,31 @@ public class Member implements Serializable {
     }
 
     public List<String> getBorrowedBookIsbns() {
-        return new ArrayList<>(borrowedBookIsbns);
+        long[] books = borrowedBooks;
+        String[] legacy = legacyBooks;
+        List<String> isbns = new ArrayList<>(books.length + legacy.length);
+        for (long book : books) {
+            isbns.add(Isbn.fromKey(book));
+        }
+        isbns.addAll(Arrays.asList(legacy));
+        return isbns;
     }
 
     public void setBorrowedBookIsbns(List<String> borrowedBookIsbns) {
-        this.borrowedBookIsbns = new ArrayList<>(borrowedBookIsbns);
+        long[] books = NO_BOOKS;
+        String[] legacy = NO_LEGACY_BOOKS;
+        for (String isbn : borrowedBookIsbns) {
+            long key = Isbn.parse(isbn);
+            if (key != Isbn.INVALID) {
+                if (indexOf(books, key) < 0) {
+                    books = appended(books, key);
+                }
+            } else if (isbn != null && indexOf(legacy, isbn) < 0) {
+                legacy = appended(legacy, isbn);
+            }
+        }
+        this.borrowedBooks = books;
+        this.legacyBooks = legacy;
     }
 
     public boolean isActive() {
@@ -91,21 +137,93 @@ public class Member implements Serializable {
     }
 
     public void borrowBook(String isbn) {
-        if (!borrowedBookIsbns.contains(isbn)) {
-            borrowedBookIsbns.add(isbn);
+        long key = Isbn.parse(isbn);
+        if (key != Isbn.INVALID) {
+            borrowBook(key);
+            return;
+        }
+        String[] legacy = legacyBooks;
+        if (isbn != null && indexOf(legacy, isbn) < 0) {
+            legacyBooks = appended(legacy, isbn);
+        }
+    }
+
+    public void borrowBook(long isbnKey) {
+        long[] books = borrowedBooks;
+        if (isbnKey != Isbn.INVALID && indexOf(books, isbnKey) < 0) {
+            borrowedBooks = appended(books, isbnKey);
         }
     }
 
     public void returnBook(String isbn) {
-        borrowedBookIsbns.remove(isbn);
+        long key = Isbn.parse(isbn);
+        if (key != Isbn.INVALID) {
+            returnBook(key);
+            return;
+        }
+        String[] legacy = legacyBooks;
+        int index = indexOf(legacy, isbn);
+        if (index >= 0) {
+            String[] remaining = new String[legacy.length - 1];
+            System.arraycopy(legacy, 0, remaining, 0, index);
+            System.arraycopy(legacy, index + 1, remaining, index, remaining.length - index);
+            legacyBooks = remaining;
+        }
+    }
+
+    public void returnBook(long isbnKey) {
+        long[] books = borrowedBooks;
+        int index = indexOf(books, isbnKey);
+        if (index < 0) {
+            return;
+        }
+        long[] remaining = new long[books.length - 1];
+        System.arraycopy(books, 0, remaining, 0, index);
+        System.arraycopy(books, index + 1, remaining, index, remaining.length - index);
+        borrowedBooks = remaining;
     }
 
     public int getBorrowedBookCount() {
-        return borrowedBookIsbns.size();
+        return borrowedBooks.length + legacyBooks.length;
     }
 
     public boolean hasBorrowedBook(String isbn) {
-        return borrowedBookIsbns.contains(isbn);
+        long key = Isbn.parse(isbn);
+        return key != Isbn.INVALID ? hasBorrowedBook(key) : indexOf(legacyBooks, isbn) >= 0;
+    }
+
+    public boolean hasBorrowedBook(long isbnKey) {
+        return isbnKey != Isbn.INVALID && indexOf(borrowedBooks, isbnKey) >= 0;
+    }
+
+    private static int indexOf(long[] books, long isbnKey) {
+        for (int i = 0; i < books.length; i++) {
+            if (books[i] == isbnKey) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(String[] books, String isbn) {
+        for (int i = 0; i < books.length; i++) {
+            if (books[i].equals(isbn)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] appended(long[] books, long isbnKey) {
+        long[] grown = Arrays.copyOf(books, books.length + 1);
+        grown[books.length] = isbnKey;
+        return grown;
+    }
+
+    private static String[] appended(String[] books, String isbn) {
+        String[] grown = Arrays.copyOf(books, books.length + 1);
+        grown[books.length] = isbn;
+        return grown;
     }
 
     @Override
@@ -124,6 +242,35 @@ public class Member implements Serializable {
     @Override
     public String toString() {
         return String.format("Thành viên[ID=%s, Tên='%s', Email='%s', Sách đã mượn=%d, Trạng thái=%s]",
-                memberId, name, email, borrowedBookIsbns.size(), isActive);
+                memberId, name, email, getBorrowedBookCount(), isActive);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("memberId", memberId);
+        fields.put("name", name);
+        fields.put("email", email);
+        fields.put("phone", phone);
+        fields.put("registrationDate", registrationDate);
+        fields.put("borrowedBookIsbns", getBorrowedBookIsbns());
+        fields.put("isActive", isActive);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        memberId = (String) fields.get("memberId", null);
+        name = (String) fields.get("name", null);
+        email = (String) fields.get("email", null);
+        phone = (String) fields.get("phone", null);
+        registrationDate = (LocalDate) fields.get("registrationDate", null);
+        List<String> isbns = (List<String>) fields.get("borrowedBookIsbns", null);
+        borrowedBooks = NO_BOOKS;
+        legacyBooks = NO_LEGACY_BOOKS;
+        if (isbns != null) {
+            setBorrowedBookIsbns(isbns);
+        }
+        isActive = fields.get("isActive", true);
     }
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package com.library.model;
 
+import com.library.util.Isbn;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
@@ -10,14 +17,54 @@ public class Transaction implements Serializable {
     private static final int BORROW_PERIOD_DAYS = 14;
     private static final double LATE_FEE_PER_DAY = 1.0;
 
+    /*
+     * Giữ nguyên dạng tuần tự hóa cũ (bookIsbn là String) để đọc được file .ser đã có
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("transactionId", String.class),
+            new ObjectStreamField("memberId", String.class),
+            new ObjectStreamField("bookIsbn", String.class),
+            new ObjectStreamField("borrowDate", LocalDateTime.class),
+            new ObjectStreamField("dueDate", LocalDateTime.class),
+            new ObjectStreamField("returnDate", LocalDateTime.class),
+            new ObjectStreamField("type", TransactionType.class),
+            new ObjectStreamField("lateFee", double.class)
+    };
+
+    // Giá trị của các thời điểm khi chưa được đặt, và của các độ lệch khi chưa có hạn trả/ngày trả
+    public static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    // Độ lệch/phí không vừa int (khoảng ±68 năm quanh mốc, dữ liệu cũ bất thường): giá trị thật nằm trong Extra
+    private static final int WIDE_OFFSET = Integer.MIN_VALUE + 1;
+    private static final int WIDE_FEE = Integer.MIN_VALUE;
+    private static final int BORROW_PERIOD_SECONDS = BORROW_PERIOD_DAYS * 24 * 60 * 60;
+    private static final int LATE_FEE_CENTS_PER_DAY = (int) Math.round(LATE_FEE_PER_DAY * 100);
+
+    /*
+     * Bố cục gọn (bảng trường và số byte đo được: benchmark TransactionFootprint), thay cho 3 LocalDateTime
+     * ~72 byte mỗi cái: thời điểm là số giây epoch UTC (phần lẻ dưới giây bị bỏ), hạn trả và ngày trả
+     * lưu là độ lệch giây so với một mốc (hạn trả mặc định là ngày mượn + BORROW_PERIOD_DAYS),
+     * phí trễ hạn tính bằng cent, còn loại giao dịch suy ra từ việc đã có ngày trả hay chưa.
+     * Mốc là ngày mượn nếu có, không thì là hạn trả/ngày trả được đặt trước; các setter vẫn giữ nghĩa
+     * thời điểm tuyệt đối như trước (đổi ngày mượn không làm dịch hạn trả/ngày trả).
+     * Giá trị không vừa bố cục gọn được giữ nguyên vẹn trong Extra thay vì bị cắt hay làm hỏng lần nạp.
+     * Các getter LocalDateTime/double vẫn giữ nguyên nhưng tạo đối tượng mới mỗi lần gọi, nên code nóng
+     * dùng các accessor nguyên thủy (getBorrowEpochSecond, isReturned, getLateFeeCents, ...).
+     */
     private String transactionId;
+    // TransactionService và phát lại nhật ký dùng chuỗi của Member để các giao dịch không giữ bản sao riêng
     private String memberId;
-    private String bookIsbn;
-    private LocalDateTime borrowDate;
-    private LocalDateTime dueDate;
-    private LocalDateTime returnDate;
-    private TransactionType type;
-    private double lateFee;
+    // ISBN-13 dạng long (Isbn.parse), chỉ đổi ra chuỗi khi cần hiển thị
+    private long bookIsbnKey = Isbn.INVALID;
+    // Dữ liệu hiếm gặp (ISBN cũ, giá trị không vừa int), null ở gần như mọi giao dịch
+    private Extra extra;
+    // Mốc của các độ lệch; là ngày mượn khi hasBorrowDate
+    private long baseSecond = NO_TIME;
+    private int dueOffset = NO_OFFSET;
+    private int returnOffset = NO_OFFSET;
+    private int lateFeeCents;
+    // Nằm trong phần căn lề còn trống nên không làm đối tượng lớn thêm
+    private boolean hasBorrowDate;
 
     public enum TransactionType {
         BORROW, RETURN
@@ -29,11 +76,10 @@ public class Transaction implements Serializable {
     public Transaction(String transactionId, String memberId, String bookIsbn) {
         this.transactionId = transactionId;
         this.memberId = memberId;
-        this.bookIsbn = bookIsbn;
-        this.borrowDate = LocalDateTime.now();
-        this.dueDate = borrowDate.plusDays(BORROW_PERIOD_DAYS);
-        this.type = TransactionType.BORROW;
-        this.lateFee = 0.0;
+        assignBookIsbn(bookIsbn);
+        this.baseSecond = toSecond(LocalDateTime.now());
+        this.hasBorrowDate = true;
+        this.dueOffset = BORROW_PERIOD_SECONDS;
     }
 
     public String getTransactionId() {
@@ -53,65 +99,133 @@ public class Transaction implements Serializable {
     }
 
     public String getBookIsbn() {
-        return bookIsbn;
+        if (extra != null && extra.legacyBookIsbn != null) {
+            return extra.legacyBookIsbn;
+        }
+        return Isbn.fromKey(bookIsbnKey);
+    }
+
+    public long getBookIsbnKey() {
+        return bookIsbnKey;
     }
 
     public void setBookIsbn(String bookIsbn) {
-        this.bookIsbn = bookIsbn;
+        assignBookIsbn(bookIsbn);
+    }
+
+    public void setBookIsbnKey(long bookIsbnKey) {
+        this.bookIsbnKey = bookIsbnKey;
+        if (extra != null) {
+            extra.legacyBookIsbn = null;
+        }
     }
 
     public LocalDateTime getBorrowDate() {
-        return borrowDate;
+        return toDateTime(getBorrowEpochSecond());
     }
 
+    /*
+     * Ngày mượn thành mốc mới, hạn trả/ngày trả đã đặt được tính lại theo mốc đó nên giữ nguyên thời điểm;
+     * bỏ ngày mượn (null) thì giữ mốc cũ
+     */
     public void setBorrowDate(LocalDateTime borrowDate) {
-        this.borrowDate = borrowDate;
+        if (borrowDate == null) {
+            hasBorrowDate = false;
+            return;
+        }
+        long dueSecond = getDueEpochSecond();
+        long returnSecond = getReturnEpochSecond();
+        baseSecond = toSecond(borrowDate);
+        hasBorrowDate = true;
+        storeDue(dueSecond);
+        storeReturn(returnSecond);
     }
 
     public LocalDateTime getDueDate() {
-        return dueDate;
+        return toDateTime(getDueEpochSecond());
     }
 
     public void setDueDate(LocalDateTime dueDate) {
-        this.dueDate = dueDate;
+        storeDue(anchor(toSecond(dueDate)));
     }
 
     public LocalDateTime getReturnDate() {
-        return returnDate;
+        return toDateTime(getReturnEpochSecond());
     }
 
     public void setReturnDate(LocalDateTime returnDate) {
-        this.returnDate = returnDate;
+        storeReturn(anchor(toSecond(returnDate)));
+    }
+
+    public long getBorrowEpochSecond() {
+        return hasBorrowDate ? baseSecond : NO_TIME;
+    }
+
+    public long getDueEpochSecond() {
+        if (dueOffset == NO_OFFSET) {
+            return NO_TIME;
+        }
+        return dueOffset == WIDE_OFFSET ? extra.dueSecond : baseSecond + dueOffset;
+    }
+
+    public long getReturnEpochSecond() {
+        if (returnOffset == NO_OFFSET) {
+            return NO_TIME;
+        }
+        return returnOffset == WIDE_OFFSET ? extra.returnSecond : baseSecond + returnOffset;
+    }
+
+    public boolean isReturned() {
+        return returnOffset != NO_OFFSET;
     }
 
     public TransactionType getType() {
-        return type;
+        return isReturned() ? TransactionType.RETURN : TransactionType.BORROW;
     }
 
+    /*
+     * Loại giao dịch suy ra từ ngày trả (getType), giữ setter để code cũ vẫn biên dịch được
+     */
+    @Deprecated
     public void setType(TransactionType type) {
-        this.type = type;
     }
 
     public double getLateFee() {
-        return lateFee;
+        return getLateFeeCents() / 100.0;
     }
 
+    /*
+     * Phí không biểu diễn được bằng cent kiểu long (NaN, vô cực, quá lớn) bị từ chối
+     */
     public void setLateFee(double lateFee) {
-        this.lateFee = lateFee;
+        double cents = Math.rint(lateFee * 100);
+        if (Double.isNaN(cents) || cents >= 0x1p63 || cents < -0x1p63) {
+            throw new IllegalArgumentException("Phí trễ hạn không hợp lệ: " + lateFee);
+        }
+        storeLateFee((long) cents);
+    }
+
+    public long getLateFeeCents() {
+        return lateFeeCents == WIDE_FEE ? extra.lateFeeCents : lateFeeCents;
     }
 
     public boolean isOverdue() {
-        if (returnDate != null) {
+        return isOverdue(LocalDateTime.now());
+    }
+
+    public boolean isOverdue(LocalDateTime now) {
+        if (isReturned()) {
             return false;
         }
-        return LocalDateTime.now().isAfter(dueDate);
+        return toSecond(now) > getDueEpochSecond();
     }
 
     public long getDaysOverdue() {
-        if (!isOverdue()) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!isOverdue(now)) {
             return 0;
         }
-        return ChronoUnit.DAYS.between(dueDate, LocalDateTime.now());
+        return ChronoUnit.DAYS.between(getDueDate(), now);
     }
 
     public double calculateLateFee() {
@@ -120,9 +234,9 @@ public class Transaction implements Serializable {
     }
 
     public void completeReturn() {
-        this.returnDate = LocalDateTime.now();
-        this.type = TransactionType.RETURN;
-        this.lateFee = calculateLateFee();
+        long daysOverdue = getDaysOverdue();
+        setReturnDate(LocalDateTime.now());
+        storeLateFee(daysOverdue * LATE_FEE_CENTS_PER_DAY);
     }
 
     @Override
@@ -141,6 +255,111 @@ public class Transaction implements Serializable {
     @Override
     public String toString() {
         return String.format("Giao dịch[ID=%s, Thành viên=%s, Sách=%s, Loại giao dịch=%s, Ngày mượn=%s, Ngày trả sách đã định=%s, Ngày trả sách thực tế=%s, Phí trả muộn=%.2f]",
-                transactionId, memberId, bookIsbn, type, borrowDate, dueDate, returnDate, lateFee);
+                transactionId, memberId, getBookIsbn(), getType(), getBorrowDate(), getDueDate(), getReturnDate(),
+                getLateFee());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("transactionId", transactionId);
+        fields.put("memberId", memberId);
+        fields.put("bookIsbn", getBookIsbn());
+        fields.put("borrowDate", getBorrowDate());
+        fields.put("dueDate", getDueDate());
+        fields.put("returnDate", getReturnDate());
+        fields.put("type", getType());
+        fields.put("lateFee", getLateFee());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        transactionId = (String) fields.get("transactionId", null);
+        memberId = (String) fields.get("memberId", null);
+        assignBookIsbn((String) fields.get("bookIsbn", null));
+        baseSecond = NO_TIME;
+        hasBorrowDate = false;
+        dueOffset = NO_OFFSET;
+        returnOffset = NO_OFFSET;
+        // File cũ thiếu ngày mượn vẫn giữ hạn trả/ngày trả (và trạng thái đã trả)
+        setBorrowDate((LocalDateTime) fields.get("borrowDate", null));
+        setDueDate((LocalDateTime) fields.get("dueDate", null));
+        setReturnDate((LocalDateTime) fields.get("returnDate", null));
+        setLateFee(fields.get("lateFee", 0.0));
+    }
+
+    private void assignBookIsbn(String bookIsbn) {
+        this.bookIsbnKey = Isbn.parse(bookIsbn);
+        if (bookIsbnKey == Isbn.INVALID && bookIsbn != null) {
+            extra().legacyBookIsbn = bookIsbn;
+        } else if (extra != null) {
+            extra.legacyBookIsbn = null;
+        }
+    }
+
+    private Extra extra() {
+        if (extra == null) {
+            extra = new Extra();
+        }
+        return extra;
+    }
+
+    /*
+     * Chưa có mốc (chưa đặt thời điểm nào) thì thời điểm đầu tiên được đặt làm mốc
+     */
+    private long anchor(long second) {
+        if (second != NO_TIME && baseSecond == NO_TIME) {
+            baseSecond = second;
+        }
+        return second;
+    }
+
+    private void storeDue(long second) {
+        dueOffset = offsetOf(second);
+        if (dueOffset == WIDE_OFFSET) {
+            extra().dueSecond = second;
+        }
+    }
+
+    private void storeReturn(long second) {
+        returnOffset = offsetOf(second);
+        if (returnOffset == WIDE_OFFSET) {
+            extra().returnSecond = second;
+        }
+    }
+
+    private int offsetOf(long second) {
+        if (second == NO_TIME) {
+            return NO_OFFSET;
+        }
+        long offset = second - baseSecond;
+        return offset > WIDE_OFFSET && offset <= Integer.MAX_VALUE ? (int) offset : WIDE_OFFSET;
+    }
+
+    private void storeLateFee(long cents) {
+        if (cents > WIDE_FEE && cents <= Integer.MAX_VALUE) {
+            lateFeeCents = (int) cents;
+        } else {
+            lateFeeCents = WIDE_FEE;
+            extra().lateFeeCents = cents;
+        }
+    }
+
+    private static long toSecond(LocalDateTime dateTime) {
+        return dateTime == null ? NO_TIME : dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long second) {
+        return second == NO_TIME ? null : LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    /*
+     * Phần tách riêng khỏi bố cục gọn; chỉ được tạo khi cần
+     */
+    private static final class Extra {
+        private String legacyBookIsbn;
+        private long dueSecond = NO_TIME;
+        private long returnSecond = NO_TIME;
+        private long lateFeeCents;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package com.library.persistence;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Bộ đọc tương ứng với BinaryOutput
+ */
+public class BinaryInput implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private final CRC32 crc;
+    private final List<String> dictionary;
+    private int position;
+    private int limit;
+    private int crcMark;
+
+    public BinaryInput(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    public BinaryInput(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.crc = new CRC32();
+        this.dictionary = new ArrayList<>();
+    }
+
+    public int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public int readInt() throws IOException {
+        require(4);
+        int value = ((buffer[position] & 0xFF) << 24)
+                | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8)
+                | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    public long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint không hợp lệ");
+    }
+
+    public int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    public long readSignedVarLong() throws IOException {
+        return unzigzag(readVarLong());
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Độ dài chuỗi không hợp lệ: " + length);
+        }
+        return readUtf8(length - 1);
+    }
+
+    public String readSharedString() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag == 1) {
+            String value = readString();
+            dictionary.add(value);
+            return value;
+        }
+        int id = tag - 2;
+        if (id >= dictionary.size()) {
+            throw new IOException("Tham chiếu từ điển không hợp lệ: " + id);
+        }
+        return dictionary.get(id);
+    }
+
+    public LocalDate readDate() throws IOException {
+        long value = readVarLong();
+        return value == 0 ? null : LocalDate.ofEpochDay(unzigzag(value - 1));
+    }
+
+    public LocalDateTime readDateTime() throws IOException {
+        long epochSecond = readSignedVarLong();
+        int nano = readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    public LocalDateTime readDateTimeDelta(LocalDateTime base) throws IOException {
+        long epochSecond = base.toEpochSecond(ZoneOffset.UTC) + readSignedVarLong();
+        int nano = readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    /*
+     * CRC32 của mọi byte đã đọc tới thời điểm này
+     */
+    public long checksum() {
+        crc.update(buffer, crcMark, position - crcMark);
+        crcMark = position;
+        return crc.getValue();
+    }
+
+    /*
+     * true nếu đã đọc hết dữ liệu
+     */
+    public boolean isAtEnd() throws IOException {
+        return position == limit && !fill(1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readUtf8(int length) throws IOException {
+        if (length <= buffer.length) {
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            require(1);
+            int chunk = Math.min(length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void require(int bytes) throws IOException {
+        if (limit - position < bytes && !fill(bytes)) {
+            throw new EOFException("Dữ liệu bị cắt cụt");
+        }
+    }
+
+    /*
+     * Dồn phần chưa đọc về đầu buffer và đọc thêm cho tới khi có đủ số byte yêu cầu
+     */
+    private boolean fill(int bytes) throws IOException {
+        crc.update(buffer, crcMark, position - crcMark);
+        int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        crcMark = 0;
+        while (limit < bytes) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
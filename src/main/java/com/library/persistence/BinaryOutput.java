@@ -0,0 +1,203 @@
+package com.library.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * Bộ ghi nhị phân có buffer riêng: varint, chuỗi UTF-8, từ điển chuỗi lặp lại và ngày tháng dạng số.
+ * Tính CRC32 của mọi byte đã ghi để kiểm tra toàn vẹn khi đọc.
+ */
+public class BinaryOutput implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final CRC32 crc;
+    private final Map<String, Integer> dictionary;
+    private int position;
+    private long bytesWritten;
+
+    public BinaryOutput(OutputStream out) {
+        this(out, BUFFER_SIZE);
+    }
+
+    public BinaryOutput(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+        this.crc = new CRC32();
+        this.dictionary = new HashMap<>();
+    }
+
+    public void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /*
+     * Varint không dấu (LEB128): 7 bit mỗi byte
+     */
+    public void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /*
+     * Varint có dấu, mã hóa zigzag để số âm nhỏ vẫn ngắn
+     */
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong(zigzag(value));
+    }
+
+    /*
+     * Chuỗi không lặp lại (tiêu đề, email, ID...): 0 = null, ngược lại độ dài + 1 rồi tới UTF-8
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    /*
+     * Chuỗi hay lặp lại (tác giả, ISBN, memberId trong giao dịch): lần đầu ghi nguyên văn và
+     * được cấp số thứ tự, các lần sau chỉ ghi số thứ tự.
+     * 0 = null, 1 = chuỗi mới theo sau, n >= 2 = tham chiếu tới chuỗi thứ n - 2
+     */
+    public void writeSharedString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            writeVarInt(id + 2);
+            return;
+        }
+        dictionary.put(value, dictionary.size());
+        writeVarInt(1);
+        writeString(value);
+    }
+
+    public void writeDate(LocalDate date) throws IOException {
+        if (date == null) {
+            writeVarLong(0);
+        } else {
+            writeVarLong(zigzag(date.toEpochDay()) + 1);
+        }
+    }
+
+    public void writeDateTime(LocalDateTime dateTime) throws IOException {
+        writeSignedVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(dateTime.getNano());
+    }
+
+    /*
+     * Thời điểm lưu dưới dạng độ lệch (giây, nano) so với một mốc, vd. hạn trả so với ngày mượn
+     */
+    public void writeDateTimeDelta(LocalDateTime base, LocalDateTime dateTime) throws IOException {
+        writeSignedVarLong(dateTime.toEpochSecond(ZoneOffset.UTC) - base.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(dateTime.getNano());
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int chunk = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+    }
+
+    /*
+     * CRC32 của mọi byte đã ghi tới thời điểm này
+     */
+    public long checksum() throws IOException {
+        flushBuffer();
+        return crc.getValue();
+    }
+
+    /*
+     * Bắt đầu tính CRC lại từ đầu cho phần dữ liệu tiếp theo
+     */
+    public void resetChecksum() throws IOException {
+        flushBuffer();
+        crc.reset();
+    }
+
+    public long bytesWritten() {
+        return bytesWritten + position;
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            crc.update(buffer, 0, position);
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
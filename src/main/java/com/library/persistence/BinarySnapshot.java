@@ -0,0 +1,415 @@
+package com.library.persistence;
+
+import com.library.model.Book;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Định dạng snapshot nhị phân có phiên bản cho toàn bộ dữ liệu thư viện.
+ *
+ * Bố cục:
+ *   int     MAGIC ("LIBS")
+ *   varint  VERSION
+ *   varlong LSN của bản ghi WAL cuối cùng đã nằm trong snapshot (từ phiên bản 2)
+ *   varlong, varlong giá trị cuối cùng của dãy mã thành viên và mã giao dịch (từ phiên bản 4)
+ *   sách, thành viên, giao dịch: mỗi bản ghi bắt đầu bằng byte 1, hết phần thì byte 0
+ *     (từ phiên bản 3 phần giao dịch chỉ gồm giao dịch chưa trả)
+ *   long    CRC32 của toàn bộ byte phía trước
+ *   vùng lưu trữ giao dịch đã trả + footer, đọc ngẫu nhiên được (phiên bản 3, xem MappedTransactionArchive)
+ *
+ * Thế hệ: mỗi lần ghi tạo một file mới `file.<thế hệ>` (file `file` không có hậu tố của các bản cũ
+ * là thế hệ 0), đọc luôn lấy thế hệ lớn nhất, rồi các thế hệ cũ mới bị xóa. Không bao giờ đổi tên đè
+ * lên một snapshot đang có: phần giao dịch đã trả của snapshot được mở lười nằm trong vùng ánh xạ bộ nhớ
+ * suốt thời gian chạy, và trên Windows không thể thay thế hay xóa một file đang được ánh xạ
+ * (AccessDeniedException). Ở đó thế hệ cũ bị giữ lại và được xóa ở lần ghi sau khi không còn ánh xạ.
+ *
+ * Ghi và đọc theo dòng trực tiếp từ/vào repository, không dựng đồ thị đối tượng trung gian.
+ * Ngày lưu bằng epoch-day, thời điểm bằng epoch-second + nano; hạn trả và ngày trả lưu độ lệch
+ * so với ngày mượn; tác giả, ISBN và memberId trong giao dịch dùng từ điển chuỗi.
+ */
+public final class BinarySnapshot {
+    public static final int MAGIC = 0x4C494253;
+    public static final int VERSION = 4;
+    private static final int VERSION_WITHOUT_LSN = 1;
+    private static final int VERSION_WITHOUT_ARCHIVE = 2;
+    private static final int VERSION_WITHOUT_ID_SEQUENCES = 3;
+
+    private static final int RECORD = 1;
+    private static final int END_OF_SECTION = 0;
+
+    static final int HAS_BORROW_DATE = 1;
+    static final int HAS_DUE_DATE = 1 << 1;
+    static final int HAS_RETURN_DATE = 1 << 2;
+    static final int HAS_LATE_FEE = 1 << 3;
+    static final int TYPE_SHIFT = 4;
+
+    private BinarySnapshot() {
+    }
+
+    /*
+     * Ghi thế hệ mới ra file tạm rồi đổi tên, để thế hệ cũ vẫn nguyên vẹn nếu quá trình ghi bị gián đoạn.
+     * Khi hàm trả về, snapshot đã bền trên đĩa (fsync file tạm trước khi đổi tên, rồi fsync thư mục),
+     * nên SnapshotCompactor có thể xóa ngay các phân đoạn WAL đã gộp.
+     */
+    public static void write(Path file, BookRepository bookRepository, MemberRepository memberRepository,
+                             TransactionRepository transactionRepository) throws IOException {
+        write(file, 0, bookRepository, memberRepository, transactionRepository);
+    }
+
+    public static void write(Path file, long lsn, BookRepository bookRepository, MemberRepository memberRepository,
+                             TransactionRepository transactionRepository) throws IOException {
+        List<Path> previous = generations(file);
+        long generation = previous.isEmpty() ? 1 : generationOf(file, previous.get(previous.size() - 1)) + 1;
+        Path target = generationFile(file, generation);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             BinaryOutput out = new BinaryOutput(Channels.newOutputStream(channel))) {
+            write(out, lsn, bookRepository, memberRepository, transactionRepository);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target);
+        for (Path old : previous) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                // Còn được ánh xạ (Windows): giữ lại, lần ghi sau xóa tiếp
+            }
+        }
+    }
+
+    /*
+     * Thế hệ mới nhất của snapshot, hoặc null nếu chưa có
+     */
+    public static Path current(Path file) throws IOException {
+        List<Path> generations = generations(file);
+        return generations.isEmpty() ? null : generations.get(generations.size() - 1);
+    }
+
+    public static boolean exists(Path file) throws IOException {
+        return current(file) != null;
+    }
+
+    /*
+     * Các thế hệ đang có trên đĩa, theo thứ tự tăng dần (thế hệ mới nhất ở cuối)
+     */
+    public static List<Path> generations(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Path> generations = new ArrayList<>();
+        if (Files.isRegularFile(file)) {
+            generations.add(file);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path candidate : stream) {
+                if (candidate.getFileName().toString().substring(prefix.length()).matches("\\d+")) {
+                    generations.add(file.resolveSibling(candidate.getFileName()));
+                }
+            }
+        }
+        generations.sort(Comparator.comparingLong(generation -> generationOf(file, generation)));
+        return generations;
+    }
+
+    private static Path generationFile(Path file, long generation) {
+        return file.resolveSibling(file.getFileName() + "." + String.format("%06d", generation));
+    }
+
+    private static long generationOf(Path file, Path generation) {
+        String name = generation.getFileName().toString();
+        String base = file.getFileName().toString();
+        return name.equals(base) ? 0 : Long.parseLong(name.substring(base.length() + 1));
+    }
+
+    /*
+     * fsync thư mục chứa file để phép đổi tên vừa làm cũng bền qua crash (POSIX).
+     * Windows không mở được thư mục như một file nên bỏ qua; NTFS tự ghi nhật ký metadata của phép đổi tên.
+     */
+    static void syncDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null || System.getProperty("os.name", "").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static void write(BinaryOutput out, long lsn, BookRepository bookRepository,
+                             MemberRepository memberRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeVarInt(VERSION);
+        out.writeVarLong(lsn);
+        out.writeVarLong(memberRepository.getIdSequence().current());
+        out.writeVarLong(transactionRepository.getIdSequence().current());
+        try {
+            bookRepository.forEach(book -> writeRecord(out, () -> writeBook(out, book)));
+            out.writeByte(END_OF_SECTION);
+            memberRepository.forEach(member -> writeRecord(out, () -> writeMember(out, member)));
+            out.writeByte(END_OF_SECTION);
+            transactionRepository.forEachActive(transaction -> writeRecord(out, () -> writeTransaction(out, transaction)));
+            out.writeByte(END_OF_SECTION);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.writeLong(out.checksum());
+        MappedTransactionArchive.write(out, transactionRepository);
+    }
+
+    /*
+     * Đọc snapshot vào các repository (mới, còn trống), trả về LSN ghi trong snapshot.
+     * Lỗi thì các repository có thể đã chứa một phần dữ liệu, nên người gọi bỏ chúng đi.
+     * Mọi giao dịch được dựng lên heap.
+     */
+    public static long read(Path file, BookRepository bookRepository, MemberRepository memberRepository,
+                            TransactionRepository transactionRepository) throws IOException {
+        return load(file, false, bookRepository, memberRepository, transactionRepository);
+    }
+
+    /*
+     * Như read, nhưng giao dịch đã trả ở lại trong file được ánh xạ bộ nhớ và gắn vào repository
+     * dưới dạng TransactionArchive: thời gian mở chỉ phụ thuộc số sách, thành viên và giao dịch chưa trả.
+     */
+    public static long open(Path file, BookRepository bookRepository, MemberRepository memberRepository,
+                            TransactionRepository transactionRepository) throws IOException {
+        return load(file, true, bookRepository, memberRepository, transactionRepository);
+    }
+
+    /*
+     * Chỉ đọc phần đầu: LSN ghi trong snapshot (0 với phiên bản chưa có LSN)
+     */
+    public static long readLsn(Path file) throws IOException {
+        try (BinaryInput in = new BinaryInput(Files.newInputStream(existing(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File không phải snapshot dữ liệu thư viện");
+            }
+            int version = in.readVarInt();
+            if (version < VERSION_WITHOUT_LSN || version > VERSION) {
+                throw new IOException("Phiên bản snapshot không được hỗ trợ: " + version);
+            }
+            return version == VERSION_WITHOUT_LSN ? 0 : in.readVarLong();
+        }
+    }
+
+    private static Path existing(Path file) throws IOException {
+        Path current = current(file);
+        if (current == null) {
+            throw new NoSuchFileException(file.toString());
+        }
+        return current;
+    }
+
+    private static long load(Path file, boolean lazy, BookRepository bookRepository,
+                             MemberRepository memberRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(existing(file), StandardOpenOption.READ)) {
+            BinaryInput in = new BinaryInput(Channels.newInputStream(channel));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File không phải snapshot dữ liệu thư viện");
+            }
+            int version = in.readVarInt();
+            if (version < VERSION_WITHOUT_LSN || version > VERSION) {
+                throw new IOException("Phiên bản snapshot không được hỗ trợ: " + version);
+            }
+            long lsn = version == VERSION_WITHOUT_LSN ? 0 : in.readVarLong();
+            if (version >= VERSION) {
+                memberRepository.getIdSequence().advanceTo(in.readVarLong());
+                transactionRepository.getIdSequence().advanceTo(in.readVarLong());
+            }
+
+            while (in.readByte() == RECORD) {
+                bookRepository.save(readBook(in));
+            }
+            while (in.readByte() == RECORD) {
+                memberRepository.save(readMember(in));
+            }
+            List<Transaction> transactions = new ArrayList<>();
+            while (in.readByte() == RECORD) {
+                transactions.add(readTransaction(in));
+            }
+
+            long expected = in.checksum();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot bị hỏng (sai CRC)");
+            }
+
+            if (version >= VERSION_WITHOUT_ID_SEQUENCES) {
+                // Giao dịch đã trả (cũ hơn) vào trước, giao dịch chưa trả sau
+                MappedTransactionArchive archive = MappedTransactionArchive.map(channel, !lazy);
+                if (lazy) {
+                    transactionRepository.attachArchive(archive);
+                    if (version == VERSION_WITHOUT_ID_SEQUENCES) {
+                        // Snapshot cũ chưa lưu dãy mã: quét mã trong kho một lần
+                        archive.forEach(transaction ->
+                                transactionRepository.getIdSequence().observe(transaction.getTransactionId()));
+                    }
+                } else {
+                    archive.forEach(transactionRepository::save);
+                }
+            }
+            transactions.forEach(transactionRepository::save);
+            return lsn;
+        }
+    }
+
+    public static void writeBook(BinaryOutput out, Book book) throws IOException {
+        out.writeString(book.getIsbn());
+        out.writeString(book.getTitle());
+        out.writeSharedString(book.getAuthor());
+        out.writeSignedVarLong(book.getPublicationYear());
+        out.writeByte(book.getStatus() == null ? 0 : book.getStatus().ordinal() + 1);
+        out.writeDate(book.getAddedDate());
+    }
+
+    public static Book readBook(BinaryInput in) throws IOException {
+        Book book = new Book();
+        book.setIsbn(in.readString());
+        book.setTitle(in.readString());
+        book.setAuthor(in.readSharedString());
+        book.setPublicationYear((int) in.readSignedVarLong());
+        int status = in.readByte();
+        book.setStatus(status == 0 ? null : enumValue(BookStatus.values(), status - 1));
+        book.setAddedDate(in.readDate());
+        return book;
+    }
+
+    public static void writeMember(BinaryOutput out, Member member) throws IOException {
+        out.writeString(member.getMemberId());
+        out.writeString(member.getName());
+        out.writeString(member.getEmail());
+        out.writeString(member.getPhone());
+        out.writeDate(member.getRegistrationDate());
+        out.writeByte(member.isActive() ? 1 : 0);
+        List<String> borrowed = member.getBorrowedBookIsbns();
+        out.writeVarInt(borrowed.size());
+        for (String isbn : borrowed) {
+            out.writeSharedString(isbn);
+        }
+    }
+
+    public static Member readMember(BinaryInput in) throws IOException {
+        Member member = new Member();
+        member.setMemberId(in.readString());
+        member.setName(in.readString());
+        member.setEmail(in.readString());
+        member.setPhone(in.readString());
+        member.setRegistrationDate(in.readDate());
+        member.setActive(in.readByte() != 0);
+        int borrowedCount = in.readVarInt();
+        List<String> borrowed = new ArrayList<>(borrowedCount);
+        for (int i = 0; i < borrowedCount; i++) {
+            borrowed.add(in.readSharedString());
+        }
+        member.setBorrowedBookIsbns(borrowed);
+        return member;
+    }
+
+    public static void writeTransaction(BinaryOutput out, Transaction transaction) throws IOException {
+        LocalDateTime borrowDate = transaction.getBorrowDate();
+        int flags = (transaction.getType().ordinal() + 1) << TYPE_SHIFT;
+        if (borrowDate != null) {
+            flags |= HAS_BORROW_DATE;
+        }
+        if (transaction.getDueDate() != null) {
+            flags |= HAS_DUE_DATE;
+        }
+        if (transaction.getReturnDate() != null) {
+            flags |= HAS_RETURN_DATE;
+        }
+        if (transaction.getLateFee() != 0.0) {
+            flags |= HAS_LATE_FEE;
+        }
+
+        out.writeString(transaction.getTransactionId());
+        out.writeSharedString(transaction.getMemberId());
+        out.writeSharedString(transaction.getBookIsbn());
+        out.writeByte(flags);
+        if (borrowDate != null) {
+            out.writeDateTime(borrowDate);
+        }
+        if (transaction.getDueDate() != null) {
+            writeRelative(out, borrowDate, transaction.getDueDate());
+        }
+        if (transaction.getReturnDate() != null) {
+            writeRelative(out, borrowDate, transaction.getReturnDate());
+        }
+        if (transaction.getLateFee() != 0.0) {
+            out.writeDouble(transaction.getLateFee());
+        }
+    }
+
+    public static Transaction readTransaction(BinaryInput in) throws IOException {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(in.readString());
+        transaction.setMemberId(in.readSharedString());
+        transaction.setBookIsbn(in.readSharedString());
+        int flags = in.readByte();
+        LocalDateTime borrowDate = (flags & HAS_BORROW_DATE) != 0 ? in.readDateTime() : null;
+        transaction.setBorrowDate(borrowDate);
+        if ((flags & HAS_DUE_DATE) != 0) {
+            transaction.setDueDate(readRelative(in, borrowDate));
+        }
+        if ((flags & HAS_RETURN_DATE) != 0) {
+            transaction.setReturnDate(readRelative(in, borrowDate));
+        }
+        if ((flags & HAS_LATE_FEE) != 0) {
+            transaction.setLateFee(in.readDouble());
+        }
+        // Loại giao dịch trong flags không cần đọc: Transaction suy ra từ ngày trả
+        return transaction;
+    }
+
+    private static void writeRelative(BinaryOutput out, LocalDateTime base, LocalDateTime dateTime) throws IOException {
+        if (base != null) {
+            out.writeDateTimeDelta(base, dateTime);
+        } else {
+            out.writeDateTime(dateTime);
+        }
+    }
+
+    private static LocalDateTime readRelative(BinaryInput in, LocalDateTime base) throws IOException {
+        return base != null ? in.readDateTimeDelta(base) : in.readDateTime();
+    }
+
+    private static <E extends Enum<E>> E enumValue(E[] values, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Giá trị enum không hợp lệ: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static void writeRecord(BinaryOutput out, IORunnable body) {
+        try {
+            out.writeByte(RECORD);
+            body.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,116 @@
+package com.library.persistence;
+
+import com.library.model.Transaction;
+import com.library.repository.TransactionRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Tầng lạnh của giao dịch: chuyển giao dịch đã trả quá lâu khỏi heap xuống các segment bất biến trên đĩa
+ * (xem TransactionSegment), gắn vào kho của TransactionRepository để truy vấn vẫn thấy chúng.
+ *
+ * Segment chỉ là nơi giảm tải bộ nhớ: dữ liệu bền vẫn là snapshot + nhật ký WAL, nên các segment của
+ * lần chạy trước bị xóa khi khởi động (reset) và được tạo lại từ dữ liệu đã nạp.
+ */
+public class ColdTier implements Closeable {
+    private static final String TIER_DAYS_PROPERTY = "library.tier.days";
+    private static final long DEFAULT_TIER_DAYS = 90;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final List<TransactionSegment> segments = new ArrayList<>();
+    private int nextSegment;
+    private long movedTransactions;
+
+    public ColdTier(Path directory) {
+        this.directory = directory;
+    }
+
+    /*
+     * Số ngày kể từ ngày trả để một giao dịch được chuyển xuống tầng lạnh (-Dlibrary.tier.days),
+     * số âm thì tắt
+     */
+    public static long getTierDays() {
+        return Long.getLong(TIER_DAYS_PROPERTY, DEFAULT_TIER_DAYS);
+    }
+
+    public static boolean isEnabled() {
+        return getTierDays() >= 0;
+    }
+
+    /*
+     * Chuyển giao dịch đã trả trước cutoff xuống một segment mới; trả về số giao dịch đã chuyển
+     */
+    public synchronized int moveReturnedBefore(TransactionRepository transactionRepository, LocalDateTime cutoff)
+            throws IOException {
+        List<Transaction> candidates = transactionRepository.findReturnedBefore(cutoff);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("segment-%06d%s", ++nextSegment, SEGMENT_SUFFIX));
+        TransactionSegment.write(file, candidates);
+        TransactionSegment segment = TransactionSegment.open(file);
+        segments.add(segment);
+        transactionRepository.moveToArchive(candidates, segment);
+        movedTransactions += candidates.size();
+        return candidates.size();
+    }
+
+    /*
+     * Đóng và xóa mọi segment (kể cả của lần chạy trước); chỉ gọi khi repository không còn dùng chúng
+     */
+    public synchronized void reset() throws IOException {
+        closeSegments();
+        segments.clear();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX + "*")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getColdTransactionCount() {
+        long count = 0;
+        for (TransactionSegment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    public synchronized long getMovedTransactions() {
+        return movedTransactions;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSegments();
+    }
+
+    private void closeSegments() throws IOException {
+        IOException failure = null;
+        for (TransactionSegment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package com.library.persistence;
+
+import com.library.model.Transaction;
+import com.library.repository.TransactionArchive;
+import com.library.repository.TransactionRepository;
+import com.library.util.Isbn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/*
+ * Vùng lưu trữ giao dịch đã trả ở cuối snapshot, đọc trực tiếp từ file được ánh xạ bộ nhớ.
+ *
+ * Bố cục vùng (vị trí tính từ đầu vùng):
+ *   bản ghi giao dịch, tăng dần theo ngày mượn; mỗi bản ghi tự đủ (không dùng từ điển chuỗi chung):
+ *     chuỗi ID, varint số hiệu memberId, varint số hiệu ISBN, byte cờ, ngày mượn, độ lệch hạn trả/ngày trả,
+ *     phí trễ hạn
+ *   bảng memberId và bảng ISBN (chuỗi theo số hiệu)
+ *   bảng int: vị trí bản ghi theo thứ tự; memberId -> [đầu, cuối) trong danh sách thứ tự bản ghi;
+ *     tương tự cho ISBN; bảng băm địa chỉ mở ID -> thứ tự bản ghi + 1
+ * Footer cố định ở cuối file chứa vị trí vùng, số lượng, vị trí các bảng, tổng phí trễ hạn và CRC32 của vùng.
+ *
+ * Khi mở chỉ đọc footer và hai bảng chuỗi (cỡ số thành viên/số sách), không phụ thuộc số giao dịch;
+ * bản ghi được giải mã khi truy cập. CRC của vùng chỉ được kiểm tra khi đọc đầy đủ (verify = true).
+ * Vùng phải nhỏ hơn 2GB (giới hạn của một lần ánh xạ).
+ */
+public final class MappedTransactionArchive implements TransactionArchive {
+    private static final int ARCHIVE_MAGIC = 0x4C494241;
+    private static final int FOOTER_SIZE = 80;
+
+    private final ByteBuffer region;
+    private final int count;
+    private final int hashCapacity;
+    private final int orderOffset;
+    private final int memberStartOffset;
+    private final int memberPostingsOffset;
+    private final int isbnStartOffset;
+    private final int isbnPostingsOffset;
+    private final int idHashOffset;
+    private final double totalLateFees;
+    private final String[] members;
+    // Bảng ISBN và khóa (Isbn.parse) của từng mục, tính một lần khi mở; INVALID với ISBN cũ sai chữ số kiểm tra
+    private final String[] isbns;
+    private final long[] isbnKeys;
+    private final Map<String, Integer> memberRefs;
+    private final Map<String, Integer> isbnRefs;
+
+    private MappedTransactionArchive(ByteBuffer region, ByteBuffer footer) {
+        this.region = region;
+        this.count = footer.getInt(8);
+        int memberCount = footer.getInt(12);
+        int isbnCount = footer.getInt(16);
+        this.hashCapacity = footer.getInt(20);
+        int memberTableOffset = footer.getInt(24);
+        int isbnTableOffset = footer.getInt(28);
+        this.orderOffset = footer.getInt(32);
+        this.memberStartOffset = footer.getInt(36);
+        this.memberPostingsOffset = footer.getInt(40);
+        this.isbnStartOffset = footer.getInt(44);
+        this.isbnPostingsOffset = footer.getInt(48);
+        this.idHashOffset = footer.getInt(52);
+        this.totalLateFees = footer.getDouble(60);
+
+        this.members = readTable(memberTableOffset, memberCount);
+        this.isbns = readTable(isbnTableOffset, isbnCount);
+        this.memberRefs = refs(members);
+        // Snapshot cũ lưu ISBN đúng như người dùng nhập: tra cứu theo dạng chuẩn (ISBN cũ theo chuỗi gốc)
+        this.isbnKeys = new long[isbns.length];
+        this.isbnRefs = new HashMap<>(isbns.length * 2);
+        for (int i = 0; i < isbns.length; i++) {
+            isbnKeys[i] = Isbn.parse(isbns[i]);
+            isbnRefs.put(isbnKeys[i] != Isbn.INVALID ? Isbn.toString(isbnKeys[i]) : isbns[i], i);
+        }
+    }
+
+    /*
+     * Ánh xạ vùng lưu trữ ở cuối file snapshot; verify = true thì kiểm tra CRC (phải đọc cả vùng)
+     */
+    public static MappedTransactionArchive map(FileChannel channel, boolean verify) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_SIZE) {
+            throw new IOException("Snapshot thiếu vùng lưu trữ giao dịch");
+        }
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        while (footer.hasRemaining()) {
+            if (channel.read(footer, size - FOOTER_SIZE + footer.position()) < 0) {
+                throw new IOException("Snapshot bị cắt cụt");
+            }
+        }
+        long start = footer.getLong(0);
+        int length = footer.getInt(56);
+        if (footer.getInt(FOOTER_SIZE - 4) != ARCHIVE_MAGIC || start < 0 || length < 0
+                || start + length != size - FOOTER_SIZE) {
+            throw new IOException("Vùng lưu trữ giao dịch không hợp lệ");
+        }
+
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (verify) {
+            CRC32 crc = new CRC32();
+            crc.update(region.duplicate());
+            if (crc.getValue() != footer.getLong(68)) {
+                throw new IOException("Vùng lưu trữ giao dịch bị hỏng (sai CRC)");
+            }
+        }
+        try {
+            return new MappedTransactionArchive(region, footer);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Vùng lưu trữ giao dịch không hợp lệ", e);
+        }
+    }
+
+    /*
+     * Ghi các giao dịch đã trả của repository thành vùng lưu trữ kèm footer, nối vào cuối out
+     */
+    public static void write(BinaryOutput out, TransactionRepository transactionRepository) throws IOException {
+        long start = out.bytesWritten();
+        out.resetChecksum();
+
+        IntList offsets = new IntList();
+        IntList memberOf = new IntList();
+        IntList isbnOf = new IntList();
+        IntList hashes = new IntList();
+        Map<String, Integer> memberRefs = new HashMap<>();
+        Map<String, Integer> isbnRefs = new HashMap<>();
+        double[] totalLateFees = {0.0};
+        try {
+            transactionRepository.forEachReturned(transaction -> {
+                try {
+                    offsets.add(relative(out, start));
+                    memberOf.add(memberRefs.computeIfAbsent(transaction.getMemberId(), k -> memberRefs.size()));
+                    isbnOf.add(isbnRefs.computeIfAbsent(transaction.getBookIsbn(), k -> isbnRefs.size()));
+                    hashes.add(mix(transaction.getTransactionId().hashCode()));
+                    totalLateFees[0] += transaction.getLateFee();
+                    writeRecord(out, transaction, memberOf.last(), isbnOf.last());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        int count = offsets.size();
+
+        int memberTableOffset = relative(out, start);
+        writeTable(out, memberRefs);
+        int isbnTableOffset = relative(out, start);
+        writeTable(out, isbnRefs);
+
+        int orderOffset = relative(out, start);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(offsets.get(i));
+        }
+        int memberStartOffset = relative(out, start);
+        int memberPostingsOffset = writePostings(out, start, memberOf, memberRefs.size());
+        int isbnStartOffset = relative(out, start);
+        int isbnPostingsOffset = writePostings(out, start, isbnOf, isbnRefs.size());
+
+        int idHashOffset = relative(out, start);
+        int capacity = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        int[] table = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            int slot = hashes.get(i) & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = i + 1;
+        }
+        for (int entry : table) {
+            out.writeInt(entry);
+        }
+
+        int length = relative(out, start);
+        long crc = out.checksum();
+        out.writeLong(start);
+        out.writeInt(count);
+        out.writeInt(memberRefs.size());
+        out.writeInt(isbnRefs.size());
+        out.writeInt(capacity);
+        out.writeInt(memberTableOffset);
+        out.writeInt(isbnTableOffset);
+        out.writeInt(orderOffset);
+        out.writeInt(memberStartOffset);
+        out.writeInt(memberPostingsOffset);
+        out.writeInt(isbnStartOffset);
+        out.writeInt(isbnPostingsOffset);
+        out.writeInt(idHashOffset);
+        out.writeInt(length);
+        out.writeDouble(totalLateFees[0]);
+        out.writeLong(crc);
+        out.writeInt(ARCHIVE_MAGIC);
+    }
+
+    @Override
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public boolean contains(String transactionId) {
+        return ordinalOf(transactionId) >= 0;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String transactionId) {
+        int ordinal = ordinalOf(transactionId);
+        return ordinal < 0 ? Optional.empty() : Optional.of(decode(ordinal));
+    }
+
+    @Override
+    public List<Transaction> findByMemberId(String memberId) {
+        return postings(memberRefs.get(memberId), memberStartOffset, memberPostingsOffset);
+    }
+
+    @Override
+    public List<Transaction> findByBookIsbn(String isbn) {
+        return postings(isbnRefs.get(isbn), isbnStartOffset, isbnPostingsOffset);
+    }
+
+    @Override
+    public List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        for (int ordinal = firstBorrowedFrom(from); ordinal < count; ordinal++) {
+            Transaction transaction = decode(ordinal);
+            if (transaction.getBorrowDate().isAfter(to)) {
+                break;
+            }
+            result.add(transaction);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Transaction> findNewest(int limit) {
+        List<Transaction> result = new ArrayList<>();
+        for (int ordinal = count - 1; ordinal >= 0 && result.size() < limit; ordinal--) {
+            result.add(decode(ordinal));
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int ordinal;
+
+            @Override
+            public boolean hasNext() {
+                return ordinal < count;
+            }
+
+            @Override
+            public Transaction next() {
+                if (ordinal >= count) {
+                    throw new NoSuchElementException();
+                }
+                return decode(ordinal++);
+            }
+        };
+    }
+
+    @Override
+    public double totalLateFees() {
+        return totalLateFees;
+    }
+
+    private Transaction decode(int ordinal) {
+        Cursor cursor = new Cursor(region, region.getInt(orderOffset + 4 * ordinal));
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(cursor.readString());
+        transaction.setMemberId(members[cursor.readVarInt()]);
+        int isbn = cursor.readVarInt();
+        if (isbnKeys[isbn] != Isbn.INVALID) {
+            transaction.setBookIsbnKey(isbnKeys[isbn]);
+        } else {
+            transaction.setBookIsbn(isbns[isbn]);
+        }
+        int flags = cursor.readByte();
+        LocalDateTime borrowDate = cursor.readDateTime();
+        transaction.setBorrowDate(borrowDate);
+        if ((flags & BinarySnapshot.HAS_DUE_DATE) != 0) {
+            transaction.setDueDate(cursor.readDateTimeDelta(borrowDate));
+        }
+        if ((flags & BinarySnapshot.HAS_RETURN_DATE) != 0) {
+            transaction.setReturnDate(cursor.readDateTimeDelta(borrowDate));
+        }
+        if ((flags & BinarySnapshot.HAS_LATE_FEE) != 0) {
+            transaction.setLateFee(cursor.readDouble());
+        }
+        // Loại giao dịch trong flags không cần đọc: Transaction suy ra từ ngày trả
+        return transaction;
+    }
+
+    private LocalDateTime borrowDateOf(int ordinal) {
+        Cursor cursor = new Cursor(region, region.getInt(orderOffset + 4 * ordinal));
+        cursor.skipString();
+        cursor.readVarInt();
+        cursor.readVarInt();
+        cursor.readByte();
+        return cursor.readDateTime();
+    }
+
+    /*
+     * Thứ tự bản ghi đầu tiên có ngày mượn >= time (tìm nhị phân trên bảng thứ tự)
+     */
+    private int firstBorrowedFrom(LocalDateTime time) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (borrowDateOf(mid).isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<Transaction> postings(Integer ref, int startOffset, int postingsOffset) {
+        List<Transaction> result = new ArrayList<>();
+        if (ref == null) {
+            return result;
+        }
+        int from = region.getInt(startOffset + 4 * ref);
+        int to = region.getInt(startOffset + 4 * (ref + 1));
+        for (int i = from; i < to; i++) {
+            result.add(decode(region.getInt(postingsOffset + 4 * i)));
+        }
+        return result;
+    }
+
+    private int ordinalOf(String transactionId) {
+        if (count == 0 || transactionId == null) {
+            return -1;
+        }
+        byte[] key = transactionId.getBytes(StandardCharsets.UTF_8);
+        int mask = hashCapacity - 1;
+        int slot = mix(transactionId.hashCode()) & mask;
+        while (true) {
+            int entry = region.getInt(idHashOffset + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (idEquals(entry - 1, key)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean idEquals(int ordinal, byte[] key) {
+        Cursor cursor = new Cursor(region, region.getInt(orderOffset + 4 * ordinal));
+        if (cursor.readVarInt() - 1 != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (region.get(cursor.position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String[] readTable(int offset, int size) {
+        Cursor cursor = new Cursor(region, offset);
+        cursor.readVarInt();
+        String[] table = new String[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = cursor.readString();
+        }
+        return table;
+    }
+
+    private static Map<String, Integer> refs(String[] table) {
+        Map<String, Integer> refs = new HashMap<>(table.length * 2);
+        for (int i = 0; i < table.length; i++) {
+            refs.put(table[i], i);
+        }
+        return refs;
+    }
+
+    private static void writeRecord(BinaryOutput out, Transaction transaction, int memberRef, int isbnRef)
+            throws IOException {
+        LocalDateTime borrowDate = transaction.getBorrowDate();
+        if (borrowDate == null) {
+            throw new IOException("Giao dịch thiếu ngày mượn: " + transaction.getTransactionId());
+        }
+        int flags = (transaction.getType().ordinal() + 1) << BinarySnapshot.TYPE_SHIFT;
+        flags |= BinarySnapshot.HAS_BORROW_DATE;
+        if (transaction.getDueDate() != null) {
+            flags |= BinarySnapshot.HAS_DUE_DATE;
+        }
+        if (transaction.getReturnDate() != null) {
+            flags |= BinarySnapshot.HAS_RETURN_DATE;
+        }
+        if (transaction.getLateFee() != 0.0) {
+            flags |= BinarySnapshot.HAS_LATE_FEE;
+        }
+
+        out.writeString(transaction.getTransactionId());
+        out.writeVarInt(memberRef);
+        out.writeVarInt(isbnRef);
+        out.writeByte(flags);
+        out.writeDateTime(borrowDate);
+        if (transaction.getDueDate() != null) {
+            out.writeDateTimeDelta(borrowDate, transaction.getDueDate());
+        }
+        if (transaction.getReturnDate() != null) {
+            out.writeDateTimeDelta(borrowDate, transaction.getReturnDate());
+        }
+        if (transaction.getLateFee() != 0.0) {
+            out.writeDouble(transaction.getLateFee());
+        }
+    }
+
+    private static void writeTable(BinaryOutput out, Map<String, Integer> refs) throws IOException {
+        String[] table = new String[refs.size()];
+        refs.forEach((value, ref) -> table[ref] = value);
+        out.writeVarInt(table.length);
+        for (String value : table) {
+            out.writeString(value);
+        }
+    }
+
+    /*
+     * Sắp xếp đếm: với mỗi khóa, các bản ghi của nó nằm liền nhau và giữ thứ tự ngày mượn
+     */
+    private static int writePostings(BinaryOutput out, long start, IntList keyOf, int keyCount) throws IOException {
+        int[] starts = new int[keyCount + 1];
+        for (int i = 0; i < keyOf.size(); i++) {
+            starts[keyOf.get(i) + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            starts[k + 1] += starts[k];
+        }
+        for (int value : starts) {
+            out.writeInt(value);
+        }
+        int[] next = Arrays.copyOf(starts, keyCount);
+        int[] postings = new int[keyOf.size()];
+        for (int i = 0; i < keyOf.size(); i++) {
+            postings[next[keyOf.get(i)]++] = i;
+        }
+        int postingsOffset = relative(out, start);
+        for (int ordinal : postings) {
+            out.writeInt(ordinal);
+        }
+        return postingsOffset;
+    }
+
+    private static int relative(BinaryOutput out, long start) throws IOException {
+        long offset = out.bytesWritten() - start;
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Vùng lưu trữ giao dịch vượt quá 2GB");
+        }
+        return (int) offset;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * Con trỏ đọc trên vùng ánh xạ; chỉ dùng get tuyệt đối nên nhiều luồng đọc cùng lúc được
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        private Cursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Varint không hợp lệ");
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readDouble() {
+            double value = buffer.getDouble(position);
+            position += 8;
+            return value;
+        }
+
+        String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skipString() {
+            int length = readVarInt() - 1;
+            position += Math.max(length, 0);
+        }
+
+        LocalDateTime readDateTime() {
+            long seconds = readSignedVarLong();
+            return LocalDateTime.ofEpochSecond(seconds, readVarInt(), ZoneOffset.UTC);
+        }
+
+        LocalDateTime readDateTimeDelta(LocalDateTime base) {
+            long seconds = base.toEpochSecond(ZoneOffset.UTC) + readSignedVarLong();
+            return LocalDateTime.ofEpochSecond(seconds, readVarInt(), ZoneOffset.UTC);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
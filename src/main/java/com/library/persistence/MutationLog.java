@@ -0,0 +1,69 @@
+package com.library.persistence;
+
+import com.library.model.Book;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+
+/*
+ * Nhật ký các thao tác thay đổi dữ liệu, được service ghi lại sau mỗi thao tác.
+ * Mỗi lần ghi trả về số thứ tự (LSN); awaitDurable(lsn) chờ tới khi bản ghi đã xuống đĩa.
+ */
+public interface MutationLog {
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public long bookAdded(Book book) {
+            return 0;
+        }
+
+        @Override
+        public long bookRemoved(String isbn) {
+            return 0;
+        }
+
+        @Override
+        public long bookStatusChanged(String isbn, BookStatus status) {
+            return 0;
+        }
+
+        @Override
+        public long memberSaved(Member member) {
+            return 0;
+        }
+
+        @Override
+        public long memberStatusChanged(String memberId, boolean active) {
+            return 0;
+        }
+
+        @Override
+        public long bookBorrowed(Transaction transaction) {
+            return 0;
+        }
+
+        @Override
+        public long bookReturned(Transaction transaction) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+    };
+
+    long bookAdded(Book book);
+
+    long bookRemoved(String isbn);
+
+    long bookStatusChanged(String isbn, BookStatus status);
+
+    long memberSaved(Member member);
+
+    long memberStatusChanged(String memberId, boolean active);
+
+    long bookBorrowed(Transaction transaction);
+
+    long bookReturned(Transaction transaction);
+
+    void awaitDurable(long lsn);
+}
@@ -0,0 +1,154 @@
+package com.library.persistence;
+
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.Timer;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Gộp nhật ký WAL vào snapshot trên một luồng nền.
+ *
+ * Ảnh chụp nhất quán được lấy từ đĩa chứ không từ repository đang chạy: niêm phong file nhật ký
+ * đang ghi (rotate) cho ra một LSN cắt, rồi snapshot cũ + các phân đoạn tới LSN đó được dựng lại
+ * trong repository riêng và ghi ra snapshot mới. Console và các thao tác mượn/trả chỉ phải dừng
+ * trong lúc rotate (chờ ghi xong các bản ghi đã cấp LSN và đổi tên file), không phụ thuộc kích thước dữ liệu.
+ * Snapshot được ghi bằng đổi tên nguyên tử và fsync (file lẫn thư mục), sau đó mới xóa các phân đoạn đã gộp.
+ * Snapshot cũ được mở lười (BinarySnapshot.open) nên giao dịch đã trả được chép theo dòng, không nạp hết lên heap.
+ */
+public class SnapshotCompactor implements Closeable {
+    private static final Timer COMPACTION = MetricsRegistry.getInstance().timer("persistence.snapshotCompaction");
+    private static final Timer ROTATE_PAUSE = MetricsRegistry.getInstance().timer("persistence.snapshotWritePause");
+
+    private final Path snapshotFile;
+    private final WriteAheadLog log;
+    private final ExecutorService executor;
+    private final Object compactionLock = new Object();
+
+    private CompletableFuture<Void> scheduled;
+    private volatile long completedSnapshots;
+    private volatile long lastSnapshotLsn;
+    private volatile long lastPauseNanos;
+    private volatile long maxPauseNanos;
+    private volatile long lastDurationNanos;
+    private volatile IOException lastError;
+
+    public SnapshotCompactor(Path snapshotFile, WriteAheadLog log) {
+        this.snapshotFile = snapshotFile;
+        this.log = log;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Lên lịch một lần gộp nền; nếu đã có lần gộp đang chờ chạy thì dùng chung lần đó
+     */
+    public synchronized CompletableFuture<Void> requestSnapshot() {
+        if (scheduled != null && !scheduled.isDone()) {
+            return scheduled;
+        }
+        scheduled = CompletableFuture.runAsync(() -> {
+            try {
+                snapshotNow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+        return scheduled;
+    }
+
+    /*
+     * Gộp ngay trên luồng hiện tại
+     */
+    public void snapshotNow() throws IOException {
+        synchronized (compactionLock) {
+            compact();
+        }
+    }
+
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        try {
+            long cutLsn = log.rotate();
+            long pause = System.nanoTime() - start;
+
+            BookRepository bookRepository = new BookRepository();
+            MemberRepository memberRepository = new MemberRepository();
+            TransactionRepository transactionRepository = new TransactionRepository();
+            boolean hasSnapshot = BinarySnapshot.exists(snapshotFile);
+            long baseLsn = hasSnapshot
+                    ? BinarySnapshot.open(snapshotFile, bookRepository, memberRepository, transactionRepository)
+                    : 0;
+            if (cutLsn > baseLsn || !hasSnapshot) {
+                WriteAheadLog.replaySegments(log.getFile(), baseLsn, cutLsn,
+                        bookRepository, memberRepository, transactionRepository);
+                BinarySnapshot.write(snapshotFile, cutLsn, bookRepository, memberRepository, transactionRepository);
+            }
+            WriteAheadLog.deleteSegments(log.getFile(), cutLsn);
+
+            lastSnapshotLsn = cutLsn;
+            lastPauseNanos = pause;
+            maxPauseNanos = Math.max(maxPauseNanos, pause);
+            lastDurationNanos = System.nanoTime() - start;
+            lastError = null;
+            completedSnapshots++;
+            COMPACTION.record(lastDurationNanos);
+            ROTATE_PAUSE.record(pause);
+        } catch (IOException e) {
+            lastError = e;
+            throw e;
+        }
+    }
+
+    public long getCompletedSnapshots() {
+        return completedSnapshots;
+    }
+
+    public long getLastSnapshotLsn() {
+        return lastSnapshotLsn;
+    }
+
+    /*
+     * Thời gian các thao tác ghi bị dừng (rotate) trong lần gộp gần nhất
+     */
+    public long getLastPauseNanos() {
+        return lastPauseNanos;
+    }
+
+    public long getMaxPauseNanos() {
+        return maxPauseNanos;
+    }
+
+    public long getLastDurationNanos() {
+        return lastDurationNanos;
+    }
+
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    /*
+     * Chờ lần gộp đang chạy (nếu có) hoàn tất rồi dừng luồng nền
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
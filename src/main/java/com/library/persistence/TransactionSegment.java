@@ -0,0 +1,489 @@
+package com.library.persistence;
+
+import com.library.model.Transaction;
+import com.library.repository.TransactionArchive;
+import com.library.util.Isbn;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Segment lạnh: file bất biến chứa giao dịch đã trả, sắp theo ngày mượn, nén theo khối.
+ *
+ * Bố cục:
+ *   các khối: tối đa BLOCK_SIZE giao dịch (định dạng BinarySnapshot.writeTransaction, từ điển chuỗi riêng
+ *     từng khối) nén deflate
+ *   chỉ mục thưa, mỗi khối một mục: vị trí, độ dài nén/gốc, CRC32, số giao dịch, ngày mượn đầu/cuối,
+ *     tổng phí trễ hạn, bộ lọc Bloom các ID/memberId/ISBN trong khối
+ *   footer: long vị trí chỉ mục, long số giao dịch, double tổng phí, long CRC32 chỉ mục, int SEGMENT_MAGIC
+ *
+ * Khi mở chỉ đọc chỉ mục lên heap (khoảng 600 byte mỗi khối, tức vài byte mỗi giao dịch).
+ * Truy vấn theo ngày tìm nhị phân trên ngày mượn đầu/cuối của khối; theo ID/memberId/ISBN thì chỉ giải nén
+ * các khối mà bộ lọc Bloom không loại được. Một ít khối vừa giải nén được giữ lại cho lần đọc kế tiếp.
+ */
+public final class TransactionSegment implements TransactionArchive, Closeable {
+    private static final int SEGMENT_MAGIC = 0x4C494243;
+    private static final int FOOTER_SIZE = 36;
+    static final int BLOCK_SIZE = 128;
+    private static final int BLOOM_WORDS = 64;
+    private static final int BLOOM_BITS = BLOOM_WORDS * 64;
+    private static final int BLOOM_HASHES = 3;
+    private static final int CACHED_BLOCKS = 8;
+
+    private static final char ID_KEY = 'i';
+    private static final char MEMBER_KEY = 'm';
+    private static final char ISBN_KEY = 'b';
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long count;
+    private final double totalLateFees;
+    private final Block[] blocks;
+    private final Map<Integer, byte[]> cache = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    private TransactionSegment(Path file, FileChannel channel, long count, double totalLateFees, Block[] blocks) {
+        this.file = file;
+        this.channel = channel;
+        this.count = count;
+        this.totalLateFees = totalLateFees;
+        this.blocks = blocks;
+    }
+
+    /*
+     * Ghi các giao dịch (đã sắp theo ngày mượn) ra file tạm rồi đổi tên
+     */
+    public static void write(Path file, List<Transaction> transactions) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Block> index = new ArrayList<>();
+        double totalLateFees = 0.0;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try (BinaryOutput out = new BinaryOutput(Files.newOutputStream(temp))) {
+            for (int from = 0; from < transactions.size(); from += BLOCK_SIZE) {
+                List<Transaction> chunk = transactions.subList(from, Math.min(transactions.size(), from + BLOCK_SIZE));
+                Block block = encodeBlock(out, chunk, deflater);
+                index.add(block);
+                totalLateFees += block.lateFees;
+            }
+
+            long indexOffset = out.bytesWritten();
+            out.resetChecksum();
+            out.writeVarInt(index.size());
+            for (Block block : index) {
+                block.write(out);
+            }
+            long crc = out.checksum();
+            out.writeLong(indexOffset);
+            out.writeLong(transactions.size());
+            out.writeDouble(totalLateFees);
+            out.writeLong(crc);
+            out.writeInt(SEGMENT_MAGIC);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * Mở segment: đọc footer và chỉ mục thưa, kiểm tra CRC của chỉ mục
+     */
+    public static TransactionSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Segment bị cắt cụt: " + file);
+            }
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong(0);
+            long count = footer.getLong(8);
+            double totalLateFees = footer.getDouble(16);
+            if (footer.getInt(32) != SEGMENT_MAGIC || indexOffset < 0 || indexOffset > size - FOOTER_SIZE) {
+                throw new IOException("Không phải segment giao dịch: " + file);
+            }
+
+            byte[] indexBytes = readFully(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset)).array();
+            CRC32 crc = new CRC32();
+            crc.update(indexBytes);
+            if (crc.getValue() != footer.getLong(24)) {
+                throw new IOException("Chỉ mục segment bị hỏng (sai CRC): " + file);
+            }
+            BinaryInput in = new BinaryInput(new ByteArrayInputStream(indexBytes));
+            Block[] blocks = new Block[in.readVarInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = Block.read(in);
+            }
+            return new TransactionSegment(file, channel, count, totalLateFees, blocks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    @Override
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public boolean contains(String transactionId) {
+        return findById(transactionId).isPresent();
+    }
+
+    @Override
+    public Optional<Transaction> findById(String transactionId) {
+        if (transactionId == null) {
+            return Optional.empty();
+        }
+        long hash = hash(ID_KEY, transactionId);
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i].mightContain(hash)) {
+                for (Transaction transaction : decode(i)) {
+                    if (transactionId.equals(transaction.getTransactionId())) {
+                        return Optional.of(transaction);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> findByMemberId(String memberId) {
+        List<Transaction> result = new ArrayList<>();
+        if (memberId == null) {
+            return result;
+        }
+        long hash = hash(MEMBER_KEY, memberId);
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i].mightContain(hash)) {
+                for (Transaction transaction : decode(i)) {
+                    if (memberId.equals(transaction.getMemberId())) {
+                        result.add(transaction);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Transaction> findByBookIsbn(String isbn) {
+        List<Transaction> result = new ArrayList<>();
+        if (isbn == null) {
+            return result;
+        }
+        long hash = hash(ISBN_KEY, isbn);
+        long isbnKey = Isbn.parse(isbn);
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i].mightContain(hash)) {
+                for (Transaction transaction : decode(i)) {
+                    if (isbnKey != Isbn.INVALID ? transaction.getBookIsbnKey() == isbnKey
+                            : isbn.equals(transaction.getBookIsbn())) {
+                        result.add(transaction);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        for (int i = firstBlockEndingFrom(from); i < blocks.length && !blocks[i].first.isAfter(to); i++) {
+            for (Transaction transaction : decode(i)) {
+                LocalDateTime borrowDate = transaction.getBorrowDate();
+                if (!borrowDate.isBefore(from) && !borrowDate.isAfter(to)) {
+                    result.add(transaction);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Transaction> findNewest(int limit) {
+        List<Transaction> result = new ArrayList<>();
+        for (int i = blocks.length - 1; i >= 0 && result.size() < limit; i--) {
+            List<Transaction> block = decode(i);
+            for (int j = block.size() - 1; j >= 0 && result.size() < limit; j--) {
+                result.add(block.get(j));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int nextBlock;
+            private Iterator<Transaction> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && nextBlock < blocks.length) {
+                    current = decode(nextBlock++).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public double totalLateFees() {
+        return totalLateFees;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * Khối đầu tiên có ngày mượn cuối >= time
+     */
+    private int firstBlockEndingFrom(LocalDateTime time) {
+        int low = 0;
+        int high = blocks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks[mid].last.isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<Transaction> decode(int blockIndex) {
+        try {
+            BinaryInput in = new BinaryInput(new ByteArrayInputStream(rawBlock(blockIndex)));
+            List<Transaction> transactions = new ArrayList<>(blocks[blockIndex].count);
+            for (int i = 0; i < blocks[blockIndex].count; i++) {
+                transactions.add(BinarySnapshot.readTransaction(in));
+            }
+            return transactions;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đọc được segment " + file, e);
+        }
+    }
+
+    /*
+     * Byte gốc (đã giải nén) của khối; giữ bản giải nén chứ không giữ đối tượng để mỗi lần đọc trả về bản mới
+     */
+    private byte[] rawBlock(int blockIndex) throws IOException {
+        synchronized (cache) {
+            byte[] cached = cache.get(blockIndex);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Block block = blocks[blockIndex];
+        byte[] compressed = readFully(channel, block.offset, block.compressedLength).array();
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Khối " + blockIndex + " của segment bị hỏng (sai CRC)");
+        }
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, raw.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != raw.length) {
+                throw new IOException("Khối " + blockIndex + " của segment giải nén không đủ");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Khối " + blockIndex + " của segment không giải nén được", e);
+        } finally {
+            inflater.end();
+        }
+        synchronized (cache) {
+            cache.put(blockIndex, raw);
+        }
+        return raw;
+    }
+
+    private static Block encodeBlock(BinaryOutput out, List<Transaction> chunk, Deflater deflater) throws IOException {
+        ByteArrayOutputStream rawBytes = new ByteArrayOutputStream(chunk.size() * 48);
+        long[] bloom = new long[BLOOM_WORDS];
+        double lateFees = 0.0;
+        try (BinaryOutput block = new BinaryOutput(rawBytes)) {
+            for (Transaction transaction : chunk) {
+                if (transaction.getBorrowDate() == null) {
+                    throw new IOException("Giao dịch thiếu ngày mượn: " + transaction.getTransactionId());
+                }
+                BinarySnapshot.writeTransaction(block, transaction);
+                addToBloom(bloom, hash(ID_KEY, transaction.getTransactionId()));
+                addToBloom(bloom, hash(MEMBER_KEY, transaction.getMemberId()));
+                addToBloom(bloom, hash(ISBN_KEY, transaction.getBookIsbn()));
+                lateFees += transaction.getLateFee();
+            }
+        }
+        byte[] raw = rawBytes.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        byte[] bytes = compressed.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        long offset = out.bytesWritten();
+        out.writeBytes(bytes);
+        return new Block(offset, bytes.length, raw.length, (int) crc.getValue(), chunk.size(),
+                chunk.get(0).getBorrowDate(), chunk.get(chunk.size() - 1).getBorrowDate(), lateFees, bloom);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Segment bị cắt cụt");
+            }
+        }
+        return buffer;
+    }
+
+    /*
+     * FNV-1a 64 bit trên loại khóa + chuỗi; hai nửa của giá trị băm sinh ra các vị trí trong bộ lọc Bloom
+     */
+    private static long hash(char kind, String key) {
+        long hash = 0xcbf29ce484222325L ^ kind;
+        hash *= 0x100000001b3L;
+        if (key != null) {
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private static void addToBloom(long[] bloom, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /*
+     * Mục chỉ mục thưa của một khối
+     */
+    private static final class Block {
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+        private final int crc;
+        private final int count;
+        private final LocalDateTime first;
+        private final LocalDateTime last;
+        private final double lateFees;
+        private final long[] bloom;
+
+        private Block(long offset, int compressedLength, int rawLength, int crc, int count,
+                      LocalDateTime first, LocalDateTime last, double lateFees, long[] bloom) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+            this.lateFees = lateFees;
+            this.bloom = bloom;
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void write(BinaryOutput out) throws IOException {
+            out.writeVarLong(offset);
+            out.writeVarInt(compressedLength);
+            out.writeVarInt(rawLength);
+            out.writeInt(crc);
+            out.writeVarInt(count);
+            out.writeDateTime(first);
+            out.writeDateTime(last);
+            out.writeDouble(lateFees);
+            for (long word : bloom) {
+                out.writeLong(word);
+            }
+        }
+
+        private static Block read(BinaryInput in) throws IOException {
+            long offset = in.readVarLong();
+            int compressedLength = in.readVarInt();
+            int rawLength = in.readVarInt();
+            int crc = in.readInt();
+            int count = in.readVarInt();
+            LocalDateTime first = in.readDateTime();
+            LocalDateTime last = in.readDateTime();
+            double lateFees = in.readDouble();
+            long[] bloom = new long[BLOOM_WORDS];
+            for (int i = 0; i < BLOOM_WORDS; i++) {
+                bloom[i] = in.readLong();
+            }
+            return new Block(offset, compressedLength, rawLength, crc, count, first, last, lateFees, bloom);
+        }
+    }
+}
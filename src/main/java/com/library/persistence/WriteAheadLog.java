@@ -0,0 +1,629 @@
+package com.library.persistence;
+
+import com.library.model.Book;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.util.Isbn;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/*
+ * Write-ahead log: mỗi thao tác thay đổi dữ liệu được nối vào cuối file dưới dạng một bản ghi nhỏ.
+ *
+ * Khung bản ghi:
+ *   int   độ dài payload
+ *   int   CRC32 của payload
+ *   payload: byte loại bản ghi, varlong LSN, rồi tới dữ liệu (mã hóa như BinarySnapshot)
+ *
+ * Group commit: luồng gọi chỉ mã hóa bản ghi vào buffer chờ; một luồng ghi riêng lấy cả buffer,
+ * ghi một lần và fsync một lần cho cả nhóm. Các bản ghi tới trong lúc đang fsync sẽ đi chung nhóm sau,
+ * nên chi phí mỗi thao tác là O(1) và độ trễ chờ bền vững tối đa khoảng hai lần fsync.
+ *
+ * Mọi bản ghi đều mang trạng thái đầy đủ nên phát lại nhiều lần cho cùng kết quả; nhờ vậy snapshot
+ * không cần chặn ghi log và bản ghi trùng với snapshot có thể phát lại an toàn.
+ * Khi khởi động, phần đuôi ghi dở (crash giữa chừng) bị phát hiện qua độ dài/CRC và được cắt bỏ.
+ *
+ * Phân đoạn: file đang ghi là `file`; rotate() đóng nó lại thành phân đoạn niêm phong
+ * `file.<LSN cuối>` để SnapshotCompactor gộp vào snapshot rồi xóa, trong khi thao tác mới
+ * tiếp tục ghi vào file mới.
+ */
+public class WriteAheadLog implements MutationLog, Closeable {
+    public static final String ENABLED_PROPERTY = "library.wal.enabled";
+
+    private static final byte BOOK_ADDED = 1;
+    private static final byte BOOK_REMOVED = 2;
+    private static final byte BOOK_STATUS = 3;
+    private static final byte MEMBER_SAVED = 4;
+    private static final byte MEMBER_STATUS = 5;
+    private static final byte BOOK_BORROWED = 6;
+    private static final byte BOOK_RETURNED = 7;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int RECORD_BUFFER_SIZE = 256;
+
+    private final Path file;
+    // Snapshot mà nhật ký này được gộp vào (có thể null): LSN của nó là cận dưới cho LSN mới
+    private final Path snapshotFile;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingAvailable = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Condition rotationFinished = lock.newCondition();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream();
+    // Chỉ đổi khi giữ lock; luồng ghi lấy tham chiếu cùng lúc với nhóm bản ghi
+    private FileChannel channel;
+    private Thread writer;
+    private long lastLsn;
+    private long pendingLsn;
+    private long durableLsn;
+    private long batches;
+    private long activeBytes;
+    private long rotationThreshold = Long.MAX_VALUE;
+    private Runnable rotationListener;
+    private boolean rotationRequested;
+    // Đang niêm phong file: append mới phải chờ để không lọt vào sau LSN cắt
+    private boolean rotating;
+    private IOException failure;
+    private boolean closed;
+
+    public WriteAheadLog(Path file) {
+        this(file, null);
+    }
+
+    public WriteAheadLog(Path file, Path snapshotFile) {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /*
+     * LSN tiếp theo sẽ lớn hơn giá trị này (gọi sau khi đọc snapshot, vì log có thể đã bị cắt về rỗng)
+     */
+    public void resumeAfter(long lsn) {
+        lock.lock();
+        try {
+            if (lsn > lastLsn) {
+                lastLsn = lsn;
+                durableLsn = Math.max(durableLsn, lsn);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Số lần fsync đã thực hiện; nhỏ hơn số bản ghi khi group commit gộp được nhiều thao tác
+     */
+    public long getBatchCount() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Gọi listener (từ luồng ghi) khi file đang ghi vượt quá số byte cho trước, vd. để lên lịch snapshot.
+     * Listener phải trả về ngay, không được chờ nhật ký.
+     */
+    public void setRotationListener(long thresholdBytes, Runnable listener) {
+        lock.lock();
+        try {
+            this.rotationThreshold = thresholdBytes;
+            this.rotationListener = listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long bookAdded(Book book) {
+        return append(BOOK_ADDED, out -> BinarySnapshot.writeBook(out, book));
+    }
+
+    @Override
+    public long bookRemoved(String isbn) {
+        return append(BOOK_REMOVED, out -> out.writeString(isbn));
+    }
+
+    @Override
+    public long bookStatusChanged(String isbn, BookStatus status) {
+        return append(BOOK_STATUS, out -> {
+            out.writeString(isbn);
+            out.writeByte(status.ordinal());
+        });
+    }
+
+    @Override
+    public long memberSaved(Member member) {
+        return append(MEMBER_SAVED, out -> BinarySnapshot.writeMember(out, member));
+    }
+
+    @Override
+    public long memberStatusChanged(String memberId, boolean active) {
+        return append(MEMBER_STATUS, out -> {
+            out.writeString(memberId);
+            out.writeByte(active ? 1 : 0);
+        });
+    }
+
+    @Override
+    public long bookBorrowed(Transaction transaction) {
+        return append(BOOK_BORROWED, out -> BinarySnapshot.writeTransaction(out, transaction));
+    }
+
+    @Override
+    public long bookReturned(Transaction transaction) {
+        return append(BOOK_RETURNED, out -> BinarySnapshot.writeTransaction(out, transaction));
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (durableLsn < lsn) {
+                throw new UncheckedIOException("Không ghi được nhật ký " + file, failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Niêm phong file đang ghi thành một phân đoạn và mở file mới, trả về LSN cuối cùng của phân đoạn.
+     * Đây là khoảng dừng duy nhất của thao tác ghi khi tạo snapshot: chặn append mới, chờ luồng ghi
+     * ghi xong mọi bản ghi đã cấp LSN (khi đó nó không còn dùng channel), rồi đổi tên file.
+     * Mọi bản ghi có LSN không lớn hơn giá trị trả về đều nằm trong phân đoạn vừa niêm phong.
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            open();
+            rotating = true;
+            while (durableLsn < lastLsn && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IOException("Không ghi được nhật ký " + file, failure);
+            }
+            long sealedLsn = durableLsn;
+            if (channel.size() == 0) {
+                return sealedLsn;
+            }
+            channel.close();
+            Files.move(file, segmentFile(file, sealedLsn), StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            activeBytes = 0;
+            rotationRequested = false;
+            return sealedLsn;
+        } finally {
+            rotating = false;
+            rotationFinished.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Xóa các phân đoạn niêm phong đã nằm trọn trong snapshot có LSN cho trước
+     */
+    public static void deleteSegments(Path file, long upToLsn) throws IOException {
+        for (Path segment : segments(file)) {
+            if (segmentLsn(file, segment) <= upToLsn) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    /*
+     * Các phân đoạn niêm phong, theo thứ tự LSN tăng dần
+     */
+    public static List<Path> segments(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path candidate : stream) {
+                if (candidate.getFileName().toString().substring(prefix.length()).matches("\\d+")) {
+                    segments.add(candidate);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segmentLsn(file, segment)));
+        return segments;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread current;
+        lock.lock();
+        try {
+            closed = true;
+            pendingAvailable.signalAll();
+            current = writer;
+        } finally {
+            lock.unlock();
+        }
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+     * Phát lại các bản ghi có LSN lớn hơn afterLsn (các phân đoạn niêm phong rồi tới file đang ghi)
+     * lên repository, trả về LSN lớn nhất gặp được.
+     * Đọc tới bản ghi hợp lệ cuối cùng; phần đuôi hỏng do crash bị bỏ qua (và bị cắt khi mở log để ghi).
+     */
+    public static long replay(Path file, long afterLsn, BookRepository bookRepository,
+                              MemberRepository memberRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        long maxLsn = replaySegments(file, afterLsn, Long.MAX_VALUE,
+                bookRepository, memberRepository, transactionRepository);
+        if (Files.exists(file)) {
+            maxLsn = Math.max(maxLsn, replayFile(file, afterLsn, bookRepository, memberRepository,
+                    transactionRepository));
+        }
+        return maxLsn;
+    }
+
+    /*
+     * Chỉ phát lại các phân đoạn niêm phong có LSN cuối không vượt quá upToLsn
+     */
+    public static long replaySegments(Path file, long afterLsn, long upToLsn, BookRepository bookRepository,
+                                      MemberRepository memberRepository,
+                                      TransactionRepository transactionRepository) throws IOException {
+        long maxLsn = afterLsn;
+        for (Path segment : segments(file)) {
+            long segmentLsn = segmentLsn(file, segment);
+            if (segmentLsn > afterLsn && segmentLsn <= upToLsn) {
+                maxLsn = Math.max(maxLsn, replayFile(segment, afterLsn, bookRepository, memberRepository,
+                        transactionRepository));
+            }
+        }
+        return maxLsn;
+    }
+
+    private static long replayFile(Path file, long afterLsn, BookRepository bookRepository,
+                                   MemberRepository memberRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        long[] maxLsn = {afterLsn};
+        scan(file, (type, lsn, in) -> {
+            maxLsn[0] = Math.max(maxLsn[0], lsn);
+            if (lsn > afterLsn) {
+                apply(type, in, bookRepository, memberRepository, transactionRepository);
+            }
+        });
+        return maxLsn[0];
+    }
+
+    private static void apply(int type, BinaryInput in, BookRepository bookRepository,
+                              MemberRepository memberRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        switch (type) {
+            case BOOK_ADDED -> bookRepository.save(BinarySnapshot.readBook(in));
+            case BOOK_REMOVED -> bookRepository.deleteByIsbn(in.readString());
+            case BOOK_STATUS -> setBookStatus(bookRepository, in.readString(),
+                    enumValue(BookStatus.values(), in.readByte()));
+            case MEMBER_SAVED -> memberRepository.save(BinarySnapshot.readMember(in));
+            case MEMBER_STATUS -> {
+                String memberId = in.readString();
+                boolean active = in.readByte() != 0;
+                memberRepository.findById(memberId).ifPresent(member -> {
+                    member.setActive(active);
+                    memberRepository.update(member);
+                });
+            }
+            case BOOK_BORROWED -> {
+                Transaction transaction = BinarySnapshot.readTransaction(in);
+                setBookStatus(bookRepository, transaction, BookStatus.BORROWED);
+                memberRepository.findById(transaction.getMemberId()).ifPresent(member -> {
+                    // Dùng chung chuỗi memberId của thành viên thay cho chuỗi vừa đọc từ bản ghi
+                    transaction.setMemberId(member.getMemberId());
+                    if (transaction.getBookIsbnKey() != Isbn.INVALID) {
+                        member.borrowBook(transaction.getBookIsbnKey());
+                    } else {
+                        member.borrowBook(transaction.getBookIsbn());
+                    }
+                });
+                transactionRepository.save(transaction);
+            }
+            case BOOK_RETURNED -> {
+                Transaction transaction = BinarySnapshot.readTransaction(in);
+                setBookStatus(bookRepository, transaction, BookStatus.AVAILABLE);
+                memberRepository.findById(transaction.getMemberId()).ifPresent(member -> {
+                    transaction.setMemberId(member.getMemberId());
+                    if (transaction.getBookIsbnKey() != Isbn.INVALID) {
+                        member.returnBook(transaction.getBookIsbnKey());
+                    } else {
+                        member.returnBook(transaction.getBookIsbn());
+                    }
+                });
+                transactionRepository.save(transaction);
+            }
+            default -> throw new IOException("Loại bản ghi nhật ký không hợp lệ: " + type);
+        }
+    }
+
+    private static void setBookStatus(BookRepository bookRepository, String isbn, BookStatus status) {
+        bookRepository.findByIsbn(isbn).ifPresent(book -> {
+            book.setStatus(status);
+            bookRepository.update(book);
+        });
+    }
+
+    /*
+     * ISBN cũ sai chữ số kiểm tra không có khóa chung giữa các repository nên tra theo chuỗi gốc
+     */
+    private static void setBookStatus(BookRepository bookRepository, Transaction transaction, BookStatus status) {
+        long isbnKey = transaction.getBookIsbnKey();
+        if (isbnKey == Isbn.INVALID) {
+            setBookStatus(bookRepository, transaction.getBookIsbn(), status);
+            return;
+        }
+        bookRepository.findByIsbn(isbnKey).ifPresent(book -> {
+            book.setStatus(status);
+            bookRepository.update(book);
+        });
+    }
+
+    private long append(byte type, RecordBody body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(RECORD_BUFFER_SIZE);
+        try (BinaryOutput out = new BinaryOutput(bytes, RECORD_BUFFER_SIZE)) {
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] data = bytes.toByteArray();
+
+        lock.lock();
+        try {
+            while (rotating) {
+                rotationFinished.awaitUninterruptibly();
+            }
+            open();
+            long lsn = ++lastLsn;
+            byte[] payload = payload(type, lsn, data);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            writeInt(pending, payload.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(payload, 0, payload.length);
+            pendingLsn = lsn;
+            pendingAvailable.signal();
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Mở file để ghi ở lần append đầu tiên: cắt phần đuôi hỏng và nối tiếp LSN lớn nhất đã cấp, lấy từ
+     * file đang ghi, tên các phân đoạn niêm phong và snapshot. Sau một lần gộp thì file đang ghi rỗng và
+     * các phân đoạn đã bị xóa, nên chỉ snapshot còn giữ LSN cuối; bản ghi mới có LSN không lớn hơn nó
+     * sẽ bị coi là đã áp dụng và bị bỏ qua khi phát lại. Không phụ thuộc việc loadData có thành công hay không.
+     */
+    private void open() {
+        if (channel != null) {
+            if (failure != null || closed) {
+                throw new UncheckedIOException("Nhật ký " + file + " không còn ghi được", failure);
+            }
+            return;
+        }
+        try {
+            long[] state = {0, lastLsn};
+            if (Files.exists(file)) {
+                state = scan(file, (type, lsn, in) -> {
+                });
+                state[1] = Math.max(state[1], lastLsn);
+            }
+            List<Path> sealed = segments(file);
+            if (!sealed.isEmpty()) {
+                state[1] = Math.max(state[1], segmentLsn(file, sealed.get(sealed.size() - 1)));
+            }
+            if (snapshotFile != null && BinarySnapshot.exists(snapshotFile)) {
+                state[1] = Math.max(state[1], BinarySnapshot.readLsn(snapshotFile));
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(state[0]);
+            channel.position(state[0]);
+            activeBytes = state[0];
+            lastLsn = state[1];
+            durableLsn = lastLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long batchLsn;
+            FileChannel target;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    pendingAvailable.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                ByteArrayOutputStream batch = pending;
+                pending = writing;
+                writing = batch;
+                batchLsn = pendingLsn;
+                target = channel;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            Runnable listener = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(writing.toByteArray());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableLsn = batchLsn;
+                    batches++;
+                    activeBytes += writing.size();
+                    if (activeBytes >= rotationThreshold && !rotationRequested) {
+                        rotationRequested = true;
+                        listener = rotationListener;
+                    }
+                }
+                writing.reset();
+                durable.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /*
+     * Duyệt các bản ghi hợp lệ, trả về {vị trí kết thúc bản ghi hợp lệ cuối cùng, LSN lớn nhất}
+     */
+    private static long[] scan(Path file, RecordVisitor visitor) throws IOException {
+        long validEnd = 0;
+        long maxLsn = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    expectedCrc = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+
+                BinaryInput record = new BinaryInput(new ByteArrayInputStream(payload), RECORD_BUFFER_SIZE);
+                int type = record.readByte();
+                long lsn = record.readVarLong();
+                visitor.visit(type, lsn, record);
+                maxLsn = Math.max(maxLsn, lsn);
+                validEnd += HEADER_SIZE + payload.length;
+            }
+        }
+        return new long[]{validEnd, maxLsn};
+    }
+
+    private static Path segmentFile(Path file, long lastLsn) {
+        return file.resolveSibling(file.getFileName() + "." + String.format("%019d", lastLsn));
+    }
+
+    private static long segmentLsn(Path file, Path segment) {
+        return Long.parseLong(segment.getFileName().toString().substring(file.getFileName().toString().length() + 1));
+    }
+
+    private static byte[] payload(byte type, long lsn, byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 11);
+        bytes.write(type);
+        while ((lsn & ~0x7FL) != 0) {
+            bytes.write((int) ((lsn & 0x7F) | 0x80));
+            lsn >>>= 7;
+        }
+        bytes.write((int) lsn);
+        bytes.write(data, 0, data.length);
+        return bytes.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static <E extends Enum<E>> E enumValue(E[] values, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Giá trị enum không hợp lệ: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(BinaryOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(int type, long lsn, BinaryInput in) throws IOException;
+    }
+}
@@ -1,26 +1,98 @@
 package com.library.repository;
 
+import com.library.metrics.SearchEvent;
 import com.library.model.Book;
 import com.library.model.BookStatus;
+import com.library.util.IsbnKeys;
+import com.library.util.LongObjectMap;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+/*
+ * An toàn khi nhiều luồng dùng chung: ghi tuần tự hóa bằng writeLock (sách và index tìm kiếm đổi cùng nhau),
+ * đọc không khóa.
+ * Sách được đánh khóa bằng ISBN-13 dạng long (IsbnKeys, bảng riêng của repository cho ISBN cũ sai chữ số kiểm tra),
+ * nên mọi cách viết của cùng một ISBN đều tìm thấy nhau.
+ */
 public class BookRepository {
-    private final Map<String, Book> books;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongObjectMap<Book> books;
+    private final IsbnKeys isbnKeys = new IsbnKeys();
+
+    // Inverted index cho tìm kiếm, đồng bộ trong save/update/deleteByIsbn
+    private final TextIndex titleIndex;
+    private final TextIndex authorIndex;
+    private final TextIndex isbnIndex;
 
     public BookRepository() {
-        this.books = new HashMap<>();
+        this.books = new LongObjectMap<>();
+        this.titleIndex = new TextIndex();
+        this.authorIndex = new TextIndex();
+        this.isbnIndex = new TextIndex();
     }
 
     public void save(Book book) {
-        if (book != null && book.getIsbn() != null) {
-            books.put(book.getIsbn(), book);
+        if (book == null || book.getIsbn() == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            books.put(isbnKeys.key(book.getIsbn()), book);
+            index(book);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Lưu nếu chưa có sách cùng ISBN; kiểm tra và ghi nằm trong cùng một lần giữ khóa
+     */
+    public boolean saveIfAbsent(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            if (books.putIfAbsent(isbnKeys.key(book.getIsbn()), book) != null) {
+                return false;
+            }
+            index(book);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Nhập hàng loạt: giữ khóa ghi một lần cho cả lô, bỏ qua sách đã có ISBN. Trả về các sách đã thêm.
+     */
+    public List<Book> saveAllIfAbsent(Collection<Book> batch) {
+        List<Book> saved = new ArrayList<>(batch.size());
+        writeLock.lock();
+        try {
+            for (Book book : batch) {
+                if (book != null && book.getIsbn() != null
+                        && books.putIfAbsent(isbnKeys.key(book.getIsbn()), book) == null) {
+                    index(book);
+                    saved.add(book);
+                }
+            }
+        } finally {
+            writeLock.unlock();
         }
+        return saved;
     }
 
     public Optional<Book> findByIsbn(String isbn) {
-        return Optional.ofNullable(books.get(isbn));
+        return findByIsbn(isbnKeys.lookupKey(isbn));
+    }
+
+    public Optional<Book> findByIsbn(long isbnKey) {
+        return Optional.ofNullable(books.get(isbnKey));
     }
 
     public List<Book> findByTitle(String title) {
@@ -28,10 +100,11 @@ public class BookRepository {
             return new ArrayList<>();
         }
 
-        String searchTerm = title.toLowerCase();
-        return books.values().stream()
-                .filter(book -> book.getTitle().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        String searchTerm = TextIndex.normalize(title);
+        return matching(event, "title", title, titleIndex.candidates(searchTerm),
+                book -> TextIndex.normalize(book.getTitle()).contains(searchTerm));
     }
 
     public List<Book> findByAuthor(String author) {
@@ -39,10 +112,11 @@ public class BookRepository {
             return new ArrayList<>();
         }
 
-        String searchTerm = author.toLowerCase();
-        return books.values().stream()
-                .filter(book -> book.getAuthor().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        String searchTerm = TextIndex.normalize(author);
+        return matching(event, "author", author, authorIndex.candidates(searchTerm),
+                book -> TextIndex.normalize(book.getAuthor()).contains(searchTerm));
     }
 
     public List<Book> findByStatus(BookStatus status) {
@@ -52,35 +126,86 @@ public class BookRepository {
     }
 
     public List<Book> findAll() {
-        return new ArrayList<>(books.values());
+        return books.values();
     }
 
     public boolean deleteByIsbn(String isbn) {
-        return books.remove(isbn) != null;
+        if (isbn == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            // Index dùng chuỗi ISBN đã lưu, có thể khác cách viết của người gọi
+            Book removed = books.remove(isbnKeys.lookupKey(isbn));
+            if (removed == null) {
+                return false;
+            }
+            titleIndex.remove(removed.getIsbn());
+            authorIndex.remove(removed.getIsbn());
+            isbnIndex.remove(removed.getIsbn());
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public void update(Book book) {
-        if (book != null && book.getIsbn() != null && books.containsKey(book.getIsbn())) {
-            books.put(book.getIsbn(), book);
+        if (book == null || book.getIsbn() == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            long key = isbnKeys.lookupKey(book.getIsbn());
+            if (books.containsKey(key)) {
+                books.put(key, book);
+                index(book);
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 
     public boolean existsByIsbn(String isbn) {
-        return books.containsKey(isbn);
+        return books.containsKey(isbnKeys.lookupKey(isbn));
     }
 
     public long count() {
         return books.size();
     }
 
+    /*
+     * Ước lượng bộ nhớ của trigram index (tên sách, tác giả, ISBN)
+     */
+    public long estimateSearchIndexMemory() {
+        return titleIndex.estimatedGramMemoryBytes()
+                + authorIndex.estimatedGramMemoryBytes()
+                + isbnIndex.estimatedGramMemoryBytes();
+    }
+
     public long countAvailable() {
         return books.values().stream()
                 .filter(book -> book.getStatus() == BookStatus.AVAILABLE)
                 .count();
     }
 
+    /*
+     * Duyệt mà không sao chép danh sách (dùng khi ghi dữ liệu ra file)
+     */
+    public void forEach(Consumer<Book> action) {
+        books.forEach(action);
+    }
+
     public void clear() {
-        books.clear();
+        writeLock.lock();
+        try {
+            books.clear();
+            isbnKeys.clear();
+            titleIndex.clear();
+            authorIndex.clear();
+            isbnIndex.clear();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public List<Book> search(String keyword) {
@@ -88,12 +213,49 @@ public class BookRepository {
             return findAll();
         }
 
-        String searchTerm = keyword.toLowerCase();
-        return books.values().stream()
-                .filter(book ->
-                        book.getTitle().toLowerCase().contains(searchTerm) ||
-                                book.getAuthor().toLowerCase().contains(searchTerm) ||
-                                book.getIsbn().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        String searchTerm = TextIndex.normalize(keyword);
+        Set<String> titleCandidates = titleIndex.candidates(searchTerm);
+        Set<String> candidates = null;
+        if (titleCandidates != null) {
+            // Sách khớp nếu một trong ba trường chứa từ khóa -> hợp các tập ứng viên
+            candidates = titleCandidates;
+            candidates.addAll(authorIndex.candidates(searchTerm));
+            candidates.addAll(isbnIndex.candidates(searchTerm));
+        }
+        return matching(event, "keyword", keyword, candidates, book ->
+                TextIndex.normalize(book.getTitle()).contains(searchTerm) ||
+                        TextIndex.normalize(book.getAuthor()).contains(searchTerm) ||
+                        TextIndex.normalize(book.getIsbn()).contains(searchTerm));
+    }
+
+    private void index(Book book) {
+        titleIndex.put(book.getIsbn(), book.getTitle());
+        authorIndex.put(book.getIsbn(), book.getAuthor());
+        isbnIndex.put(book.getIsbn(), book.getIsbn());
+    }
+
+    /*
+     * Kiểm tra lại điều kiện contains trên các ứng viên từ index.
+     * candidates == null nghĩa là index không thu hẹp được (truy vấn không có chữ/số) -> quét toàn bộ.
+     * Kết thúc sự kiện JFR của lần tìm với số ứng viên và số kết quả.
+     */
+    private List<Book> matching(SearchEvent event, String field, String query, Set<String> candidates,
+                                Predicate<Book> filter) {
+        List<Book> result;
+        if (candidates == null) {
+            result = books.values().stream()
+                    .filter(filter)
+                    .collect(Collectors.toList());
+        } else {
+            result = candidates.stream()
+                    .map(isbn -> books.get(isbnKeys.lookupKey(isbn)))
+                    .filter(Objects::nonNull)
+                    .filter(filter)
+                    .collect(Collectors.toList());
+        }
+        event.end(field, query, candidates == null ? -1 : candidates.size(), result.size());
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.library.repository;
+
+import com.library.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Ghép nhiều kho giao dịch đã trả (vd. vùng lưu trữ của snapshot và các segment lạnh) thành một.
+ * Khoảng ngày mượn của các kho có thể chồng nhau nên kết quả được trộn k đường theo ngày mượn.
+ * Các kho không được chứa trùng giao dịch.
+ */
+public final class CompositeTransactionArchive implements TransactionArchive {
+    private static final Comparator<Transaction> BY_BORROW_DATE = Comparator.comparingLong(Transaction::getBorrowEpochSecond);
+
+    private final List<TransactionArchive> parts;
+
+    private CompositeTransactionArchive(List<TransactionArchive> parts) {
+        this.parts = parts;
+    }
+
+    /*
+     * Bỏ qua kho rỗng, làm phẳng các kho ghép lồng nhau; chỉ còn một kho thì trả về chính nó
+     */
+    public static TransactionArchive of(TransactionArchive... archives) {
+        List<TransactionArchive> parts = new ArrayList<>();
+        for (TransactionArchive archive : archives) {
+            if (archive instanceof CompositeTransactionArchive) {
+                parts.addAll(((CompositeTransactionArchive) archive).parts);
+            } else if (archive != null && archive.size() > 0) {
+                parts.add(archive);
+            }
+        }
+        if (parts.isEmpty()) {
+            return TransactionArchive.EMPTY;
+        }
+        return parts.size() == 1 ? parts.get(0) : new CompositeTransactionArchive(List.copyOf(parts));
+    }
+
+    public List<TransactionArchive> getParts() {
+        return parts;
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (TransactionArchive part : parts) {
+            size += part.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean contains(String transactionId) {
+        for (TransactionArchive part : parts) {
+            if (part.contains(transactionId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String transactionId) {
+        for (TransactionArchive part : parts) {
+            Optional<Transaction> found = part.findById(transactionId);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> findByMemberId(String memberId) {
+        return mergeAll(part -> part.findByMemberId(memberId));
+    }
+
+    @Override
+    public List<Transaction> findByBookIsbn(String isbn) {
+        return mergeAll(part -> part.findByBookIsbn(isbn));
+    }
+
+    @Override
+    public List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to) {
+        return mergeAll(part -> part.findByBorrowDateBetween(from, to));
+    }
+
+    @Override
+    public List<Transaction> findNewest(int limit) {
+        List<Iterator<Transaction>> sources = new ArrayList<>(parts.size());
+        for (TransactionArchive part : parts) {
+            sources.add(part.findNewest(limit).iterator());
+        }
+        List<Transaction> result = new ArrayList<>();
+        Iterator<Transaction> merged = merge(sources, BY_BORROW_DATE.reversed());
+        while (result.size() < limit && merged.hasNext()) {
+            result.add(merged.next());
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        List<Iterator<Transaction>> sources = new ArrayList<>(parts.size());
+        for (TransactionArchive part : parts) {
+            sources.add(part.iterator());
+        }
+        return merge(sources, BY_BORROW_DATE);
+    }
+
+    @Override
+    public double totalLateFees() {
+        double total = 0.0;
+        for (TransactionArchive part : parts) {
+            total += part.totalLateFees();
+        }
+        return total;
+    }
+
+    private List<Transaction> mergeAll(Function<TransactionArchive, List<Transaction>> query) {
+        List<Iterator<Transaction>> sources = new ArrayList<>(parts.size());
+        int total = 0;
+        for (TransactionArchive part : parts) {
+            List<Transaction> found = query.apply(part);
+            total += found.size();
+            sources.add(found.iterator());
+        }
+        List<Transaction> result = new ArrayList<>(total);
+        merge(sources, BY_BORROW_DATE).forEachRemaining(result::add);
+        return result;
+    }
+
+    /*
+     * Trộn các dòng đã sắp theo order; hai phần tử bằng nhau thì dòng đứng trước ra trước
+     */
+    private static Iterator<Transaction> merge(List<Iterator<Transaction>> sources, Comparator<Transaction> order) {
+        PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+            int byOrder = order.compare(a.transaction, b.transaction);
+            return byOrder != 0 ? byOrder : Integer.compare(a.source, b.source);
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).hasNext()) {
+                heads.add(new Head(sources.get(i).next(), i));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Transaction next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Iterator<Transaction> source = sources.get(head.source);
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), head.source));
+                }
+                return head.transaction;
+            }
+        };
+    }
+
+    private static final class Head {
+        private final Transaction transaction;
+        private final int source;
+
+        private Head(Transaction transaction, int source) {
+            this.transaction = transaction;
+            this.source = source;
+        }
+    }
+}
@@ -1,23 +1,69 @@
 package com.library.repository;
 
 import com.library.model.Member;
+import com.library.util.IdSequence;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/*
+ * An toàn khi nhiều luồng dùng chung: ghi tuần tự hóa bằng writeLock (giữ email duy nhất và index tên
+ * khớp với dữ liệu), đọc không khóa.
+ */
 public class MemberRepository {
+    private final ReentrantLock writeLock = new ReentrantLock();
     private final Map<String, Member> members;
+    private final TextIndex nameIndex;
+
+    // Email (chữ thường) -> memberId, và ngược lại để đổi khóa khi email thay đổi
+    private final Map<String, String> memberIdByEmail;
+    private final Map<String, String> indexedEmails;
+
+    // Mã thành viên "MEM-" + 8 chữ số hex; mọi mã được lưu đều được ghi nhận để dãy không cấp trùng
+    private final IdSequence memberIds = new IdSequence("MEM-", 8);
 
     public MemberRepository() {
-        this.members = new HashMap<>();
+        this.members = new ConcurrentHashMap<>();
+        this.nameIndex = new TextIndex();
+        this.memberIdByEmail = new ConcurrentHashMap<>();
+        this.indexedEmails = new ConcurrentHashMap<>();
     }
 
-    public void save(Member member) {
-        if (member != null && member.getMemberId() != null) {
+    /*
+     * Trả về false (và không lưu) nếu email đã thuộc về thành viên khác
+     */
+    public boolean save(Member member) {
+        if (member == null || member.getMemberId() == null) {
+            return false;
+        }
+        memberIds.observe(member.getMemberId());
+        writeLock.lock();
+        try {
+            if (!claimEmail(member.getMemberId(), member.getEmail())) {
+                return false;
+            }
             members.put(member.getMemberId(), member);
+            nameIndex.put(member.getMemberId(), member.getName());
+            return true;
+        } finally {
+            writeLock.unlock();
         }
     }
 
+    /*
+     * Cấp mã thành viên mới, không trùng với mã nào đã lưu
+     */
+    public String nextId() {
+        return memberIds.nextId();
+    }
+
+    public IdSequence getIdSequence() {
+        return memberIds;
+    }
+
     public Optional<Member> findById(String memberId) {
         return Optional.ofNullable(members.get(memberId));
     }
@@ -27,9 +73,8 @@ public class MemberRepository {
             return Optional.empty();
         }
 
-        return members.values().stream()
-                .filter(member -> member.getEmail().equalsIgnoreCase(email))
-                .findFirst();
+        String memberId = memberIdByEmail.get(normalizeEmail(email));
+        return memberId == null ? Optional.empty() : Optional.ofNullable(members.get(memberId));
     }
 
     public List<Member> findByName(String name) {
@@ -37,9 +82,12 @@ public class MemberRepository {
             return new ArrayList<>();
         }
 
-        String searchTerm = name.toLowerCase();
-        return members.values().stream()
-                .filter(member -> member.getName().toLowerCase().contains(searchTerm))
+        String searchTerm = TextIndex.normalize(name);
+        Set<String> candidates = nameIndex.candidates(searchTerm);
+        Collection<Member> scope = candidates == null ? members.values()
+                : candidates.stream().map(members::get).filter(Objects::nonNull).collect(Collectors.toList());
+        return scope.stream()
+                .filter(member -> TextIndex.normalize(member.getName()).contains(searchTerm))
                 .collect(Collectors.toList());
     }
 
@@ -54,12 +102,59 @@ public class MemberRepository {
     }
 
     public boolean deleteById(String memberId) {
-        return members.remove(memberId) != null;
+        if (memberId == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            if (members.remove(memberId) == null) {
+                return false;
+            }
+            nameIndex.remove(memberId);
+            releaseEmail(memberId);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public void update(Member member) {
-        if (member != null && member.getMemberId() != null && members.containsKey(member.getMemberId())) {
+    /*
+     * Trả về false (và không cập nhật) nếu email mới đã thuộc về thành viên khác
+     */
+    public boolean update(Member member) {
+        if (member == null || member.getMemberId() == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            if (!members.containsKey(member.getMemberId()) || !claimEmail(member.getMemberId(), member.getEmail())) {
+                return false;
+            }
             members.put(member.getMemberId(), member);
+            nameIndex.put(member.getMemberId(), member.getName());
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Đổi email của thành viên: giữ chỗ email mới trong index trước rồi mới setEmail,
+     * nên không bao giờ có hai thành viên trùng email.
+     */
+    public boolean changeEmail(Member member, String newEmail) {
+        if (member == null || member.getMemberId() == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            if (!members.containsKey(member.getMemberId()) || !claimEmail(member.getMemberId(), newEmail)) {
+                return false;
+            }
+            member.setEmail(newEmail);
+            return true;
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -68,7 +163,7 @@ public class MemberRepository {
     }
 
     public boolean existsByEmail(String email) {
-        return findByEmail(email).isPresent();
+        return email != null && memberIdByEmail.containsKey(normalizeEmail(email));
     }
 
     public long count() {
@@ -81,8 +176,31 @@ public class MemberRepository {
                 .count();
     }
 
+    /*
+     * Duyệt mà không sao chép danh sách (dùng khi ghi dữ liệu ra file)
+     */
+    public void forEach(Consumer<Member> action) {
+        members.values().forEach(action);
+    }
+
     public void clear() {
-        members.clear();
+        writeLock.lock();
+        try {
+            members.clear();
+            nameIndex.clear();
+            memberIds.reset();
+            memberIdByEmail.clear();
+            indexedEmails.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Ước lượng bộ nhớ của trigram index trên tên thành viên
+     */
+    public long estimateSearchIndexMemory() {
+        return nameIndex.estimatedGramMemoryBytes();
     }
 
     public List<Member> findMembersWithBorrowedBooks() {
@@ -90,4 +208,32 @@ public class MemberRepository {
                 .filter(member -> member.getBorrowedBookCount() > 0)
                 .collect(Collectors.toList());
     }
+
+    private boolean claimEmail(String memberId, String email) {
+        if (email == null) {
+            releaseEmail(memberId);
+            return true;
+        }
+        String key = normalizeEmail(email);
+        String owner = memberIdByEmail.putIfAbsent(key, memberId);
+        if (owner != null && !owner.equals(memberId)) {
+            return false;
+        }
+        String previous = indexedEmails.put(memberId, key);
+        if (previous != null && !previous.equals(key)) {
+            memberIdByEmail.remove(previous, memberId);
+        }
+        return true;
+    }
+
+    private void releaseEmail(String memberId) {
+        String previous = indexedEmails.remove(memberId);
+        if (previous != null) {
+            memberIdByEmail.remove(previous, memberId);
+        }
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.library.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Trigram index: mỗi bộ 3 ký tự liên tiếp (mã hóa thành long) -> tập id tài liệu.
+ * Trả lời truy vấn chuỗi con bất kỳ (vd. "urak" trong "murakami"): tài liệu khớp phải chứa
+ * mọi trigram của truy vấn, nên giao các posting list cho ra tập ứng viên nhỏ
+ * để kiểm tra lại bằng String.contains.
+ * Chỉ một luồng ghi tại một thời điểm (xem TextIndex); luồng đọc không khóa.
+ */
+class NGramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    // Ước lượng kích thước trên JVM 64-bit với compressed oops
+    private static final long BYTES_PER_GRAM = 32 + 16 + 16 + 64 + 4;   // node + Long + KeySetView + ConcurrentHashMap + slot
+    private static final long BYTES_PER_POSTING = 32 + 4;                // node + slot
+
+    private final Map<Long, Set<String>> postings;
+    private volatile long postingCount;
+
+    NGramIndex() {
+        this.postings = new ConcurrentHashMap<>();
+    }
+
+    void add(String docId, String normalizedText) {
+        for (long gram : grams(normalizedText)) {
+            if (postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(docId)) {
+                postingCount++;
+            }
+        }
+    }
+
+    void remove(String docId, String normalizedText) {
+        for (long gram : grams(normalizedText)) {
+            Set<String> docs = postings.get(gram);
+            if (docs != null && docs.remove(docId)) {
+                postingCount--;
+                if (docs.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        postingCount = 0;
+    }
+
+    static boolean canAnswer(String normalizedQuery) {
+        return normalizedQuery.length() >= GRAM_LENGTH;
+    }
+
+    /*
+     * Tập ứng viên cho truy vấn có ít nhất GRAM_LENGTH ký tự.
+     */
+    Set<String> candidates(String normalizedQuery) {
+        List<Set<String>> lists = new ArrayList<>();
+        for (long gram : grams(normalizedQuery)) {
+            Set<String> docs = postings.get(gram);
+            if (docs == null) {
+                return new HashSet<>();
+            }
+            lists.add(docs);
+        }
+
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    long estimatedMemoryBytes() {
+        return postings.size() * BYTES_PER_GRAM + postingCount * BYTES_PER_POSTING;
+    }
+
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,69 @@
+package com.library.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Index tìm kiếm chuỗi con cho một trường văn bản (tên sách, tác giả, ISBN, tên thành viên).
+ * Kết hợp TokenIndex (khớp nguyên từ/tiền tố/hậu tố) và NGramIndex (chuỗi con nằm giữa từ),
+ * được repository cập nhật mỗi lần save/update/delete.
+ * Ghi do repository tuần tự hóa (giữ khóa ghi); đọc (candidates) không khóa, chạy song song với ghi.
+ */
+class TextIndex {
+    private final TokenIndex tokenIndex;
+    private final NGramIndex gramIndex;
+    private final Map<String, String> indexedText;
+
+    TextIndex() {
+        this.tokenIndex = new TokenIndex();
+        this.gramIndex = new NGramIndex();
+        this.indexedText = new ConcurrentHashMap<>();
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    void put(String docId, String text) {
+        String normalized = normalize(text);
+        String previous = indexedText.put(docId, normalized);
+        if (normalized.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            tokenIndex.remove(docId, previous);
+            gramIndex.remove(docId, previous);
+        }
+        tokenIndex.add(docId, normalized);
+        gramIndex.add(docId, normalized);
+    }
+
+    void remove(String docId) {
+        String previous = indexedText.remove(docId);
+        if (previous != null) {
+            tokenIndex.remove(docId, previous);
+            gramIndex.remove(docId, previous);
+        }
+    }
+
+    void clear() {
+        tokenIndex.clear();
+        gramIndex.clear();
+        indexedText.clear();
+    }
+
+    /*
+     * Tập ứng viên (có thể thừa, không bao giờ thiếu) cho truy vấn đã normalize,
+     * hoặc null nếu không thể thu hẹp và phải quét toàn bộ.
+     */
+    Set<String> candidates(String normalizedQuery) {
+        if (NGramIndex.canAnswer(normalizedQuery) && tokenIndex.isInfixOnly(normalizedQuery)) {
+            return gramIndex.candidates(normalizedQuery);
+        }
+        return tokenIndex.candidates(normalizedQuery);
+    }
+
+    long estimatedGramMemoryBytes() {
+        return gramIndex.estimatedMemoryBytes();
+    }
+}
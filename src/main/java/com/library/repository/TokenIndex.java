@@ -0,0 +1,172 @@
+package com.library.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * Inverted index: token (chữ thường) -> tập id tài liệu.
+ * Dùng để thu hẹp ứng viên cho truy vấn "contains" trước khi kiểm tra lại bằng String.contains,
+ * nên kết quả luôn giống hệt việc quét toàn bộ.
+ *
+ * Token là chuỗi liên tiếp các ký tự chữ/số trong văn bản đã toLowerCase(). Mọi token của truy vấn
+ * đều nằm trọn trong một token của văn bản khớp, và vị trí của nó cho biết cách tra cứu:
+ * - token có dấu phân cách ở cả hai phía trong truy vấn -> phải khớp nguyên token
+ * - chỉ có phân cách phía trước -> là tiền tố của một token (quét khoảng trên TreeMap)
+ * - chỉ có phân cách phía sau -> là hậu tố (quét khoảng trên TreeMap token đảo ngược)
+ * - không có phân cách nào -> chuỗi con bất kỳ, phải quét từ vựng (fallback)
+ *
+ * Chỉ một luồng ghi tại một thời điểm (xem TextIndex); luồng đọc không khóa.
+ */
+class TokenIndex {
+    private final NavigableMap<String, Set<String>> postings;
+    private final NavigableMap<String, Set<String>> reversedPostings;
+
+    TokenIndex() {
+        this.postings = new ConcurrentSkipListMap<>();
+        this.reversedPostings = new ConcurrentSkipListMap<>();
+    }
+
+    void add(String docId, String normalizedText) {
+        for (String token : tokenize(normalizedText)) {
+            postings.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(docId);
+            reversedPostings.computeIfAbsent(reverse(token), k -> ConcurrentHashMap.newKeySet()).add(docId);
+        }
+    }
+
+    void remove(String docId, String normalizedText) {
+        for (String token : tokenize(normalizedText)) {
+            removePosting(postings, token, docId);
+            removePosting(reversedPostings, reverse(token), docId);
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        reversedPostings.clear();
+    }
+
+    /*
+     * Trả về tập ứng viên có thể chứa truy vấn (đã normalize), hoặc null nếu truy vấn
+     * không có token nào và index không thể thu hẹp (khi đó phải quét toàn bộ).
+     */
+    Set<String> candidates(String query) {
+        List<QueryToken> tokens = parseQuery(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        // Token bị chặn (khớp nguyên/tiền tố/hậu tố) rẻ hơn nhiều so với quét từ vựng
+        tokens.sort(Comparator.comparing(QueryToken::isInfix)
+                .thenComparing(Comparator.comparingInt((QueryToken t) -> t.text.length()).reversed()));
+
+        Set<String> result = null;
+        for (QueryToken token : tokens) {
+            Set<String> matches = lookup(token);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    boolean isInfixOnly(String query) {
+        List<QueryToken> tokens = parseQuery(query);
+        return tokens.size() == 1 && tokens.get(0).isInfix();
+    }
+
+    private Set<String> lookup(QueryToken token) {
+        Set<String> result = new HashSet<>();
+        if (token.boundedBefore && token.boundedAfter) {
+            Set<String> exact = postings.get(token.text);
+            if (exact != null) {
+                result.addAll(exact);
+            }
+        } else if (token.boundedBefore) {
+            prefixRange(postings, token.text).values().forEach(result::addAll);
+        } else if (token.boundedAfter) {
+            prefixRange(reversedPostings, reverse(token.text)).values().forEach(result::addAll);
+        } else {
+            // Fallback cho chuỗi con nằm giữa token: quét từ vựng thay vì quét toàn bộ tài liệu
+            for (Map.Entry<String, Set<String>> entry : postings.entrySet()) {
+                if (entry.getKey().contains(token.text)) {
+                    result.addAll(entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void removePosting(Map<String, Set<String>> map, String key, String docId) {
+        Set<String> docs = map.get(key);
+        if (docs != null) {
+            docs.remove(docId);
+            if (docs.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static SortedMap<String, Set<String>> prefixRange(NavigableMap<String, Set<String>> map, String prefix) {
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    static Set<String> tokenize(String normalized) {
+        Set<String> tokens = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean tokenChar = i < normalized.length() && isTokenChar(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static List<QueryToken> parseQuery(String query) {
+        List<QueryToken> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= query.length(); i++) {
+            boolean tokenChar = i < query.length() && isTokenChar(query.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(new QueryToken(query.substring(start, i), start > 0, i < query.length()));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String reverse(String token) {
+        return new StringBuilder(token).reverse().toString();
+    }
+
+    private static final class QueryToken {
+        private final String text;
+        private final boolean boundedBefore;
+        private final boolean boundedAfter;
+
+        private QueryToken(String text, boolean boundedBefore, boolean boundedAfter) {
+            this.text = text;
+            this.boundedBefore = boundedBefore;
+            this.boundedAfter = boundedAfter;
+        }
+
+        private boolean isInfix() {
+            return !boundedBefore && !boundedAfter;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.library.repository;
+
+import com.library.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/*
+ * Kho giao dịch đã trả, chỉ đọc, nằm ngoài heap (vd. vùng file snapshot được ánh xạ bộ nhớ).
+ * Giao dịch chỉ được dựng thành đối tượng khi truy cập; mỗi lần truy cập trả về bản mới,
+ * muốn sửa thì phải lưu lại qua TransactionRepository.
+ * Các danh sách trả về đều tăng dần theo ngày mượn, trừ findNewest.
+ */
+public interface TransactionArchive {
+    TransactionArchive EMPTY = new TransactionArchive() {
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public boolean contains(String transactionId) {
+            return false;
+        }
+
+        @Override
+        public Optional<Transaction> findById(String transactionId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<Transaction> findByMemberId(String memberId) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Transaction> findByBookIsbn(String isbn) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Transaction> findNewest(int limit) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public double totalLateFees() {
+            return 0.0;
+        }
+    };
+
+    long size();
+
+    boolean contains(String transactionId);
+
+    Optional<Transaction> findById(String transactionId);
+
+    List<Transaction> findByMemberId(String memberId);
+
+    List<Transaction> findByBookIsbn(String isbn);
+
+    List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to);
+
+    /*
+     * Tối đa limit giao dịch mới nhất, giảm dần theo ngày mượn
+     */
+    List<Transaction> findNewest(int limit);
+
+    /*
+     * Duyệt toàn bộ, tăng dần theo ngày mượn
+     */
+    Iterator<Transaction> iterator();
+
+    default void forEach(Consumer<Transaction> action) {
+        iterator().forEachRemaining(action);
+    }
+
+    double totalLateFees();
+}
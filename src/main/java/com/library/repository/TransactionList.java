@@ -0,0 +1,99 @@
+package com.library.repository;
+
+import com.library.model.Transaction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Danh sách giao dịch tăng dần theo ngày mượn cho index theo thành viên/ISBN của TransactionRepository.
+ *
+ * Một luồng ghi tại một thời điểm (người gọi giữ writeLock của repository), đọc không khóa qua view().
+ * Thêm vào cuối - trường hợp thường gặp vì giao dịch mới có ngày mượn muộn nhất - chỉ ghi vào ô trống
+ * phía sau kích thước đã công bố rồi công bố State mới, nên O(1) khấu hao thay vì chép cả lịch sử của
+ * thành viên/cuốn sách như danh sách chép-khi-ghi. Mảng đầy thì nhân đôi sang mảng mới.
+ * Chèn giữa (dữ liệu nạp lệch thứ tự) và xóa (save đè, chuyển xuống tầng lạnh) thì chép sang mảng mới:
+ * ô đã công bố không bao giờ bị ghi lại, nên mỗi view() là một ảnh chụp bất biến.
+ */
+final class TransactionList {
+    private static final Comparator<Transaction> BY_BORROW_DATE = Comparator.comparingLong(Transaction::getBorrowEpochSecond);
+    private static final int MIN_CAPACITY = 4;
+
+    private volatile State state = new State(new Transaction[MIN_CAPACITY], 0);
+
+    /*
+     * Chèn theo ngày mượn, sau các giao dịch cùng ngày mượn
+     */
+    void add(Transaction transaction) {
+        State current = state;
+        Transaction[] items = current.items;
+        int size = current.size;
+        if (size == 0 || BY_BORROW_DATE.compare(items[size - 1], transaction) <= 0) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size] = transaction;
+            state = new State(items, size + 1);
+            return;
+        }
+
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BY_BORROW_DATE.compare(items[mid], transaction) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        Transaction[] copy = new Transaction[Math.max(items.length, size + 1)];
+        System.arraycopy(items, 0, copy, 0, low);
+        copy[low] = transaction;
+        System.arraycopy(items, low, copy, low + 1, size - low);
+        state = new State(copy, size + 1);
+    }
+
+    /*
+     * Bỏ giao dịch (so sánh ==), tìm từ cuối vì giao dịch bị sửa thường là giao dịch mới
+     */
+    boolean remove(Transaction transaction) {
+        State current = state;
+        Transaction[] items = current.items;
+        int size = current.size;
+        for (int i = size - 1; i >= 0; i--) {
+            if (items[i] == transaction) {
+                Transaction[] copy = new Transaction[Math.max(MIN_CAPACITY, size - 1)];
+                System.arraycopy(items, 0, copy, 0, i);
+                System.arraycopy(items, i + 1, copy, i, size - i - 1);
+                state = new State(copy, size - 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isEmpty() {
+        return state.size == 0;
+    }
+
+    /*
+     * Ảnh chụp chỉ đọc, không sao chép
+     */
+    List<Transaction> view() {
+        State current = state;
+        return Collections.unmodifiableList(Arrays.asList(current.items).subList(0, current.size));
+    }
+
+    private static final class State {
+        private final Transaction[] items;
+        private final int size;
+
+        private State(Transaction[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+    }
+}
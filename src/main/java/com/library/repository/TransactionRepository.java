@@ -1,113 +1,607 @@
 package com.library.repository;
 
 import com.library.model.Transaction;
+import com.library.util.IdSequence;
+import com.library.util.Isbn;
+import com.library.util.IsbnKeys;
+import com.library.util.LongObjectMap;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/*
+ * Giao dịch nằm ở hai tầng: tầng nóng trên heap (mọi giao dịch chưa trả và giao dịch mới) và một
+ * TransactionArchive chỉ đọc cho giao dịch đã trả (nạp lười từ snapshot, cộng các segment lạnh được
+ * chuyển xuống bằng moveToArchive). Truy vấn trộn hai tầng;
+ * giao dịch trong kho được lưu lại (save/update) thì bản trên heap che bản trong kho.
+ *
+ * An toàn khi nhiều luồng dùng chung: thao tác ghi được tuần tự hóa bằng writeLock để các index phụ luôn
+ * khớp nhau, còn thao tác đọc không khóa (ConcurrentHashMap, ConcurrentSkipListMap, TransactionList)
+ * nên đọc song song mở rộng theo số nhân. Đọc trong lúc đang ghi có thể chưa thấy thay đổi đó.
+ */
 public class TransactionRepository {
+    private static final Comparator<Transaction> BY_BORROW_DATE = Comparator.comparingLong(Transaction::getBorrowEpochSecond);
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
     private final Map<String, Transaction> transactions;
-    private final List<Transaction> transactionHistory;
+    // Lịch sử theo thứ tự lưu: số thứ tự -> giao dịch; transactionId -> số thứ tự để update không phải quét
+    private final NavigableMap<Long, Transaction> transactionHistory;
+    private final Map<String, Long> historySlots;
+    private long nextSlot;
+
+    // Index phụ: memberId/ISBN -> giao dịch (tăng dần theo ngày mượn, TransactionList thêm cuối O(1)),
+    // và các giao dịch chưa trả (danh sách chép-khi-ghi theo thành viên, ngắn vì có giới hạn mượn).
+    // Index theo ISBN dùng khóa long (Transaction.getBookIsbnKey, hoặc khóa trong isbnKeys cho ISBN cũ sai chữ số
+    // kiểm tra), ghi dưới writeLock nên một luồng ghi.
+    private final Map<String, TransactionList> transactionsByMember;
+    private final LongObjectMap<TransactionList> transactionsByIsbn;
+    private final Map<String, Transaction> openLoans;
+    private final LongObjectMap<Transaction> openLoanByIsbn;
+    private final Map<String, List<Transaction>> openLoansByMember;
+    private final IsbnKeys isbnKeys = new IsbnKeys();
+    // Toàn bộ giao dịch sắp theo (ngày mượn, số thứ tự) cho truy vấn gần đây/khoảng thời gian
+    private final NavigableMap<TimeKey, Transaction> transactionsByBorrowDate;
+    // Giao dịch chưa trả sắp theo hạn trả: tập quá hạn là phần đầu (headMap) tới thời điểm hiện tại
+    private final NavigableMap<TimeKey, Transaction> openLoansByDueDate;
+
+    // Đếm quá hạn tăng dần: số giao dịch chưa trả có hạn trả (giây epoch) < overdueCursor
+    // (Transaction.NO_TIME khi chưa đếm lần nào; chỉ dùng khi giữ writeLock)
+    private long overdueCursor = Transaction.NO_TIME;
+    private long overdueCount;
+
+    // Mã giao dịch "TXN-" + 12 chữ số hex; mã trong kho được snapshot ghi lại qua getIdSequence
+    private final IdSequence transactionIds = new IdSequence("TXN-", 12);
+
+    private volatile TransactionArchive archive = TransactionArchive.EMPTY;
+    // Giao dịch trong kho đã có bản trên heap, và tổng phí trễ hạn của các bản trong kho đó
+    private final Set<String> shadowedArchiveIds = ConcurrentHashMap.newKeySet();
+    private volatile double shadowedLateFees;
 
     public TransactionRepository() {
-        this.transactions = new HashMap<>();
-        this.transactionHistory = new ArrayList<>();
+        this.transactions = new ConcurrentHashMap<>();
+        this.transactionHistory = new ConcurrentSkipListMap<>();
+        this.historySlots = new ConcurrentHashMap<>();
+        this.transactionsByMember = new ConcurrentHashMap<>();
+        this.transactionsByIsbn = new LongObjectMap<>();
+        this.openLoans = new ConcurrentHashMap<>();
+        this.openLoanByIsbn = new LongObjectMap<>();
+        this.openLoansByMember = new ConcurrentHashMap<>();
+        this.transactionsByBorrowDate = new ConcurrentSkipListMap<>();
+        this.openLoansByDueDate = new ConcurrentSkipListMap<>();
     }
 
     public void save(Transaction transaction) {
-        if (transaction != null && transaction.getTransactionId() != null) {
+        if (transaction == null || transaction.getTransactionId() == null) {
+            return;
+        }
+        transactionIds.observe(transaction.getTransactionId());
+        writeLock.lock();
+        try {
+            Transaction previous = transactions.get(transaction.getTransactionId());
+            if (previous != null) {
+                unindex(previous);
+            } else {
+                shadowArchived(transaction.getTransactionId());
+                historySlots.put(transaction.getTransactionId(), nextSlot++);
+            }
             transactions.put(transaction.getTransactionId(), transaction);
-            transactionHistory.add(transaction);
+            transactionHistory.put(historySlots.get(transaction.getTransactionId()), transaction);
+            index(transaction);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Gắn kho giao dịch đã trả (thay cho kho trước đó)
+     */
+    public void attachArchive(TransactionArchive archive) {
+        writeLock.lock();
+        try {
+            this.archive = archive;
+            shadowedArchiveIds.clear();
+            shadowedLateFees = 0.0;
+            transactions.keySet().forEach(this::shadowArchived);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public TransactionArchive getArchive() {
+        return archive;
+    }
+
+    /*
+     * Cấp mã giao dịch mới, không trùng với mã nào đã lưu
+     */
+    public String nextId() {
+        return transactionIds.nextId();
+    }
+
+    public IdSequence getIdSequence() {
+        return transactionIds;
+    }
+
+    /*
+     * Giao dịch đã trả trên heap có ngày trả trước cutoff, tăng dần theo ngày mượn: ứng viên chuyển
+     * xuống tầng lạnh. Bỏ qua các bản đang che một bản trong kho để kho không chứa trùng giao dịch.
+     */
+    public List<Transaction> findReturnedBefore(LocalDateTime cutoff) {
+        long cutoffSecond = epochSecond(cutoff);
+        writeLock.lock();
+        try {
+            List<Transaction> result = new ArrayList<>();
+            for (Transaction transaction : transactionsByBorrowDate.values()) {
+                if (transaction.isReturned() && transaction.getReturnEpochSecond() < cutoffSecond
+                        && !shadowedArchiveIds.contains(transaction.getTransactionId())) {
+                    result.add(transaction);
+                }
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Gắn thêm segment chứa đúng các giao dịch moved vào kho rồi bỏ chúng khỏi heap. Segment được gắn
+     * trước nên luồng đọc không bao giờ thấy thiếu giao dịch (chỉ có thể thấy trùng trong chốc lát).
+     * Giao dịch đã bị thay bằng bản khác kể từ lúc chọn thì giữ lại trên heap.
+     */
+    public void moveToArchive(Collection<Transaction> moved, TransactionArchive segment) {
+        writeLock.lock();
+        try {
+            archive = CompositeTransactionArchive.of(archive, segment);
+            for (Transaction transaction : moved) {
+                String transactionId = transaction.getTransactionId();
+                if (transactions.get(transactionId) == transaction) {
+                    unindex(transaction);
+                    transactions.remove(transactionId);
+                    transactionHistory.remove(historySlots.remove(transactionId));
+                } else {
+                    shadowArchived(transactionId);
+                }
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 
     public Optional<Transaction> findById(String transactionId) {
-        return Optional.ofNullable(transactions.get(transactionId));
+        Transaction transaction = transactions.get(transactionId);
+        return transaction != null ? Optional.of(transaction) : archive.findById(transactionId);
     }
 
     public List<Transaction> findByMemberId(String memberId) {
-        return transactions.values().stream()
-                .filter(t -> t.getMemberId().equals(memberId))
-                .sorted(Comparator.comparing(Transaction::getBorrowDate).reversed())
-                .collect(Collectors.toList());
+        return newestFirst(merge(viewOf(transactionsByMember.get(memberId)), archive.findByMemberId(memberId)));
     }
 
     public List<Transaction> findByBookIsbn(String isbn) {
-        return transactions.values().stream()
-                .filter(t -> t.getBookIsbn().equals(isbn))
-                .sorted(Comparator.comparing(Transaction::getBorrowDate).reversed())
-                .collect(Collectors.toList());
+        if (isbn == null) {
+            return new ArrayList<>();
+        }
+        // Kho lưu ISBN hợp lệ ở dạng chuẩn nên truy vấn cũng được chuẩn hóa; ISBN cũ giữ nguyên chuỗi gốc
+        long key = isbnKeys.lookupKey(isbn);
+        String archived = key >= 0 ? Isbn.toString(key) : isbn;
+        List<Transaction> hot = key == Isbn.INVALID ? null : viewOf(transactionsByIsbn.get(key));
+        return newestFirst(merge(hot, archive.findByBookIsbn(archived)));
     }
 
     public List<Transaction> findActiveTransactionsByMemberId(String memberId) {
-        return transactions.values().stream()
-                .filter(t -> t.getMemberId().equals(memberId))
-                .filter(t -> t.getReturnDate() == null)
-                .collect(Collectors.toList());
+        List<Transaction> active = openLoansByMember.get(memberId);
+        return active == null ? new ArrayList<>() : new ArrayList<>(active);
     }
 
     public Optional<Transaction> findActiveTransactionByBookIsbn(String isbn) {
-        return transactions.values().stream()
-                .filter(t -> t.getBookIsbn().equals(isbn))
-                .filter(t -> t.getReturnDate() == null)
-                .findFirst();
+        return Optional.ofNullable(openLoanByIsbn.get(isbnKeys.lookupKey(isbn)));
     }
 
     public List<Transaction> findOverdueTransactions() {
-        return transactions.values().stream()
-                .filter(Transaction::isOverdue)
-                .sorted(Comparator.comparing(Transaction::getDueDate))
-                .collect(Collectors.toList());
+        return findOverdueTransactions(LocalDateTime.now());
+    }
+
+    /*
+     * Giao dịch chưa trả có hạn trả trước thời điểm now, tăng dần theo hạn trả
+     */
+    public List<Transaction> findOverdueTransactions(LocalDateTime now) {
+        return new ArrayList<>(openLoansByDueDate.headMap(dueBefore(epochSecond(now)), false).values());
+    }
+
+    public long countOverdue() {
+        return countOverdue(LocalDateTime.now());
+    }
+
+    /*
+     * Dịch con trỏ từ lần đếm trước tới now và chỉ đếm các giao dịch vừa qua hạn (hoặc vừa hết quá hạn
+     * nếu đồng hồ lùi lại), nên chi phí là O(log n) cộng số giao dịch đi qua con trỏ.
+     * Con trỏ là trạng thái dùng chung nên việc đếm giữ writeLock.
+     */
+    public long countOverdue(LocalDateTime now) {
+        long nowSecond = epochSecond(now);
+        writeLock.lock();
+        try {
+            if (overdueCursor == Transaction.NO_TIME) {
+                overdueCount = openLoansByDueDate.headMap(dueBefore(nowSecond), false).size();
+            } else if (nowSecond > overdueCursor) {
+                overdueCount += openLoansByDueDate.subMap(dueBefore(overdueCursor), true, dueBefore(nowSecond), false).size();
+            } else if (nowSecond < overdueCursor) {
+                overdueCount -= openLoansByDueDate.subMap(dueBefore(nowSecond), true, dueBefore(overdueCursor), false).size();
+            }
+            overdueCursor = nowSecond;
+            return overdueCount;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public List<Transaction> findAll() {
-        return new ArrayList<>(transactionHistory);
+        List<Transaction> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
     }
 
     public List<Transaction> findRecentTransactions(int limit) {
-        return transactionHistory.stream()
-                .sorted(Comparator.comparing(Transaction::getBorrowDate).reversed())
+        TransactionArchive archive = this.archive;
+        List<Transaction> recent = transactionsByBorrowDate.descendingMap().values().stream()
                 .limit(limit)
                 .collect(Collectors.toList());
+        if (archive.size() == 0) {
+            return recent;
+        }
+        List<Transaction> archived = unshadowed(archive.findNewest(limit + shadowedArchiveIds.size()));
+        List<Transaction> merged = new ArrayList<>(recent.size() + archived.size());
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < recent.size() || j < archived.size())) {
+            if (j == archived.size()
+                    || (i < recent.size() && BY_BORROW_DATE.compare(recent.get(i), archived.get(j)) >= 0)) {
+                merged.add(recent.get(i++));
+            } else {
+                merged.add(archived.get(j++));
+            }
+        }
+        return merged;
     }
 
-    public void update(Transaction transaction) {
-        if (transaction != null && transaction.getTransactionId() != null
-                && transactions.containsKey(transaction.getTransactionId())) {
-            transactions.put(transaction.getTransactionId(), transaction);
+    /*
+     * Các giao dịch có ngày mượn trong [from, to], tăng dần theo ngày mượn
+     */
+    public List<Transaction> findByBorrowDateBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        List<Transaction> hot = new ArrayList<>(transactionsByBorrowDate.subMap(
+                new TimeKey(epochSecond(from), Long.MIN_VALUE), true,
+                new TimeKey(epochSecond(to), Long.MAX_VALUE), true).values());
+        return merge(hot, archive.findByBorrowDateBetween(from, to));
+    }
 
-            for (int i = 0; i < transactionHistory.size(); i++) {
-                if (transactionHistory.get(i).getTransactionId().equals(transaction.getTransactionId())) {
-                    transactionHistory.set(i, transaction);
-                    break;
+    public void update(Transaction transaction) {
+        if (transaction == null || transaction.getTransactionId() == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Transaction current = transactions.get(transaction.getTransactionId());
+            if (current == transaction) {
+                // Sửa tại chỗ (completeReturn) chỉ đổi trạng thái trả: thành viên, ISBN và ngày mượn giữ nguyên
+                // nên lịch sử và các index theo thành viên/ISBN/ngày mượn không đổi, chỉ cập nhật index khoản mượn
+                if (transaction.isReturned()) {
+                    closeLoan(transaction, isbnKeyOf(transaction));
+                } else if (!openLoans.containsKey(transaction.getTransactionId())) {
+                    openLoan(transaction, isbnKeyOf(transaction));
                 }
+            } else if (current != null || archive.contains(transaction.getTransactionId())) {
+                // Bản khác cùng mã thì index lại toàn bộ; bản dựng từ kho được đưa lên heap, che bản trong kho
+                save(transaction);
             }
+        } finally {
+            writeLock.unlock();
         }
     }
 
     public boolean existsById(String transactionId) {
-        return transactions.containsKey(transactionId);
+        return transactions.containsKey(transactionId) || archive.contains(transactionId);
     }
 
     public long count() {
-        return transactions.size();
+        return transactions.size() + archive.size() - shadowedArchiveIds.size();
     }
 
     public long countActive() {
-        return transactions.values().stream()
-                .filter(t -> t.getReturnDate() == null)
-                .count();
+        return openLoans.size();
     }
 
     public double calculateTotalLateFees() {
-        return transactions.values().stream()
-                .filter(t -> t.getReturnDate() != null)
-                .mapToDouble(Transaction::getLateFee)
-                .sum();
+        double hot = transactions.values().stream()
+                .filter(Transaction::isReturned)
+                .mapToLong(Transaction::getLateFeeCents)
+                .sum() / 100.0;
+        return hot + archive.totalLateFees() - shadowedLateFees;
+    }
+
+    /*
+     * Duyệt mà không sao chép danh sách: giao dịch trong kho trước, rồi tới tầng nóng theo thứ tự lưu
+     */
+    public void forEach(Consumer<Transaction> action) {
+        forEachArchived(action);
+        transactionHistory.values().forEach(action);
+    }
+
+    /*
+     * Giao dịch chưa trả (đều nằm trên heap), theo thứ tự lưu
+     */
+    public void forEachActive(Consumer<Transaction> action) {
+        for (Transaction transaction : transactionHistory.values()) {
+            if (!transaction.isReturned()) {
+                action.accept(transaction);
+            }
+        }
+    }
+
+    /*
+     * Giao dịch đã trả của cả hai tầng, tăng dần theo ngày mượn (dùng khi ghi snapshot).
+     * Trộn theo dòng nên không dựng hết kho lên heap.
+     */
+    public void forEachReturned(Consumer<Transaction> action) {
+        Iterator<Transaction> hot = transactionsByBorrowDate.values().stream()
+                .filter(Transaction::isReturned)
+                .iterator();
+        Transaction[] next = {hot.hasNext() ? hot.next() : null};
+        forEachArchived(archived -> {
+            while (next[0] != null && BY_BORROW_DATE.compare(next[0], archived) <= 0) {
+                action.accept(next[0]);
+                next[0] = hot.hasNext() ? hot.next() : null;
+            }
+            action.accept(archived);
+        });
+        if (next[0] != null) {
+            action.accept(next[0]);
+        }
+        hot.forEachRemaining(action);
     }
 
     public void clear() {
-        transactions.clear();
-        transactionHistory.clear();
+        writeLock.lock();
+        try {
+            transactions.clear();
+            transactionHistory.clear();
+            historySlots.clear();
+            transactionsByMember.clear();
+            transactionsByIsbn.clear();
+            isbnKeys.clear();
+            openLoans.clear();
+            openLoanByIsbn.clear();
+            openLoansByMember.clear();
+            transactionsByBorrowDate.clear();
+            openLoansByDueDate.clear();
+            overdueCursor = Transaction.NO_TIME;
+            overdueCount = 0;
+            nextSlot = 0;
+            archive = TransactionArchive.EMPTY;
+            shadowedArchiveIds.clear();
+            shadowedLateFees = 0.0;
+            transactionIds.reset();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void shadowArchived(String transactionId) {
+        if (archive.size() == 0 || shadowedArchiveIds.contains(transactionId)) {
+            return;
+        }
+        archive.findById(transactionId).ifPresent(archived -> {
+            shadowedArchiveIds.add(transactionId);
+            shadowedLateFees += archived.getLateFee();
+        });
+    }
+
+    private void forEachArchived(Consumer<Transaction> action) {
+        if (shadowedArchiveIds.isEmpty()) {
+            archive.forEach(action);
+        } else {
+            archive.forEach(archived -> {
+                if (!shadowedArchiveIds.contains(archived.getTransactionId())) {
+                    action.accept(archived);
+                }
+            });
+        }
+    }
+
+    private List<Transaction> unshadowed(List<Transaction> archived) {
+        if (!shadowedArchiveIds.isEmpty()) {
+            archived.removeIf(t -> shadowedArchiveIds.contains(t.getTransactionId()));
+        }
+        return archived;
+    }
+
+    /*
+     * Trộn danh sách tầng nóng (tăng dần theo ngày mượn, có thể null) với danh sách từ kho
+     */
+    private List<Transaction> merge(List<Transaction> hot, List<Transaction> archived) {
+        if (archived.isEmpty()) {
+            return hot == null ? new ArrayList<>() : new ArrayList<>(hot);
+        }
+        unshadowed(archived);
+        if (hot == null || hot.isEmpty()) {
+            return archived;
+        }
+        List<Transaction> merged = new ArrayList<>(hot.size() + archived.size());
+        int i = 0;
+        int j = 0;
+        while (i < hot.size() || j < archived.size()) {
+            if (j == archived.size()
+                    || (i < hot.size() && BY_BORROW_DATE.compare(hot.get(i), archived.get(j)) <= 0)) {
+                merged.add(hot.get(i++));
+            } else {
+                merged.add(archived.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private void index(Transaction transaction) {
+        transactionsByBorrowDate.put(borrowKey(transaction), transaction);
+        long isbnKey = transaction.getBookIsbnKey();
+        if (isbnKey == Isbn.INVALID) {
+            isbnKey = isbnKeys.key(transaction.getBookIsbn());
+        }
+        transactionsByMember.computeIfAbsent(transaction.getMemberId(), id -> new TransactionList()).add(transaction);
+        if (isbnKey != Isbn.INVALID) {
+            TransactionList byIsbn = transactionsByIsbn.get(isbnKey);
+            if (byIsbn == null) {
+                byIsbn = new TransactionList();
+                transactionsByIsbn.put(isbnKey, byIsbn);
+            }
+            byIsbn.add(transaction);
+        }
+
+        if (!transaction.isReturned()) {
+            openLoan(transaction, isbnKey);
+        }
+    }
+
+    private void unindex(Transaction transaction) {
+        transactionsByBorrowDate.remove(borrowKey(transaction));
+        long isbnKey = isbnKeyOf(transaction);
+        TransactionList byMember = transactionsByMember.get(transaction.getMemberId());
+        if (byMember != null && byMember.remove(transaction) && byMember.isEmpty()) {
+            transactionsByMember.remove(transaction.getMemberId());
+        }
+        if (isbnKey != Isbn.INVALID) {
+            TransactionList byIsbn = transactionsByIsbn.get(isbnKey);
+            if (byIsbn != null && byIsbn.remove(transaction) && byIsbn.isEmpty()) {
+                transactionsByIsbn.remove(isbnKey);
+            }
+        }
+        closeLoan(transaction, isbnKey);
+    }
+
+    /*
+     * Thêm vào các index khoản mượn: O(log số khoản đang mượn), danh sách theo thành viên ngắn vì có giới hạn mượn
+     */
+    private void openLoan(Transaction transaction, long isbnKey) {
+        openLoans.put(transaction.getTransactionId(), transaction);
+        if (isbnKey != Isbn.INVALID) {
+            openLoanByIsbn.put(isbnKey, transaction);
+        }
+        List<Transaction> active = openLoansByMember.get(transaction.getMemberId());
+        List<Transaction> updated = new ArrayList<>(active == null ? 1 : active.size() + 1);
+        if (active != null) {
+            updated.addAll(active);
+        }
+        updated.add(transaction);
+        openLoansByMember.put(transaction.getMemberId(), updated);
+        openLoansByDueDate.put(dueKey(transaction), transaction);
+        if (isBeforeOverdueCursor(transaction)) {
+            overdueCount++;
+        }
+    }
+
+    private void closeLoan(Transaction transaction, long isbnKey) {
+        if (openLoans.remove(transaction.getTransactionId()) == null) {
+            return;
+        }
+        if (isbnKey != Isbn.INVALID) {
+            openLoanByIsbn.remove(isbnKey, transaction);
+        }
+        removeFrom(openLoansByMember, transaction.getMemberId(), transaction);
+        openLoansByDueDate.remove(dueKey(transaction));
+        if (isBeforeOverdueCursor(transaction)) {
+            overdueCount--;
+        }
+    }
+
+    private long isbnKeyOf(Transaction transaction) {
+        long isbnKey = transaction.getBookIsbnKey();
+        return isbnKey != Isbn.INVALID ? isbnKey : isbnKeys.lookupKey(transaction.getBookIsbn());
+    }
+
+    /*
+     * Bản sao không còn giao dịch (so sánh ==): null nếu danh sách thành rỗng, chính current nếu không có
+     */
+    private static List<Transaction> without(List<Transaction> current, Transaction transaction) {
+        if (current == null) {
+            return null;
+        }
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (current.get(i) == transaction) {
+                if (current.size() == 1) {
+                    return null;
+                }
+                List<Transaction> list = new ArrayList<>(current);
+                list.remove(i);
+                return list;
+            }
+        }
+        return current;
+    }
+
+    private static void removeFrom(Map<String, List<Transaction>> index, String key, Transaction transaction) {
+        List<Transaction> current = index.get(key);
+        List<Transaction> updated = without(current, transaction);
+        if (updated == null) {
+            index.remove(key);
+        } else if (updated != current) {
+            index.put(key, updated);
+        }
+    }
+
+    private static List<Transaction> viewOf(TransactionList list) {
+        return list == null ? null : list.view();
+    }
+
+    private TimeKey borrowKey(Transaction transaction) {
+        return new TimeKey(transaction.getBorrowEpochSecond(), historySlots.get(transaction.getTransactionId()));
+    }
+
+    private TimeKey dueKey(Transaction transaction) {
+        return new TimeKey(transaction.getDueEpochSecond(), historySlots.get(transaction.getTransactionId()));
+    }
+
+    private static TimeKey dueBefore(long second) {
+        return new TimeKey(second, Long.MIN_VALUE);
+    }
+
+    // Cùng cách quy đổi với Transaction (giây epoch UTC, bỏ phần lẻ)
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private boolean isBeforeOverdueCursor(Transaction transaction) {
+        return overdueCursor != Transaction.NO_TIME && transaction.getDueEpochSecond() < overdueCursor;
+    }
+
+    private static List<Transaction> newestFirst(List<Transaction> list) {
+        Collections.reverse(list);
+        return list;
+    }
+
+    /*
+     * Khóa sắp xếp theo thời điểm (giây epoch của ngày mượn hoặc hạn trả); số thứ tự trong lịch sử phân biệt
+     * các giao dịch cùng thời điểm
+     */
+    private static final class TimeKey implements Comparable<TimeKey> {
+        private final long time;
+        private final long slot;
+
+        private TimeKey(long time, long slot) {
+            this.time = time;
+            this.slot = slot;
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byDate = Long.compare(time, other.time);
+            return byDate != 0 ? byDate : Long.compare(slot, other.slot);
+        }
     }
 }
\ No newline at end of file
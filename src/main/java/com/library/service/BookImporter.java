@@ -0,0 +1,295 @@
+package com.library.service;
+
+import com.library.model.Book;
+import com.library.util.InputValidator;
+import com.library.util.Isbn;
+import com.library.util.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Nhập danh mục sách hàng loạt từ file CSV/TSV/JSON-lines (isbn, title, author, publicationYear).
+ * File được đọc từng lô CHUNK_SIZE dòng nên bộ nhớ không phụ thuộc kích thước file; mỗi lô được
+ * phân tích và kiểm tra song song trên các nhân, lọc trùng trong lô và với sách đã có,
+ * rồi ghi vào repository trong một lần (xem BookService.addValidatedBooks).
+ */
+public class BookImporter {
+    static final int CHUNK_SIZE = 10_000;
+    static final int MAX_REPORTED_REJECTIONS = 1_000;
+
+    public enum Format {
+        CSV, TSV, JSONL;
+
+        /*
+         * Đoán định dạng theo đuôi file (.csv, .tsv/.tab, .jsonl/.ndjson)
+         */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+                return TSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Không nhận ra định dạng file: " + name);
+        }
+    }
+
+    private final BookService bookService;
+
+    public BookImporter(BookService bookService) {
+        this.bookService = bookService;
+    }
+
+    public ImportReport importFile(Path file) throws IOException {
+        return importFile(file, Format.forFile(file));
+    }
+
+    public ImportReport importFile(Path file, Format format) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, format);
+        }
+    }
+
+    public ImportReport importFrom(BufferedReader reader, Format format) throws IOException {
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && isHeader(line, format))) {
+                continue;
+            }
+            chunk.add(new Row(lineNumber, line));
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, format, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, format, report);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void importChunk(List<Row> chunk, Format format, ImportReport report) {
+        // Phân tích + kiểm tra song song; kết quả giữ thứ tự dòng
+        List<Row> parsed = chunk.parallelStream()
+                .map(row -> parse(row, format))
+                .collect(Collectors.toList());
+
+        List<Book> batch = new ArrayList<>(parsed.size());
+        Map<String, Long> firstLine = new HashMap<>();
+        for (Row row : parsed) {
+            report.rowsRead++;
+            if (row.error != null) {
+                report.reject(row.lineNumber, row.error);
+                continue;
+            }
+            Long previous = firstLine.putIfAbsent(row.book.getIsbn(), row.lineNumber);
+            if (previous != null) {
+                report.reject(row.lineNumber, "Trùng ISBN với dòng " + previous + ": " + row.book.getIsbn());
+                continue;
+            }
+            batch.add(row.book);
+        }
+
+        Set<Book> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        added.addAll(bookService.addValidatedBooks(batch));
+        report.imported += added.size();
+        if (added.size() < batch.size()) {
+            for (Book book : batch) {
+                if (!added.contains(book)) {
+                    report.reject(firstLine.get(book.getIsbn()), "Sách với mã ISBN " + book.getIsbn() + " đã tồn tại");
+                }
+            }
+        }
+    }
+
+    private static Row parse(Row row, Format format) {
+        List<String> fields;
+        try {
+            fields = split(row.line, format);
+        } catch (IllegalArgumentException e) {
+            return row.fail(e.getMessage());
+        }
+        if (fields.size() != 4) {
+            return row.fail("Cần 4 cột (isbn, title, author, publicationYear), có " + fields.size());
+        }
+        String isbn = fields.get(0) == null ? null : fields.get(0).trim();
+        String title = fields.get(1);
+        String author = fields.get(2);
+        int year;
+        try {
+            year = Integer.parseInt(fields.get(3) == null ? "" : fields.get(3).trim());
+        } catch (NumberFormatException e) {
+            return row.fail("Năm xuất bản không phải số: " + fields.get(3));
+        }
+
+        // Cùng các điều kiện như BookService.addBook
+        long isbn13 = Isbn.parse(isbn);
+        if (isbn13 == Isbn.INVALID) {
+            return row.fail("ISBN không hợp lệ: " + isbn);
+        }
+        if (!InputValidator.isNotEmpty(title)) {
+            return row.fail("Tên sách không được để trống");
+        }
+        if (!InputValidator.isNotEmpty(author)) {
+            return row.fail("Tên tác giả không được để trống");
+        }
+        if (!InputValidator.isValidPublicationYear(year)) {
+            return row.fail("Năm xuất bản không hợp lệ: " + year);
+        }
+        row.book = new Book(isbn, title.trim(), author.trim(), year);
+        return row;
+    }
+
+    private static List<String> split(String line, Format format) {
+        switch (format) {
+            case TSV:
+                return Arrays.asList(line.split("\t", -1));
+            case JSONL:
+                Map<String, String> object = Json.parseObject(line);
+                return Arrays.asList(object.get("isbn"), object.get("title"),
+                        object.get("author"), object.get("publicationYear"));
+            default:
+                return splitCsv(line);
+        }
+    }
+
+    /*
+     * Một dòng CSV: trường có thể nằm trong "...", "" là dấu nháy. Không hỗ trợ xuống dòng trong trường.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Thiếu dấu \" đóng");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean isHeader(String line, Format format) {
+        if (format == Format.JSONL) {
+            return false;
+        }
+        String first = line.split(format == Format.TSV ? "\t" : ",", 2)[0];
+        return first.replace("\"", "").trim().equalsIgnoreCase("isbn");
+    }
+
+    private static final class Row {
+        private final long lineNumber;
+        private final String line;
+        private Book book;
+        private String error;
+
+        Row(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        Row fail(String error) {
+            this.error = error;
+            return this;
+        }
+    }
+
+    public static final class Rejection {
+        private final long lineNumber;
+        private final String reason;
+
+        Rejection(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Dòng " + lineNumber + ": " + reason;
+        }
+    }
+
+    /*
+     * Kết quả nhập: chỉ giữ MAX_REPORTED_REJECTIONS dòng lỗi đầu tiên, số lỗi thì đếm đủ
+     */
+    public static final class ImportReport {
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long elapsedNanos;
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        private void reject(long lineNumber, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(lineNumber, reason));
+            }
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public List<Rejection> getRejections() {
+            return Collections.unmodifiableList(rejections);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+    }
+}
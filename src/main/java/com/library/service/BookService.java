@@ -2,105 +2,213 @@ package com.library.service;
 
 import com.library.exception.BookNotFoundException;
 import com.library.exception.InvalidOperationException;
+import com.library.metrics.MetricsRegistry;
 import com.library.model.Book;
 import com.library.model.BookStatus;
+import com.library.persistence.MutationLog;
 import com.library.repository.BookRepository;
 import com.library.util.InputValidator;
+import com.library.util.Isbn;
+import com.library.util.StripedLock;
 
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
+/*
+ * Thao tác đổi trạng thái một cuốn sách giữ khóa dải theo ISBN (kiểm tra rồi ghi là nguyên tử).
+ * Bản ghi nhật ký được đưa vào hàng đợi khi còn giữ khóa, còn việc chờ ghi xuống đĩa diễn ra sau khi nhả khóa.
+ */
 public class BookService {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+
     private final BookRepository bookRepository;
+    private final LibraryStatistics statistics;
+    private final MutationLog mutationLog;
+    private final StripedLock bookLocks = new StripedLock();
 
     public BookService(BookRepository bookRepository) {
+        this(bookRepository, new LibraryStatistics());
+    }
+
+    public BookService(BookRepository bookRepository, LibraryStatistics statistics) {
+        this(bookRepository, statistics, MutationLog.NONE);
+    }
+
+    public BookService(BookRepository bookRepository, LibraryStatistics statistics, MutationLog mutationLog) {
         this.bookRepository = bookRepository;
+        this.statistics = statistics;
+        this.mutationLog = mutationLog;
     }
 
     public Book addBook(String isbn, String title, String author, int publicationYear)
             throws InvalidOperationException {
+        return METRICS.time("book.addBook", () -> {
+            // Validation
+            if (!InputValidator.isValidIsbn(isbn)) {
+                throw new InvalidOperationException("ISBN không hợp lệ: " + isbn);
+            }
+            if (!InputValidator.isNotEmpty(title)) {
+                throw new InvalidOperationException("Tên sách không được để trống");
+            }
+            if (!InputValidator.isNotEmpty(author)) {
+                throw new InvalidOperationException("Tên tác giả không được để trống");
+            }
+            if (!InputValidator.isValidPublicationYear(publicationYear)) {
+                throw new InvalidOperationException("Năm xuất bản không hợp lệ: " + publicationYear);
+            }
+
+            // Giữ nguyên cách viết của người nhập để hiển thị/tìm kiếm; dạng chuẩn chỉ dùng làm khóa
+            // ("0-13-235088-2" và "9780132350884" vẫn là cùng một cuốn)
+            Book book = new Book(isbn, title, author, publicationYear);
+            long lsn;
+            Lock lock = lockFor(isbn);
+            lock.lock();
+            try {
+                if (!bookRepository.saveIfAbsent(book)) {
+                    throw new InvalidOperationException("Sách với mã ISBN " + isbn + " đã tồn tại");
+                }
+                statistics.bookAdded(book.getStatus());
+                lsn = mutationLog.bookAdded(book);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+
+            return book;
+        });
+    }
 
-        // Validation
-        if (!InputValidator.isValidIsbn(isbn)) {
-            throw new InvalidOperationException("ISBN không hợp lệ: " + isbn);
+    /*
+     * Thêm một lô sách đã được kiểm tra hợp lệ (dùng cho BookImporter): một lần ghi vào repository
+     * và chờ nhật ký một lần cho cả lô. Sách trùng ISBN với sách đã có bị bỏ qua; trả về các sách đã thêm.
+     */
+    List<Book> addValidatedBooks(List<Book> books) {
+        long[] isbns = new long[books.size()];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = Isbn.parse(books.get(i).getIsbn());
         }
-        if (!InputValidator.isNotEmpty(title)) {
-            throw new InvalidOperationException("Tên sách không được để trống");
+        List<Book> added;
+        long lsn = 0;
+        // Giữ khóa dải của cả lô để không ai mượn sách mới trước khi bản ghi thêm sách vào nhật ký
+        List<Lock> locked = bookLocks.lockAll(isbns);
+        try {
+            added = bookRepository.saveAllIfAbsent(books);
+            for (Book book : added) {
+                lsn = mutationLog.bookAdded(book);
+            }
+            statistics.booksAdded(BookStatus.AVAILABLE, added.size());
+        } finally {
+            StripedLock.unlockAll(locked);
         }
-        if (!InputValidator.isNotEmpty(author)) {
-            throw new InvalidOperationException("Tên tác giả không được để trống");
-        }
-        if (!InputValidator.isValidPublicationYear(publicationYear)) {
-            throw new InvalidOperationException("Năm xuất bản không hợp lệ: " + publicationYear);
-        }
-
-        if (bookRepository.existsByIsbn(isbn)) {
-            throw new InvalidOperationException("Sách với mã ISBN " + isbn + " đã tồn tại");
-        }
-
-        Book book = new Book(isbn, title, author, publicationYear);
-        bookRepository.save(book);
-
-        return book;
+        mutationLog.awaitDurable(lsn);
+        return added;
     }
 
     public void removeBook(String isbn) throws BookNotFoundException, InvalidOperationException {
-        Book book = bookRepository.findByIsbn(isbn)
-                .orElseThrow(() -> BookNotFoundException.forIsbn(isbn));
-
-        if (book.getStatus() == BookStatus.BORROWED) {
-            throw new InvalidOperationException("Không thể xóa một sách đang được mượn. ISBN: " + isbn);
-        }
-
-        bookRepository.deleteByIsbn(isbn);
+        METRICS.<BookNotFoundException, InvalidOperationException, RuntimeException>run("book.removeBook", () -> {
+            long lsn;
+            Lock lock = lockFor(isbn);
+            lock.lock();
+            try {
+                Book book = bookRepository.findByIsbn(isbn)
+                        .orElseThrow(() -> BookNotFoundException.forIsbn(isbn));
+
+                if (book.getStatus() == BookStatus.BORROWED) {
+                    throw new InvalidOperationException("Không thể xóa một sách đang được mượn. ISBN: " + isbn);
+                }
+
+                if (!bookRepository.deleteByIsbn(isbn)) {
+                    return;
+                }
+                statistics.bookRemoved(book.getStatus());
+                lsn = mutationLog.bookRemoved(isbn);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+        });
     }
 
     public Book findBookByIsbn(String isbn) throws BookNotFoundException {
-        return bookRepository.findByIsbn(isbn)
-                .orElseThrow(() -> BookNotFoundException.forIsbn(isbn));
+        return METRICS.time("book.findBookByIsbn", () -> bookRepository.findByIsbn(isbn)
+                .orElseThrow(() -> BookNotFoundException.forIsbn(isbn)));
     }
 
 
     public List<Book> searchBooksByTitle(String title) {
-        return bookRepository.findByTitle(title);
+        return METRICS.time("book.searchBooksByTitle", () -> bookRepository.findByTitle(title));
     }
 
     public List<Book> searchBooksByAuthor(String author) {
-        return bookRepository.findByAuthor(author);
+        return METRICS.time("book.searchBooksByAuthor", () -> bookRepository.findByAuthor(author));
     }
 
     public List<Book> searchBooks(String keyword) {
-        return bookRepository.search(keyword);
+        return METRICS.time("book.searchBooks", () -> bookRepository.search(keyword));
     }
 
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return METRICS.time("book.getAllBooks", () -> bookRepository.findAll());
     }
 
     public List<Book> getAvailableBooks() {
-        return bookRepository.findByStatus(BookStatus.AVAILABLE);
+        return METRICS.time("book.getAvailableBooks", () -> bookRepository.findByStatus(BookStatus.AVAILABLE));
     }
 
     public List<Book> getBorrowedBooks() {
-        return bookRepository.findByStatus(BookStatus.BORROWED);
+        return METRICS.time("book.getBorrowedBooks", () -> bookRepository.findByStatus(BookStatus.BORROWED));
     }
 
     public void updateBookStatus(String isbn, BookStatus status) throws BookNotFoundException {
+        METRICS.run("book.updateBookStatus", () -> {
+            long lsn;
+            Lock lock = lockFor(isbn);
+            lock.lock();
+            try {
+                applyBookStatus(isbn, status);
+                lsn = mutationLog.bookStatusChanged(isbn, status);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+        });
+    }
+
+    /*
+     * Khóa dải của một ISBN; ai giữ đồng thời khóa thành viên thì phải lấy khóa thành viên trước
+     */
+    Lock lockFor(String isbn) {
+        // ISBN cũ sai chữ số kiểm tra (INVALID) dùng chung một dải
+        return bookLocks.lockFor(Isbn.parse(isbn));
+    }
+
+    /*
+     * Đổi trạng thái mà không ghi nhật ký riêng: dùng khi mượn/trả, bản ghi giao dịch đã bao gồm trạng thái sách.
+     * Người gọi giữ khóa của ISBN.
+     */
+    void applyBookStatus(String isbn, BookStatus status) throws BookNotFoundException {
         Book book = findBookByIsbn(isbn);
+        BookStatus oldStatus = book.getStatus();
         book.setStatus(status);
         bookRepository.update(book);
+        statistics.bookStatusChanged(oldStatus, status);
     }
 
     public long getTotalBookCount() {
-        return bookRepository.count();
+        return METRICS.time("book.getTotalBookCount", () -> bookRepository.count());
     }
 
     public long getAvailableBookCount() {
-        return bookRepository.countAvailable();
+        return METRICS.time("book.getAvailableBookCount", () -> bookRepository.countAvailable());
+    }
+
+    public long getSearchIndexMemory() {
+        return METRICS.time("book.getSearchIndexMemory", () -> bookRepository.estimateSearchIndexMemory());
     }
 
     public boolean isBookAvailable(String isbn) {
-        return bookRepository.findByIsbn(isbn)
+        return METRICS.time("book.isBookAvailable", () -> bookRepository.findByIsbn(isbn)
                 .map(book -> book.getStatus() == BookStatus.AVAILABLE)
-                .orElse(false);
+                .orElse(false));
     }
 }
\ No newline at end of file
@@ -1,11 +1,23 @@
 package com.library.service;
 
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.MetricsReporter;
+import com.library.metrics.PersistenceEvent;
+import com.library.metrics.Timer;
+import com.library.persistence.BinarySnapshot;
+import com.library.persistence.ColdTier;
+import com.library.persistence.MutationLog;
+import com.library.persistence.SnapshotCompactor;
+import com.library.persistence.WriteAheadLog;
 import com.library.repository.BookRepository;
 import com.library.repository.MemberRepository;
 import com.library.repository.TransactionRepository;
 
 import java.io.*;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /*
@@ -14,26 +26,67 @@ import java.util.Map;
  * Facade pattern, Singleton pattern, I/O, Serialization
  */
 public class LibraryService {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+
     private static LibraryService instance;
-    private static final String DATA_FILE = "library_data.ser";
+    private static final String DATA_FILE = "library_data.bin";
+    private static final String LEGACY_DATA_FILE = "library_data.ser";
+    private static final String LOG_FILE = "library_data.wal";
+    private static final String COMPACT_BYTES_PROPERTY = "library.wal.compactBytes";
+    private static final long DEFAULT_COMPACT_BYTES = 64L * 1024 * 1024;
+    private static final String LAZY_LOAD_PROPERTY = "library.load.lazy";
+    private static final String COLD_DIRECTORY = "library_data.cold";
+
+    // Thay cả bộ khi loadData thành công (xem useRepositories), nên không final
+    private volatile BookRepository bookRepository;
+    private volatile MemberRepository memberRepository;
+    private volatile TransactionRepository transactionRepository;
 
-    private final BookRepository bookRepository;
-    private final MemberRepository memberRepository;
-    private final TransactionRepository transactionRepository;
+    private final LibraryStatistics statistics;
+    private final WriteAheadLog writeAheadLog;
+    private final MutationLog mutationLog;
+    private final SnapshotCompactor snapshotCompactor;
+    private final ColdTier coldTier;
+    private final MetricsReporter metricsReporter;
 
-    private final BookService bookService;
-    private final MemberService memberService;
-    private final TransactionService transactionService;
+    private volatile BookService bookService;
+    private volatile MemberService memberService;
+    private volatile TransactionService transactionService;
 
     private LibraryService() {
-        this.bookRepository = new BookRepository();
-        this.memberRepository = new MemberRepository();
-        this.transactionRepository = new TransactionRepository();
+        this.statistics = new LibraryStatistics();
+        // Tắt nhật ký bằng -Dlibrary.wal.enabled=false (khi đó chỉ còn lưu thủ công)
+        this.writeAheadLog = WriteAheadLog.isEnabled() ? new WriteAheadLog(Path.of(LOG_FILE), Path.of(DATA_FILE)) : null;
+        this.mutationLog = writeAheadLog != null ? writeAheadLog : MutationLog.NONE;
+        this.snapshotCompactor = writeAheadLog != null
+                ? new SnapshotCompactor(Path.of(DATA_FILE), writeAheadLog) : null;
+        if (snapshotCompactor != null) {
+            // Nhật ký lớn quá ngưỡng thì tự gộp vào snapshot ở nền
+            writeAheadLog.setRotationListener(Long.getLong(COMPACT_BYTES_PROPERTY, DEFAULT_COMPACT_BYTES),
+                    snapshotCompactor::requestSnapshot);
+        }
+        // Giao dịch đã trả quá -Dlibrary.tier.days ngày được chuyển khỏi heap xuống đĩa
+        this.coldTier = ColdTier.isEnabled() ? new ColdTier(Path.of(COLD_DIRECTORY)) : null;
+        // Ghi số liệu hiệu năng ra file theo chu kỳ khi đặt -Dlibrary.metrics.dumpSeconds
+        this.metricsReporter = MetricsReporter.fromSystemProperties(METRICS);
+
+        useRepositories(new BookRepository(), new MemberRepository(), new TransactionRepository());
+    }
 
-        this.bookService = new BookService(bookRepository);
-        this.memberService = new MemberService(memberRepository);
+    /*
+     * Chuyển sang bộ repository mới và dựng lại các service trên đó
+     */
+    private void useRepositories(BookRepository bookRepository, MemberRepository memberRepository,
+                                 TransactionRepository transactionRepository) {
+        BookService bookService = new BookService(bookRepository, statistics, mutationLog);
+        MemberService memberService = new MemberService(memberRepository, statistics, mutationLog);
         this.transactionService = new TransactionService(
-                transactionRepository, bookService, memberService);
+                transactionRepository, bookService, memberService, statistics, mutationLog);
+        this.bookService = bookService;
+        this.memberService = memberService;
+        this.bookRepository = bookRepository;
+        this.memberRepository = memberRepository;
+        this.transactionRepository = transactionRepository;
     }
 
     /*
@@ -58,40 +111,152 @@ public class LibraryService {
         return transactionService;
     }
 
+    public LibraryStatistics getStatistics() {
+        return statistics;
+    }
+
     /*
-     * Lưu dữ liệu ra file
+     * Lưu dữ liệu ra file (snapshot nhị phân, xem BinarySnapshot). Mọi thao tác đã nằm trong
+     * nhật ký WAL nên việc này chỉ để rút gọn nhật ký, và chạy ở nền (xem SnapshotCompactor).
+     * Khi tắt nhật ký thì ghi snapshot trực tiếp từ repository như trước.
      */
     public void saveData() throws IOException {
-        Map<String, Object> data = new HashMap<>();
-        data.put("books", bookRepository.findAll());
-        data.put("members", memberRepository.findAll());
-        data.put("transactions", transactionRepository.findAll());
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            METRICS.run("persistence.saveData", this::writeData);
+            succeeded = true;
+        } finally {
+            event.end("saveData", DATA_FILE, snapshotCompactor != null, statistics.getTotalBooks(),
+                    statistics.getTotalMembers(), statistics.getTotalTransactions(), succeeded);
+        }
+    }
 
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(data);
+    private void writeData() throws IOException {
+        tierColdTransactions();
+        if (snapshotCompactor != null) {
+            snapshotCompactor.requestSnapshot();
+            return;
         }
+        BinarySnapshot.write(Path.of(DATA_FILE), bookRepository, memberRepository, transactionRepository);
+    }
+
+    public SnapshotCompactor getSnapshotCompactor() {
+        return snapshotCompactor;
     }
 
     /*
-     * Load dữ liệu từ file
+     * Chuyển giao dịch đã trả quá hạn lưu nóng xuống tầng lạnh; chạy sau khi nạp dữ liệu và mỗi lần lưu
+     */
+    public int tierColdTransactions() throws IOException {
+        return METRICS.time("persistence.tierColdTransactions", () -> {
+            if (coldTier == null) {
+                return 0;
+            }
+            return coldTier.moveReturnedBefore(transactionRepository,
+                    LocalDateTime.now().minusDays(ColdTier.getTierDays()));
+        });
+    }
+
+    /*
+     * Load dữ liệu từ file. Nếu chưa có snapshot nhị phân thì đọc file Java serialization cũ;
+     * lần lưu tiếp theo sẽ chuyển sang định dạng mới. Sau đó phát lại nhật ký WAL
+     * (các thao tác từ sau lần lưu cuối) lên trên snapshot.
+     *
+     * Dữ liệu được nạp vào bộ repository mới và chỉ thay bộ đang dùng khi mọi bước thành công:
+     * snapshot hỏng giữa chừng (CRC kiểm ở cuối) thì dữ liệu hiện tại và tầng lạnh vẫn nguyên vẹn.
+     * Gọi trước khi mở console/API (các service được dựng lại).
      */
-    @SuppressWarnings("unchecked")
     public void loadData() throws IOException, ClassNotFoundException {
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            METRICS.<IOException, ClassNotFoundException, RuntimeException>run("persistence.loadData", this::readData);
+            succeeded = true;
+        } finally {
+            event.end("loadData", DATA_FILE, false, statistics.getTotalBooks(),
+                    statistics.getTotalMembers(), statistics.getTotalTransactions(), succeeded);
+        }
+    }
+
+    private void readData() throws IOException, ClassNotFoundException {
         File file = new File(DATA_FILE);
-        if (!file.exists() || file.length() == 0) {
+        File legacyFile = new File(LEGACY_DATA_FILE);
+        File logFile = new File(LOG_FILE);
+        // Snapshot có nhiều thế hệ (library_data.bin.<n>), BinarySnapshot đọc thế hệ mới nhất
+        Path snapshot = BinarySnapshot.current(file.toPath());
+        boolean hasSnapshot = snapshot != null && Files.size(snapshot) > 0;
+        boolean hasLegacy = legacyFile.exists() && legacyFile.length() > 0;
+        boolean hasLog = writeAheadLog != null && logFile.exists() && logFile.length() > 0;
+        if (!hasSnapshot && !hasLegacy && !hasLog) {
             throw new FileNotFoundException("Không tìm thấy file dữ liệu");
         }
 
+        BookRepository books = new BookRepository();
+        MemberRepository members = new MemberRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        long lsn = 0;
+        if (hasSnapshot && isLazyLoadEnabled()) {
+            // Giao dịch đã trả nằm lại trong file ánh xạ bộ nhớ, chỉ dựng khi được truy cập
+            lsn = BinarySnapshot.open(file.toPath(), books, members, transactions);
+        } else if (hasSnapshot) {
+            lsn = BinarySnapshot.read(file.toPath(), books, members, transactions);
+        } else if (hasLegacy) {
+            loadLegacyData(legacyFile, books, members, transactions);
+        }
+        if (writeAheadLog != null) {
+            long lastLsn = WriteAheadLog.replay(logFile.toPath(), lsn, books, members, transactions);
+            writeAheadLog.resumeAfter(lastLsn);
+            if (!hasSnapshot && hasLegacy) {
+                // Dữ liệu cũ không nằm trong nhật ký: chuyển ngay sang snapshot để việc gộp nền có điểm xuất phát
+                BinarySnapshot.write(file.toPath(), lastLsn, books, members, transactions);
+            }
+        }
+
+        // Segment tầng lạnh cũ thuộc về bộ repository bị thay, được tạo lại từ dữ liệu vừa nạp
+        if (coldTier != null) {
+            coldTier.reset();
+        }
+        useRepositories(books, members, transactions);
+        statistics.rebuild(books, members, transactions);
+        tierColdTransactions();
+    }
+
+    private static boolean isLazyLoadEnabled() {
+        return Boolean.parseBoolean(System.getProperty(LAZY_LOAD_PROPERTY, "true"));
+    }
+
+    /*
+     * Đóng nhật ký khi thoát chương trình
+     */
+    public void shutdown() throws IOException {
+        METRICS.run("persistence.shutdown", () -> {
+            if (snapshotCompactor != null) {
+                snapshotCompactor.close();
+            }
+            if (writeAheadLog != null) {
+                writeAheadLog.close();
+            }
+            if (coldTier != null) {
+                coldTier.close();
+            }
+            if (metricsReporter != null) {
+                metricsReporter.close();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void loadLegacyData(File legacyFile, BookRepository bookRepository,
+                                       MemberRepository memberRepository,
+                                       TransactionRepository transactionRepository)
+            throws IOException, ClassNotFoundException {
         try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(DATA_FILE))) {
+                new FileInputStream(legacyFile))) {
             Map<String, Object> data = (Map<String, Object>) ois.readObject();
 
-            // Xóa dữ liệu tồn tại
-            bookRepository.clear();
-            memberRepository.clear();
-            transactionRepository.clear();
-
             // Load sách
             if (data.containsKey("books")) {
                 ((java.util.List<com.library.model.Book>) data.get("books"))
@@ -118,22 +283,64 @@ public class LibraryService {
         stats.append("\n╔═══════════════════════════════════════════╗\n");
         stats.append("║     THỐNG KÊ THƯ VIỆN                     ║\n");
         stats.append("╠═══════════════════════════════════════════╣\n");
-        stats.append(String.format("║ Tổng sách:                    %-12d║\n", bookService.getTotalBookCount()));
-        stats.append(String.format("║ Sách còn:                     %-12d║\n", bookService.getAvailableBookCount()));
-        stats.append(String.format("║ Sách đã cho mượn:             %-12d║\n",
-                bookService.getTotalBookCount() - bookService.getAvailableBookCount()));
+        stats.append(String.format("║ Tổng sách:                    %-12d║\n", statistics.getTotalBooks()));
+        stats.append(String.format("║ Sách còn:                     %-12d║\n", statistics.getAvailableBooks()));
+        stats.append(String.format("║ Sách đã cho mượn:             %-12d║\n", statistics.getBorrowedBooks()));
+        stats.append("╠═══════════════════════════════════════════╣\n");
+        stats.append(String.format("║ Tổng thành viên:              %-12d║\n", statistics.getTotalMembers()));
+        stats.append(String.format("║ Thành viên hoạt động:         %-12d║\n", statistics.getActiveMembers()));
         stats.append("╠═══════════════════════════════════════════╣\n");
-        stats.append(String.format("║ Tổng thành viên:              %-12d║\n", memberService.getTotalMemberCount()));
-        stats.append(String.format("║ Thành viên hoạt động:         %-12d║\n", memberService.getActiveMemberCount()));
+        stats.append(String.format("║ Tổng giao dịch:               %-12d║\n", statistics.getTotalTransactions()));
+        stats.append(String.format("║ Giao dịch đang diễn ra:       %-12d║\n", statistics.getOpenLoans()));
+        stats.append(String.format("║ Giao dịch trả muộn:           %-12d║\n", transactionService.getOverdueTransactionCount()));
+        stats.append(String.format("║ Tổng tiền phạt trả muộn:      $%-11.2f║\n", statistics.getTotalLateFees()));
         stats.append("╠═══════════════════════════════════════════╣\n");
-        stats.append(String.format("║ Tổng giao dịch:               %-12d║\n", transactionService.getTotalTransactionCount()));
-        stats.append(String.format("║ Giao dịch đang diễn ra:       %-12d║\n", transactionService.getActiveTransactionCount()));
-        stats.append(String.format("║ Giao dịch trả muộn:           %-12d║\n", transactionService.getOverdueTransactions().size()));
-        stats.append(String.format("║ Tổng tiền phạt trả muộn:      $%-11.2f║\n", transactionService.getTotalLateFees()));
+        stats.append(String.format("║ Bộ nhớ chỉ mục tìm kiếm (KB): %-12d║\n",
+                (bookService.getSearchIndexMemory() + memberService.getSearchIndexMemory()) / 1024));
+        if (snapshotCompactor != null) {
+            stats.append(String.format("║ Snapshot nền đã tạo:          %-12d║\n", snapshotCompactor.getCompletedSnapshots()));
+            stats.append(String.format("║ Dừng ghi lần cuối (ms):       %-12.3f║\n", snapshotCompactor.getLastPauseNanos() / 1e6));
+            stats.append(String.format("║ Thời gian snapshot (ms):      %-12.1f║\n", snapshotCompactor.getLastDurationNanos() / 1e6));
+        }
+        if (coldTier != null) {
+            stats.append(String.format("║ Giao dịch ở tầng lạnh:        %-12d║\n", coldTier.getColdTransactionCount()));
+            stats.append(String.format("║ Segment tầng lạnh:            %-12d║\n", coldTier.getSegmentCount()));
+        }
         stats.append("╚═══════════════════════════════════════════╝\n");
+
+        if (snapshotCompactor != null && snapshotCompactor.getLastError() != null) {
+            stats.append("⚠️  Lỗi snapshot nền: ").append(snapshotCompactor.getLastError().getMessage()).append('\n');
+        }
+
+        // Chế độ kiểm tra (-Dlibrary.stats.verify=true): đối chiếu bộ đếm với quét toàn bộ
+        if (LibraryStatistics.isVerificationEnabled()) {
+            List<String> mismatches = statistics.verify(bookRepository, memberRepository, transactionRepository);
+            if (mismatches.isEmpty()) {
+                stats.append("✅ Bộ đếm khớp với dữ liệu\n");
+            } else {
+                mismatches.forEach(m -> stats.append("⚠️  Sai lệch bộ đếm - ").append(m).append('\n'));
+            }
+        }
         return stats.toString();
     }
 
+    /*
+     * Số lần gọi và độ trễ của các thao tác service/lưu trữ từ khi khởi động
+     */
+    public String getMetricsReport() {
+        if (!Timer.isEnabled()) {
+            return "Đo hiệu năng đang tắt (-D" + Timer.ENABLED_PROPERTY + "=false)\n";
+        }
+        StringBuilder report = new StringBuilder(METRICS.formatText());
+        if (metricsReporter != null) {
+            report.append("Ghi định kỳ vào ").append(metricsReporter.getFile().toAbsolutePath()).append('\n');
+            if (metricsReporter.getLastError() != null) {
+                report.append("⚠️  Lỗi ghi số liệu: ").append(metricsReporter.getLastError().getMessage()).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
     /*
      * Khởi tạo mẫu
      */
@@ -0,0 +1,181 @@
+package com.library.service;
+
+import com.library.model.BookStatus;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Bộ đếm thống kê được các service cập nhật sau mỗi thao tác thay đổi dữ liệu,
+ * để màn hình thống kê đọc trong O(1) thay vì quét toàn bộ repository.
+ * Số giao dịch quá hạn phụ thuộc thời gian nên vẫn lấy từ TransactionRepository.countOverdue.
+ */
+public class LibraryStatistics {
+    public static final String VERIFY_PROPERTY = "library.stats.verify";
+
+    private final LongAdder totalBooks = new LongAdder();
+    private final LongAdder availableBooks = new LongAdder();
+    private final LongAdder totalMembers = new LongAdder();
+    private final LongAdder activeMembers = new LongAdder();
+    private final LongAdder totalTransactions = new LongAdder();
+    private final LongAdder openLoans = new LongAdder();
+    private final LongAdder lateFeeCents = new LongAdder();
+
+    public void bookAdded(BookStatus status) {
+        totalBooks.increment();
+        if (status == BookStatus.AVAILABLE) {
+            availableBooks.increment();
+        }
+    }
+
+    public void booksAdded(BookStatus status, long count) {
+        totalBooks.add(count);
+        if (status == BookStatus.AVAILABLE) {
+            availableBooks.add(count);
+        }
+    }
+
+    public void bookRemoved(BookStatus status) {
+        totalBooks.decrement();
+        if (status == BookStatus.AVAILABLE) {
+            availableBooks.decrement();
+        }
+    }
+
+    public void bookStatusChanged(BookStatus oldStatus, BookStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        if (oldStatus == BookStatus.AVAILABLE) {
+            availableBooks.decrement();
+        } else if (newStatus == BookStatus.AVAILABLE) {
+            availableBooks.increment();
+        }
+    }
+
+    public void memberRegistered(boolean active) {
+        totalMembers.increment();
+        if (active) {
+            activeMembers.increment();
+        }
+    }
+
+    public void memberActivityChanged(boolean active) {
+        if (active) {
+            activeMembers.increment();
+        } else {
+            activeMembers.decrement();
+        }
+    }
+
+    public void loanOpened() {
+        totalTransactions.increment();
+        openLoans.increment();
+    }
+
+    public void loanClosed(double lateFee) {
+        openLoans.decrement();
+        lateFeeCents.add(toCents(lateFee));
+    }
+
+    public long getTotalBooks() {
+        return totalBooks.sum();
+    }
+
+    public long getAvailableBooks() {
+        return availableBooks.sum();
+    }
+
+    public long getBorrowedBooks() {
+        return getTotalBooks() - getAvailableBooks();
+    }
+
+    public long getTotalMembers() {
+        return totalMembers.sum();
+    }
+
+    public long getActiveMembers() {
+        return activeMembers.sum();
+    }
+
+    public long getTotalTransactions() {
+        return totalTransactions.sum();
+    }
+
+    public long getOpenLoans() {
+        return openLoans.sum();
+    }
+
+    public double getTotalLateFees() {
+        return lateFeeCents.sum() / 100.0;
+    }
+
+    /*
+     * Tính lại toàn bộ bộ đếm từ repository (sau khi load dữ liệu). Các bộ đếm lấy từ phép đếm của repository,
+     * không dựng lại giao dịch trong kho lưu trữ. Riêng phí trễ hạn vẫn quét một lượt các giao dịch ở tầng nóng
+     * (tầng lạnh dùng tổng tính sẵn), vì phí được sửa trực tiếp trên giao dịch nên repository không giữ tổng chạy.
+     */
+    public void rebuild(BookRepository bookRepository, MemberRepository memberRepository,
+                        TransactionRepository transactionRepository) {
+        reset(totalBooks, bookRepository.count());
+        reset(availableBooks, bookRepository.countAvailable());
+        reset(totalMembers, memberRepository.count());
+        reset(activeMembers, memberRepository.countActive());
+        reset(totalTransactions, transactionRepository.count());
+        reset(openLoans, transactionRepository.countActive());
+        reset(lateFeeCents, toCents(transactionRepository.calculateTotalLateFees()));
+    }
+
+    /*
+     * Chế độ kiểm tra: so sánh bộ đếm với kết quả quét toàn bộ, trả về danh sách sai lệch
+     */
+    public List<String> verify(BookRepository bookRepository, MemberRepository memberRepository,
+                               TransactionRepository transactionRepository) {
+        List<String> mismatches = new ArrayList<>();
+        check(mismatches, "totalBooks", getTotalBooks(), bookRepository.count());
+        check(mismatches, "availableBooks", getAvailableBooks(), bookRepository.countAvailable());
+        check(mismatches, "totalMembers", getTotalMembers(), memberRepository.count());
+        check(mismatches, "activeMembers", getActiveMembers(), memberRepository.countActive());
+        check(mismatches, "totalTransactions", getTotalTransactions(), transactionRepository.count());
+        check(mismatches, "openLoans", getOpenLoans(), scanOpenLoans(transactionRepository));
+        check(mismatches, "lateFeeCents", lateFeeCents.sum(), scanLateFeeCents(transactionRepository));
+        return mismatches;
+    }
+
+    public static boolean isVerificationEnabled() {
+        return Boolean.getBoolean(VERIFY_PROPERTY);
+    }
+
+    private static long scanOpenLoans(TransactionRepository transactionRepository) {
+        return transactionRepository.findAll().stream()
+                .filter(t -> !t.isReturned())
+                .count();
+    }
+
+    private static long scanLateFeeCents(TransactionRepository transactionRepository) {
+        return transactionRepository.findAll().stream()
+                .filter(Transaction::isReturned)
+                .mapToLong(Transaction::getLateFeeCents)
+                .sum();
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static void reset(LongAdder adder, long value) {
+        adder.reset();
+        adder.add(value);
+    }
+
+    private static void check(List<String> mismatches, String name, long counter, long scanned) {
+        if (counter != scanned) {
+            mismatches.add(String.format("%s: bộ đếm=%d, quét=%d", name, counter, scanned));
+        }
+    }
+}
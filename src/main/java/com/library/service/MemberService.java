@@ -2,149 +2,221 @@ package com.library.service;
 
 import com.library.exception.InvalidOperationException;
 import com.library.exception.MemberNotFoundException;
+import com.library.metrics.MetricsRegistry;
 import com.library.model.Member;
+import com.library.persistence.MutationLog;
 import com.library.repository.MemberRepository;
 import com.library.util.InputValidator;
+import com.library.util.StripedLock;
 
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 public class MemberService {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+
     private final MemberRepository memberRepository;
+    private final LibraryStatistics statistics;
+    private final MutationLog mutationLog;
     private static final int MAX_BORROW_LIMIT = 5;
+    // Khóa dải theo memberId cho các thao tác kiểm tra rồi đổi trạng thái thành viên
+    private final StripedLock memberLocks = new StripedLock();
 
     public MemberService(MemberRepository memberRepository) {
+        this(memberRepository, new LibraryStatistics());
+    }
+
+    public MemberService(MemberRepository memberRepository, LibraryStatistics statistics) {
+        this(memberRepository, statistics, MutationLog.NONE);
+    }
+
+    public MemberService(MemberRepository memberRepository, LibraryStatistics statistics, MutationLog mutationLog) {
         this.memberRepository = memberRepository;
+        this.statistics = statistics;
+        this.mutationLog = mutationLog;
     }
 
     public Member registerMember(String name, String email, String phone)
             throws InvalidOperationException {
+        return METRICS.time("member.registerMember", () -> {
+            if (!InputValidator.isNotEmpty(name)) {
+                throw new InvalidOperationException("Không được để trống tên");
+            }
+            if (!InputValidator.isValidEmail(email)) {
+                throw new InvalidOperationException("Sai định dạng Email: " + email);
+            }
+            if (!InputValidator.isValidPhone(phone)) {
+                throw new InvalidOperationException("Sai định dạng số điện thoại: " + phone);
+            }
+            if (memberRepository.existsByEmail(email)) {
+                throw new InvalidOperationException("Thành viên với Emil " + email + " đã tồn tại");
+            }
 
-        if (!InputValidator.isNotEmpty(name)) {
-            throw new InvalidOperationException("Không được để trống tên");
-        }
-        if (!InputValidator.isValidEmail(email)) {
-            throw new InvalidOperationException("Sai định dạng Email: " + email);
-        }
-        if (!InputValidator.isValidPhone(phone)) {
-            throw new InvalidOperationException("Sai định dạng số điện thoại: " + phone);
-        }
-        if (memberRepository.existsByEmail(email)) {
-            throw new InvalidOperationException("Thành viên với Emil " + email + " đã tồn tại");
-        }
-
-        String memberId = generateMemberId();
+            String memberId = memberRepository.nextId();
 
-        Member member = new Member(memberId, name, email, phone);
-        memberRepository.save(member);
+            Member member = new Member(memberId, name, email, phone);
+            if (!memberRepository.save(member)) {
+                throw new InvalidOperationException("Thành viên với Emil " + email + " đã tồn tại");
+            }
+            statistics.memberRegistered(member.isActive());
+            mutationLog.awaitDurable(mutationLog.memberSaved(member));
 
-        return member;
+            return member;
+        });
     }
 
     public Member findMemberById(String memberId) throws MemberNotFoundException {
-        return memberRepository.findById(memberId)
-                .orElseThrow(() -> MemberNotFoundException.forId(memberId));
+        return METRICS.time("member.findMemberById", () -> memberRepository.findById(memberId)
+                .orElseThrow(() -> MemberNotFoundException.forId(memberId)));
     }
 
     public Member findMemberByEmail(String email) throws MemberNotFoundException {
-        return memberRepository.findByEmail(email)
-                .orElseThrow(() -> MemberNotFoundException.forEmail(email));
+        return METRICS.time("member.findMemberByEmail", () -> memberRepository.findByEmail(email)
+                .orElseThrow(() -> MemberNotFoundException.forEmail(email)));
     }
 
     public List<Member> searchMembersByName(String name) {
-        return memberRepository.findByName(name);
+        return METRICS.time("member.searchMembersByName", () -> memberRepository.findByName(name));
     }
 
     public List<Member> getAllMembers() {
-        return memberRepository.findAll();
+        return METRICS.time("member.getAllMembers", () -> memberRepository.findAll());
     }
 
     public List<Member> getActiveMembers() {
-        return memberRepository.findAllActive();
+        return METRICS.time("member.getActiveMembers", () -> memberRepository.findAllActive());
     }
 
     public void deactivateMember(String memberId) throws MemberNotFoundException, InvalidOperationException {
-        Member member = findMemberById(memberId);
-
-        if (member.getBorrowedBookCount() > 0) {
-            throw new InvalidOperationException(
-                    "Không thể hủy thành viên đang mượn sách. ID Thành viên: " + memberId);
-        }
-        if (!member.isActive()) {
-            throw new InvalidOperationException(
-                    "Thành viên này đã ở trạng thái không hoạt động: " + memberId);
-        }
-
-
-        member.setActive(false);
-        memberRepository.update(member);
+        METRICS.<MemberNotFoundException, InvalidOperationException, RuntimeException>run(
+                "member.deactivateMember", () -> {
+            long lsn;
+            Lock lock = lockFor(memberId);
+            lock.lock();
+            try {
+                Member member = findMemberById(memberId);
+
+                if (member.getBorrowedBookCount() > 0) {
+                    throw new InvalidOperationException(
+                            "Không thể hủy thành viên đang mượn sách. ID Thành viên: " + memberId);
+                }
+                if (!member.isActive()) {
+                    throw new InvalidOperationException(
+                            "Thành viên này đã ở trạng thái không hoạt động: " + memberId);
+                }
+
+                member.setActive(false);
+                memberRepository.update(member);
+                statistics.memberActivityChanged(false);
+                lsn = mutationLog.memberStatusChanged(memberId, false);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+        });
     }
 
     public void activateMember(String memberId) throws MemberNotFoundException, InvalidOperationException {
-        Member member = findMemberById(memberId);
-        if (member.isActive()) {
-            throw new InvalidOperationException(
-                    "Thành viên này đã ở trạng thái hoạt động: " + memberId);
-        }
-        member.setActive(true);
-        memberRepository.update(member);
+        METRICS.<MemberNotFoundException, InvalidOperationException, RuntimeException>run(
+                "member.activateMember", () -> {
+            long lsn;
+            Lock lock = lockFor(memberId);
+            lock.lock();
+            try {
+                Member member = findMemberById(memberId);
+                if (member.isActive()) {
+                    throw new InvalidOperationException(
+                            "Thành viên này đã ở trạng thái hoạt động: " + memberId);
+                }
+                member.setActive(true);
+                memberRepository.update(member);
+                statistics.memberActivityChanged(true);
+                lsn = mutationLog.memberStatusChanged(memberId, true);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+        });
     }
 
     public void updateMember(String memberId, String name, String email, String phone)
             throws MemberNotFoundException, InvalidOperationException {
+        METRICS.<MemberNotFoundException, InvalidOperationException, RuntimeException>run("member.updateMember", () -> {
+            long lsn;
+            Lock lock = lockFor(memberId);
+            lock.lock();
+            try {
+                lsn = applyMemberUpdate(memberId, name, email, phone);
+            } finally {
+                lock.unlock();
+            }
+            mutationLog.awaitDurable(lsn);
+        });
+    }
+
+    /*
+     * Khóa dải của một thành viên; thao tác cần cả khóa sách thì lấy khóa này trước
+     */
+    Lock lockFor(String memberId) {
+        return memberLocks.lockFor(memberId);
+    }
+
+    private long applyMemberUpdate(String memberId, String name, String email, String phone)
+            throws MemberNotFoundException, InvalidOperationException {
 
         Member member = findMemberById(memberId);
 
+        // Kiểm tra mọi trường và giữ email trước khi sửa thành viên: lỗi giữa chừng không để lại thay đổi
+        // nào chỉ có trong bộ nhớ mà không có bản ghi nhật ký
+        if (InputValidator.isNotEmpty(email) && !InputValidator.isValidEmail(email)) {
+            throw new InvalidOperationException("Sai định dạng Email:: " + email);
+        }
+        if (InputValidator.isNotEmpty(phone) && !InputValidator.isValidPhone(phone)) {
+            throw new InvalidOperationException("Sai định dạng số điện thoại: " + phone);
+        }
+        if (InputValidator.isNotEmpty(email) && !memberRepository.changeEmail(member, email)) {
+            throw new InvalidOperationException("Email đã được sử dụng: " + email);
+        }
+
         if (InputValidator.isNotEmpty(name)) {
             member.setName(name);
         }
-        if (InputValidator.isNotEmpty(email)) {
-            if (!InputValidator.isValidEmail(email)) {
-                throw new InvalidOperationException("Sai định dạng Email:: " + email);
-            }
-            if (!email.equals(member.getEmail()) && memberRepository.existsByEmail(email)) {
-                throw new InvalidOperationException("Email đã được sử dụng: " + email);
-            }
-            member.setEmail(email);
-        }
         if (InputValidator.isNotEmpty(phone)) {
-            if (!InputValidator.isValidPhone(phone)) {
-                throw new InvalidOperationException("Sai định dạng số điện thoại: " + phone);
-            }
             member.setPhone(phone);
         }
-
         memberRepository.update(member);
+        return mutationLog.memberSaved(member);
     }
 
     public boolean canBorrowBooks(String memberId) throws MemberNotFoundException {
-        Member member = findMemberById(memberId);
-        return member.isActive() && member.getBorrowedBookCount() < MAX_BORROW_LIMIT;
+        return METRICS.time("member.canBorrowBooks", () -> {
+            Member member = findMemberById(memberId);
+            return member.isActive() && member.getBorrowedBookCount() < MAX_BORROW_LIMIT;
+        });
     }
 
     public int getBorrowedBookCount(String memberId) throws MemberNotFoundException {
-        Member member = findMemberById(memberId);
-        return member.getBorrowedBookCount();
+        return METRICS.time("member.getBorrowedBookCount", () -> {
+            Member member = findMemberById(memberId);
+            return member.getBorrowedBookCount();
+        });
     }
 
     public long getTotalMemberCount() {
-        return memberRepository.count();
+        return METRICS.time("member.getTotalMemberCount", () -> memberRepository.count());
     }
 
     public long getActiveMemberCount() {
-        return memberRepository.countActive();
+        return METRICS.time("member.getActiveMemberCount", () -> memberRepository.countActive());
     }
 
-    public List<Member> getMembersWithBorrowedBooks() {
-        return memberRepository.findMembersWithBorrowedBooks();
+    public long getSearchIndexMemory() {
+        return METRICS.time("member.getSearchIndexMemory", () -> memberRepository.estimateSearchIndexMemory());
     }
 
-    private String generateMemberId() {
-        String memberId;
-        do {
-            memberId = "MEM-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        } while (memberRepository.existsById(memberId));
-        return memberId;
+    public List<Member> getMembersWithBorrowedBooks() {
+        return METRICS.time("member.getMembersWithBorrowedBooks",
+                () -> memberRepository.findMembersWithBorrowedBooks());
     }
 
     public int getMaxBorrowLimit() {
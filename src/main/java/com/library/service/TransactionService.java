@@ -3,30 +3,130 @@ package com.library.service;
 import com.library.exception.BookNotFoundException;
 import com.library.exception.InvalidOperationException;
 import com.library.exception.MemberNotFoundException;
+import com.library.metrics.BorrowEvent;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.ReturnEvent;
 import com.library.model.Book;
 import com.library.model.BookStatus;
 import com.library.model.Member;
 import com.library.model.Transaction;
+import com.library.persistence.MutationLog;
 import com.library.repository.TransactionRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 public class TransactionService {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+
     private final TransactionRepository transactionRepository;
     private final BookService bookService;
     private final MemberService memberService;
+    private final LibraryStatistics statistics;
+    private final MutationLog mutationLog;
 
     public TransactionService(TransactionRepository transactionRepository,
                               BookService bookService,
                               MemberService memberService) {
+        this(transactionRepository, bookService, memberService, new LibraryStatistics());
+    }
+
+    public TransactionService(TransactionRepository transactionRepository,
+                              BookService bookService,
+                              MemberService memberService,
+                              LibraryStatistics statistics) {
+        this(transactionRepository, bookService, memberService, statistics, MutationLog.NONE);
+    }
+
+    public TransactionService(TransactionRepository transactionRepository,
+                              BookService bookService,
+                              MemberService memberService,
+                              LibraryStatistics statistics,
+                              MutationLog mutationLog) {
         this.transactionRepository = transactionRepository;
         this.bookService = bookService;
         this.memberService = memberService;
+        this.statistics = statistics;
+        this.mutationLog = mutationLog;
     }
 
+    /*
+     * Mượn sách nguyên tử: giữ khóa dải của thành viên rồi của sách (luôn theo thứ tự này nên không deadlock)
+     * trong lúc kiểm tra hạn mức/trạng thái và ghi. Yêu cầu khác thành viên và khác sách chạy song song.
+     * Chờ nhật ký ghi xuống đĩa sau khi nhả khóa để các yêu cầu khác vào chung một lần ghi.
+     */
     public Transaction borrowBook(String memberId, String isbn)
             throws MemberNotFoundException, BookNotFoundException, InvalidOperationException {
+        BorrowEvent event = new BorrowEvent();
+        event.begin();
+        Transaction transaction = null;
+        try {
+            transaction = METRICS.<Transaction, MemberNotFoundException, BookNotFoundException,
+                    InvalidOperationException>time("transaction.borrowBook", () -> {
+                long lsn;
+                Transaction opened;
+                Lock memberLock = memberService.lockFor(memberId);
+                Lock bookLock = bookService.lockFor(isbn);
+                memberLock.lock();
+                try {
+                    bookLock.lock();
+                    try {
+                        opened = openLoan(memberId, isbn);
+                        lsn = mutationLog.bookBorrowed(opened);
+                    } finally {
+                        bookLock.unlock();
+                    }
+                } finally {
+                    memberLock.unlock();
+                }
+                mutationLog.awaitDurable(lsn);
+                return opened;
+            });
+            return transaction;
+        } finally {
+            event.end(memberId, isbn, transaction);
+        }
+    }
+
+    /*
+     * Trả sách nguyên tử, cùng thứ tự khóa với borrowBook
+     */
+    public Transaction returnBook(String memberId, String isbn)
+            throws MemberNotFoundException, BookNotFoundException, InvalidOperationException {
+        ReturnEvent event = new ReturnEvent();
+        event.begin();
+        Transaction transaction = null;
+        try {
+            transaction = METRICS.<Transaction, MemberNotFoundException, BookNotFoundException,
+                    InvalidOperationException>time("transaction.returnBook", () -> {
+                long lsn;
+                Transaction opened;
+                Lock memberLock = memberService.lockFor(memberId);
+                Lock bookLock = bookService.lockFor(isbn);
+                memberLock.lock();
+                try {
+                    bookLock.lock();
+                    try {
+                        opened = closeLoan(memberId, isbn);
+                        lsn = mutationLog.bookReturned(opened);
+                    } finally {
+                        bookLock.unlock();
+                    }
+                } finally {
+                    memberLock.unlock();
+                }
+                mutationLog.awaitDurable(lsn);
+                return opened;
+            });
+            return transaction;
+        } finally {
+            event.end(memberId, isbn, transaction);
+        }
+    }
+
+    private Transaction openLoan(String memberId, String isbn)
+            throws MemberNotFoundException, BookNotFoundException, InvalidOperationException {
 
         Member member = memberService.findMemberById(memberId);
         if (!member.isActive()) {
@@ -43,19 +143,21 @@ public class TransactionService {
             throw InvalidOperationException.bookAlreadyBorrowed(isbn);
         }
 
-        String transactionId = generateTransactionId();
-        Transaction transaction = new Transaction(transactionId, memberId, isbn);
+        String transactionId = transactionRepository.nextId();
+        // memberId của Member để các giao dịch dùng chung một chuỗi thay vì giữ chuỗi nhập vào
+        Transaction transaction = new Transaction(transactionId, member.getMemberId(), isbn);
 
-        bookService.updateBookStatus(isbn, BookStatus.BORROWED);
+        bookService.applyBookStatus(isbn, BookStatus.BORROWED);
 
         member.borrowBook(isbn);
 
         transactionRepository.save(transaction);
+        statistics.loanOpened();
 
         return transaction;
     }
 
-    public Transaction returnBook(String memberId, String isbn)
+    private Transaction closeLoan(String memberId, String isbn)
             throws MemberNotFoundException, BookNotFoundException, InvalidOperationException {
 
         Member member = memberService.findMemberById(memberId);
@@ -77,63 +179,70 @@ public class TransactionService {
 
         transaction.completeReturn();
 
-        bookService.updateBookStatus(isbn, BookStatus.AVAILABLE);
+        bookService.applyBookStatus(isbn, BookStatus.AVAILABLE);
 
         member.returnBook(isbn);
 
         transactionRepository.update(transaction);
+        statistics.loanClosed(transaction.getLateFee());
 
         return transaction;
     }
 
     public List<Transaction> getMemberTransactions(String memberId) {
-        return transactionRepository.findByMemberId(memberId);
+        return METRICS.time("transaction.getMemberTransactions", () -> transactionRepository.findByMemberId(memberId));
     }
 
     public List<Transaction> getBookTransactions(String isbn) {
-        return transactionRepository.findByBookIsbn(isbn);
+        return METRICS.time("transaction.getBookTransactions", () -> transactionRepository.findByBookIsbn(isbn));
     }
 
     public List<Transaction> getMemberActiveTransactions(String memberId) {
-        return transactionRepository.findActiveTransactionsByMemberId(memberId);
+        return METRICS.time("transaction.getMemberActiveTransactions",
+                () -> transactionRepository.findActiveTransactionsByMemberId(memberId));
     }
 
     public List<Transaction> getOverdueTransactions() {
-        return transactionRepository.findOverdueTransactions();
+        return METRICS.time("transaction.getOverdueTransactions",
+                () -> transactionRepository.findOverdueTransactions());
+    }
+
+    public long getOverdueTransactionCount() {
+        return METRICS.time("transaction.getOverdueTransactionCount", () -> transactionRepository.countOverdue());
     }
 
     public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+        return METRICS.time("transaction.getAllTransactions", () -> transactionRepository.findAll());
     }
 
     public List<Transaction> getRecentTransactions(int limit) {
-        return transactionRepository.findRecentTransactions(limit);
+        return METRICS.time("transaction.getRecentTransactions",
+                () -> transactionRepository.findRecentTransactions(limit));
+    }
+
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return METRICS.time("transaction.getTransactionsBetween",
+                () -> transactionRepository.findByBorrowDateBetween(from, to));
     }
 
     public double calculateLateFee(String transactionId) throws InvalidOperationException {
-        Transaction transaction = transactionRepository.findById(transactionId)
-                .orElseThrow(() -> new InvalidOperationException("Không tìm thấy giao dịch: " + transactionId));
+        return METRICS.time("transaction.calculateLateFee", () -> {
+            Transaction transaction = transactionRepository.findById(transactionId)
+                    .orElseThrow(() -> new InvalidOperationException("Không tìm thấy giao dịch: " + transactionId));
 
-        return transaction.calculateLateFee();
+            return transaction.calculateLateFee();
+        });
     }
 
     public double getTotalLateFees() {
-        return transactionRepository.calculateTotalLateFees();
+        return METRICS.time("transaction.getTotalLateFees", () -> transactionRepository.calculateTotalLateFees());
     }
 
     public long getTotalTransactionCount() {
-        return transactionRepository.count();
+        return METRICS.time("transaction.getTotalTransactionCount", () -> transactionRepository.count());
     }
 
     public long getActiveTransactionCount() {
-        return transactionRepository.countActive();
-    }
-
-    private String generateTransactionId() {
-        String transactionId;
-        do {
-            transactionId = "TXN-" + UUID.randomUUID().toString().substring(0, 12).toUpperCase();
-        } while (transactionRepository.existsById(transactionId));
-        return transactionId;
+        return METRICS.time("transaction.getActiveTransactionCount", () -> transactionRepository.countActive());
     }
 }
\ No newline at end of file
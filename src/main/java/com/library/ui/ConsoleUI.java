@@ -28,7 +28,8 @@ public class ConsoleUI {
         System.out.println("3. Quản lí giao dịch");
         System.out.println("4. Xem thống kê");
         System.out.println("5. Lưu dữ liệu");
-        System.out.println("6. Thoát");
+        System.out.println("6. Xem số liệu hiệu năng");
+        System.out.println("7. Thoát");
         System.out.println("\n" + SEPARATOR);
     }
 
@@ -41,7 +42,8 @@ public class ConsoleUI {
         System.out.println("3. Tìm sách");
         System.out.println("4. Tất cả sách");
         System.out.println("5. Tất cả sách còn");
-        System.out.println("6. Trở về Menu chính");
+        System.out.println("6. Nhập sách hàng loạt từ file");
+        System.out.println("7. Trở về Menu chính");
         System.out.println("\n" + SEPARATOR);
     }
 
@@ -6,8 +6,11 @@ import com.library.exception.MemberNotFoundException;
 import com.library.model.Book;
 import com.library.model.Member;
 import com.library.model.Transaction;
+import com.library.service.BookImporter;
 import com.library.service.LibraryService;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 public class MenuHandler {
@@ -43,6 +46,26 @@ public class MenuHandler {
         }
     }
 
+    public void handleImportBooks() {
+        String path = ui.readString("Điền đường dẫn file (.csv, .tsv, .jsonl): ");
+        try {
+            BookImporter.ImportReport report =
+                    new BookImporter(libraryService.getBookService()).importFile(Path.of(path));
+            ui.displaySuccess(String.format("Đã nhập %d/%d dòng trong %.1f giây (%.0f dòng/giây)",
+                    report.getImported(), report.getRowsRead(), report.getElapsedNanos() / 1e9,
+                    report.getRowsPerSecond()));
+            if (report.getRejected() > 0) {
+                ui.displayError("Bị từ chối " + report.getRejected() + " dòng:");
+                report.getRejections().stream().limit(20).forEach(r -> System.out.println("  " + r));
+                if (report.getRejected() > 20) {
+                    System.out.println("  ...");
+                }
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            ui.displayError("Không nhập được file: " + e.getMessage());
+        }
+    }
+
     public void handleSearchBooks() {
         System.out.println("\nTìm với:");
         System.out.println("1. Tên sách");
@@ -230,6 +253,10 @@ public class MenuHandler {
         System.out.println(statistics);
     }
 
+    public void handleViewMetrics() {
+        System.out.println(libraryService.getMetricsReport());
+    }
+
     public void handleSaveData() {
         try {
             libraryService.saveData();
@@ -0,0 +1,96 @@
+package com.library.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bộ cấp mã tăng dần, không trùng: giá trị là một số long, hiển thị thành tiền tố + số hex viết hoa
+ * đệm 0 tới độ rộng cố định (vd. "MEM-0000002A"). Cấp mã chỉ là một lần tăng AtomicLong,
+ * không phải thử lại và không phải tra repository.
+ *
+ * Để bền qua các lần khởi động, repository gọi observe cho mọi mã được nạp (snapshot, nhật ký WAL) và
+ * snapshot lưu giá trị đã cấp cuối cùng. Mã cũ dạng UUID ("MEM-" + 8 ký tự hex) cũng được observe,
+ * nên dãy mới luôn bắt đầu sau mã lớn nhất đã có.
+ */
+public final class IdSequence {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String prefix;
+    private final int width;
+    private final AtomicLong last = new AtomicLong();
+
+    public IdSequence(String prefix, int width) {
+        this.prefix = prefix;
+        this.width = width;
+    }
+
+    public long next() {
+        return last.incrementAndGet();
+    }
+
+    public String nextId() {
+        return format(next());
+    }
+
+    /*
+     * Giá trị đã cấp hoặc đã thấy lớn nhất
+     */
+    public long current() {
+        return last.get();
+    }
+
+    public void advanceTo(long value) {
+        if (value > last.get()) {
+            last.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /*
+     * Ghi nhận một mã đã tồn tại; mã không đúng dạng (vd. "TXN-1A2B3C4D-5E6") thì bỏ qua
+     * vì không thể trùng với mã do dãy này cấp
+     */
+    public void observe(String id) {
+        advanceTo(parse(id));
+    }
+
+    public String format(long value) {
+        int digits = Math.max(width, (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) / 4);
+        char[] chars = new char[prefix.length() + digits];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = chars.length - 1; i >= prefix.length(); i--) {
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    /*
+     * Giá trị long của mã, hoặc -1 nếu mã không phải tiền tố + 1..15 chữ số hex viết hoa
+     */
+    public long parse(String id) {
+        if (id == null || !id.startsWith(prefix)) {
+            return -1;
+        }
+        int length = id.length() - prefix.length();
+        if (length < 1 || length > 15) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    public void reset() {
+        last.set(0);
+    }
+}
@@ -10,9 +10,6 @@ public class InputValidator {
     private static final Pattern PHONE_PATTERN =
             Pattern.compile("^[+]?[0-9]{10,15}$");
 
-    private static final Pattern ISBN_PATTERN =
-            Pattern.compile("^(?:ISBN(?:-1[03])?:? )?(?=[0-9X]{10}$|(?=(?:[0-9]+[- ]){3})[- 0-9X]{13}$|97[89][0-9]{10}$|(?=(?:[0-9]+[- ]){4})[- 0-9]{17}$)(?:97[89][- ]?)?[0-9]{1,5}[- ]?[0-9]+[- ]?[0-9]+[- ]?[0-9X]$");
-
     private InputValidator() {
     }
 
@@ -38,11 +35,11 @@ public class InputValidator {
     }
 
 
+    /*
+     * ISBN-10/13 có chữ số kiểm tra đúng (xem Isbn.parse)
+     */
     public static boolean isValidIsbn(String isbn) {
-        if (!isNotEmpty(isbn)) {
-            return false;
-        }
-        return ISBN_PATTERN.matcher(isbn.replaceAll("[\\s-]", "")).matches();
+        return Isbn.isValid(isbn);
     }
 
 
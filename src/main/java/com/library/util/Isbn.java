@@ -0,0 +1,183 @@
+package com.library.util;
+
+/*
+ * Phân tích ISBN-10/ISBN-13 viết tay, không cấp phát bộ nhớ: bỏ qua dấu '-' và khoảng trắng giữa các nhóm,
+ * kiểm tra chữ số kiểm tra, và chuẩn hóa về ISBN-13 dưới dạng số long (vd. 9780132350884L).
+ * ISBN-10 được chuyển sang ISBN-13 với tiền tố 978. Không hợp lệ -> INVALID.
+ *
+ * Repository và model dùng số long này làm khóa, chỉ đổi ra chuỗi khi hiển thị (fromKey).
+ * ISBN sai chữ số kiểm tra của dữ liệu cũ được mỗi repository cấp khóa riêng (IsbnKeys).
+ */
+public final class Isbn {
+    public static final long INVALID = -1;
+
+    private static final long PREFIX_978 = 978_000_000_000L;
+    private static final long PREFIX_979 = 979_000_000_000L;
+    private static final long TEN_POW_10 = 10_000_000_000L;
+
+    private Isbn() {
+    }
+
+    public static boolean isValid(CharSequence text) {
+        return parse(text) != INVALID;
+    }
+
+    /*
+     * Chấp nhận "978-0-13-235088-4", "9780132350884", "0-596-52068-9", "080442957X",
+     * có thể kèm tiền tố "ISBN", "ISBN-13:", "ISBN 10 "...
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        // Bỏ khoảng trắng đầu/cuối như trim()
+        int length = text.length();
+        while (length > 0 && Character.isWhitespace(text.charAt(length - 1))) {
+            length--;
+        }
+        int i = 0;
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        i = skipPrefix(text, i, length);
+
+        long value = 0;
+        int digits = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        boolean lastWasSeparator = false;
+        boolean checkIsX = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 13 || checkIsX) {
+                    return INVALID;
+                }
+                int d = c - '0';
+                value = value * 10 + d;
+                sum10 += d * (10 - digits);
+                sum13 += (digits & 1) == 0 ? d : 3 * d;
+                digits++;
+                lastWasSeparator = false;
+            } else if (c == 'X' || c == 'x') {
+                // X chỉ là chữ số kiểm tra (= 10) của ISBN-10
+                if (digits != 9) {
+                    return INVALID;
+                }
+                sum10 += 10;
+                digits++;
+                checkIsX = true;
+                lastWasSeparator = false;
+            } else if (c == '-' || c == ' ') {
+                if (digits == 0 || lastWasSeparator) {
+                    return INVALID;
+                }
+                lastWasSeparator = true;
+            } else {
+                return INVALID;
+            }
+        }
+        if (lastWasSeparator) {
+            return INVALID;
+        }
+
+        if (digits == 10) {
+            if (sum10 % 11 != 0) {
+                return INVALID;
+            }
+            long first9 = checkIsX ? value : value / 10;
+            return withCheckDigit(PREFIX_978 + first9);
+        }
+        if (digits == 13) {
+            long prefix = value / TEN_POW_10;
+            if ((prefix != 978 && prefix != 979) || sum13 % 10 != 0) {
+                return INVALID;
+            }
+            return value;
+        }
+        return INVALID;
+    }
+
+    /*
+     * Ghép chữ số kiểm tra vào 12 chữ số đầu của ISBN-13
+     */
+    public static long withCheckDigit(long first12) {
+        if (first12 < PREFIX_978 || first12 >= PREFIX_979 + 1_000_000_000L) {
+            throw new IllegalArgumentException("Không phải 12 chữ số đầu của ISBN-13: " + first12);
+        }
+        long n = first12;
+        int sum = 0;
+        for (int k = 0; k < 12; k++) {
+            int d = (int) (n % 10);
+            n /= 10;
+            // Chữ số thứ 12 (ngoài cùng bên phải) có trọng số 3
+            sum += (k & 1) == 0 ? 3 * d : d;
+        }
+        return first12 * 10 + (10 - sum % 10) % 10;
+    }
+
+    /*
+     * Dạng chuẩn để hiển thị và lưu: tiền tố, dấu '-', 10 chữ số còn lại (vd. 978-0132350884)
+     */
+    public static String toString(long isbn13) {
+        long rest = isbn13 % TEN_POW_10;
+        char[] chars = new char[14];
+        long prefix = isbn13 / TEN_POW_10;
+        for (int i = 2; i >= 0; i--) {
+            chars[i] = (char) ('0' + prefix % 10);
+            prefix /= 10;
+        }
+        chars[3] = '-';
+        for (int i = 13; i >= 4; i--) {
+            chars[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(chars);
+    }
+
+    /*
+     * Chuỗi hiển thị của một khóa ISBN hợp lệ (null với INVALID và khóa âm của ISBN cũ)
+     */
+    public static String fromKey(long key) {
+        return key >= 0 ? toString(key) : null;
+    }
+
+    /*
+     * Chuẩn hóa chuỗi về dạng chuẩn (toString), hoặc null nếu không hợp lệ
+     */
+    public static String normalize(CharSequence text) {
+        long isbn = parse(text);
+        return isbn == INVALID ? null : toString(isbn);
+    }
+
+    private static int skipPrefix(CharSequence text, int i, int length) {
+        if (length - i < 4 || !regionMatchesIgnoreCase(text, i, "ISBN")) {
+            return i;
+        }
+        i += 4;
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        // "10"/"13" chỉ là một phần tiền tố khi theo sau là ':' hoặc khoảng trắng
+        if (i + 2 < length && text.charAt(i) == '1' && (text.charAt(i + 1) == '0' || text.charAt(i + 1) == '3')
+                && (text.charAt(i + 2) == ':' || text.charAt(i + 2) == ' ')) {
+            i += 2;
+        }
+        if (i < length && text.charAt(i) == ':') {
+            i++;
+        }
+        while (i < length && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, int offset, String upper) {
+        for (int k = 0; k < upper.length(); k++) {
+            if (Character.toUpperCase(text.charAt(offset + k)) != upper.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.library.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Khóa long của ISBN trong một repository: ISBN hợp lệ dùng chính số ISBN-13 (Isbn.parse), giống nhau ở mọi nơi.
+ * Dữ liệu cũ có thể chứa ISBN sai chữ số kiểm tra (trước đây chỉ kiểm bằng regex): các chuỗi đó chỉ được cấp
+ * khóa âm (-2, -3, ...) khi lưu/nạp vào repository (key), còn tra cứu (lookupKey) không bao giờ cấp khóa mới,
+ * nên bảng chỉ lớn theo dữ liệu đã lưu. Khóa âm chỉ có nghĩa trong repository đã cấp nó.
+ */
+public final class IsbnKeys {
+    private final Map<String, Long> legacyKeys = new ConcurrentHashMap<>();
+    private final AtomicLong nextLegacyKey = new AtomicLong(Isbn.INVALID - 1);
+
+    /*
+     * Khóa để lưu: chuỗi không hợp lệ được cấp khóa âm một lần
+     */
+    public long key(String isbn) {
+        if (isbn == null) {
+            return Isbn.INVALID;
+        }
+        long parsed = Isbn.parse(isbn);
+        if (parsed != Isbn.INVALID) {
+            return parsed;
+        }
+        return legacyKeys.computeIfAbsent(isbn, text -> nextLegacyKey.getAndDecrement());
+    }
+
+    /*
+     * Khóa để tra cứu: chuỗi không hợp lệ chưa từng được lưu -> INVALID
+     */
+    public long lookupKey(String isbn) {
+        if (isbn == null) {
+            return Isbn.INVALID;
+        }
+        long parsed = Isbn.parse(isbn);
+        if (parsed != Isbn.INVALID) {
+            return parsed;
+        }
+        Long legacy = legacyKeys.get(isbn);
+        return legacy != null ? legacy : Isbn.INVALID;
+    }
+
+    /*
+     * Bỏ các khóa đã cấp nhưng không dùng lại số: khóa cũ còn sót ở đâu đó cũng không trỏ nhầm sang chuỗi khác
+     */
+    public void clear() {
+        legacyKeys.clear();
+    }
+}
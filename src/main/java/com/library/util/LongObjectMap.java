@@ -0,0 +1,238 @@
+package com.library.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Bảng băm khóa long -> đối tượng, địa chỉ mở (dò tuyến tính), không bọc khóa thành Long và không có Entry:
+ * mỗi phần tử chỉ tốn một ô long[] và một ô Object[].
+ *
+ * Một luồng ghi tại một thời điểm (người gọi giữ khóa ghi của repository), đọc không khóa:
+ * ghi giá trị trước rồi mới công bố khóa (release/acquire), khi mở rộng thì dựng bảng mới rồi thay cả bảng.
+ * Ô đã xóa không được dùng lại cho đến lần dựng bảng sau, nên trong một bảng mỗi ô chỉ từng mang một khóa
+ * và luồng đọc không bao giờ thấy giá trị của khóa khác.
+ * Long.MIN_VALUE và Long.MIN_VALUE + 1 được dành riêng cho ô trống và ô đã xóa.
+ */
+public final class LongObjectMap<V> {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long TOMBSTONE = Long.MIN_VALUE + 1;
+    private static final int MIN_CAPACITY = 16;
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Table table;
+    private volatile int size;
+    // Số ô đã dùng kể cả ô đã xóa, chỉ luồng ghi đọc/ghi
+    private int used;
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    public V get(long key) {
+        Table current = table;
+        long[] keys = current.keys;
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = (long) KEYS.getAcquire(keys, i);
+            if (k == key) {
+                @SuppressWarnings("unchecked")
+                V value = (V) VALUES.getAcquire(current.values, i);
+                return value;
+            }
+            if (k == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /*
+     * Trả về giá trị cũ, hoặc null nếu khóa chưa có
+     */
+    public V put(long key, V value) {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Giá trị không được null");
+        }
+        Table current = table;
+        int slot = findSlot(current, key);
+        if (slot >= 0) {
+            @SuppressWarnings("unchecked")
+            V old = (V) current.values[slot];
+            VALUES.setRelease(current.values, slot, value);
+            return old;
+        }
+        if ((used + 1) * 2 > current.keys.length) {
+            current = rehash();
+        }
+        insert(current, key, value);
+        return null;
+    }
+
+    public V putIfAbsent(long key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    public V remove(long key) {
+        Table current = table;
+        int slot = findSlot(current, key);
+        if (slot < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        V old = (V) current.values[slot];
+        removeAt(current, slot);
+        return old;
+    }
+
+    /*
+     * Chỉ xóa nếu khóa đang trỏ đúng đối tượng này (so sánh ==)
+     */
+    public boolean remove(long key, V value) {
+        Table current = table;
+        int slot = findSlot(current, key);
+        if (slot < 0 || current.values[slot] != value) {
+            return false;
+        }
+        removeAt(current, slot);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        used = 0;
+    }
+
+    /*
+     * Duyệt trên bảng hiện tại, không sao chép
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        Table current = table;
+        for (int i = 0; i < current.keys.length; i++) {
+            Object value = VALUES.getAcquire(current.values, i);
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+
+    private int findSlot(Table current, long key) {
+        long[] keys = current.keys;
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(Table current, long key, V value) {
+        long[] keys = current.keys;
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        used++;
+        VALUES.setRelease(current.values, i, value);
+        KEYS.setRelease(keys, i, key);
+        size = size + 1;
+    }
+
+    private void removeAt(Table current, int slot) {
+        VALUES.setRelease(current.values, slot, null);
+        KEYS.setRelease(current.keys, slot, TOMBSTONE);
+        size = size - 1;
+    }
+
+    /*
+     * Dựng bảng mới rồi công bố một lần: gấp đôi nếu còn đầy từ 1/4 trở lên, ngược lại giữ cỡ và chỉ dọn ô đã xóa.
+     * Cả hai trường hợp đều chừa ít nhất 1/4 số ô cho các lần thêm tiếp theo.
+     */
+    private Table rehash() {
+        Table old = table;
+        int capacity = old.keys.length;
+        Table fresh = new Table(size * 4 >= capacity ? capacity * 2 : capacity);
+        long[] keys = fresh.keys;
+        int mask = keys.length - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            long key = old.keys[j];
+            if (key != EMPTY && key != TOMBSTONE) {
+                int i = hash(key) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                fresh.values[i] = old.values[j];
+            }
+        }
+        used = size;
+        table = fresh;
+        return fresh;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Hệ số tải tối đa 0.5 để chuỗi dò ngắn
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY || key == TOMBSTONE) {
+            throw new IllegalArgumentException("Khóa dành riêng: " + key);
+        }
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
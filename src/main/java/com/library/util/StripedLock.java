@@ -0,0 +1,92 @@
+package com.library.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Một mảng khóa cố định, mỗi khóa (ISBN, memberId...) rơi vào một dải theo giá trị băm.
+ * Thao tác trên các khóa khác dải chạy song song; bộ nhớ không tăng theo số khóa.
+ * Hai khóa cùng dải thì tuần tự với nhau, nên ai lấy nhiều khóa phải theo một thứ tự cố định để tránh deadlock.
+ */
+public final class StripedLock {
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /*
+     * Số dải được làm tròn lên lũy thừa của 2
+     */
+    public StripedLock(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock lockFor(String key) {
+        return stripes[indexOf(key)];
+    }
+
+    public Lock lockFor(long key) {
+        return stripes[indexOf(key)];
+    }
+
+    /*
+     * Khóa mọi dải mà các khóa thuộc về, theo thứ tự chỉ số dải tăng dần (không deadlock giữa các lần gọi lockAll).
+     * Trả về các dải đã khóa để nhả bằng unlockAll.
+     */
+    public List<Lock> lockAll(Collection<String> keys) {
+        BitSet indexes = new BitSet(stripes.length);
+        for (String key : keys) {
+            indexes.set(indexOf(key));
+        }
+        return lockAll(indexes);
+    }
+
+    public List<Lock> lockAll(long[] keys) {
+        BitSet indexes = new BitSet(stripes.length);
+        for (long key : keys) {
+            indexes.set(indexOf(key));
+        }
+        return lockAll(indexes);
+    }
+
+    private List<Lock> lockAll(BitSet indexes) {
+        List<Lock> locked = new ArrayList<>(indexes.cardinality());
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            stripes[i].lock();
+            locked.add(stripes[i]);
+        }
+        return locked;
+    }
+
+    public static void unlockAll(List<Lock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+
+    public int indexOf(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return (hash * 0x9E3779B9) >>> 16 & (stripes.length - 1);
+    }
+
+    public int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripes.length - 1);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,156 @@
+package com.library.api;
+
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import com.library.util.Json;
+import com.library.util.Isbn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryHttpServerTest {
+    private LibraryHttpServer server;
+    private LibraryStatistics statistics;
+    private HttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = new LibraryStatistics();
+        BookService bookService = new BookService(new BookRepository(), statistics);
+        MemberService memberService = new MemberService(new MemberRepository(), statistics);
+        TransactionService transactionService =
+                new TransactionService(new TransactionRepository(), bookService, memberService, statistics);
+        server = new LibraryHttpServer(bookService, memberService, transactionService, statistics);
+        server.start(0);
+        client = HttpClient.newHttpClient();
+        baseUrl = "http://" + LibraryHttpServer.DEFAULT_HOST + ":" + server.getPort() + "/api/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void testBorrowAndReturn_OverHttp_UpdatesBookAndMember() throws Exception {
+        assertEquals(201, post("books",
+                "{\"isbn\":\"978-0132350884\",\"title\":\"Clean Code\",\"author\":\"Robert C. Martin\",\"publicationYear\":2008}")
+                .statusCode());
+        HttpResponse<String> registered = post("members",
+                "{\"name\":\"Nguyễn Văn A\",\"email\":\"a@email.com\",\"phone\":\"1234567890\"}");
+        assertEquals(201, registered.statusCode());
+        // Thành viên có mảng borrowedBookIsbns nên không đọc bằng Json.parseObject (chỉ object phẳng)
+        Matcher id = Pattern.compile("\"memberId\":\"([^\"]+)\"").matcher(registered.body());
+        assertTrue(id.find());
+        String memberId = id.group(1);
+
+        String loan = "{\"memberId\":\"" + memberId + "\",\"isbn\":\"978-0132350884\"}";
+        HttpResponse<String> borrowed = post("borrow", loan);
+        assertEquals(201, borrowed.statusCode());
+        assertEquals("BORROW", Json.parseObject(borrowed.body()).get("type"));
+        assertTrue(get("books/978-0132350884").body().contains("\"status\":\"BORROWED\""));
+        assertTrue(get("members/" + memberId).body().contains("\"borrowedBookIsbns\":[\"978-0132350884\"]"));
+
+        // Mượn lần hai -> 409 với thông báo lỗi dạng JSON
+        HttpResponse<String> again = post("borrow", loan);
+        assertEquals(409, again.statusCode());
+        assertNotNull(Json.parseObject(again.body()).get("error"));
+
+        HttpResponse<String> returned = post("return", loan);
+        assertEquals(200, returned.statusCode());
+        assertEquals("RETURN", Json.parseObject(returned.body()).get("type"));
+        assertEquals(0, statistics.getOpenLoans());
+        assertTrue(get("stats").body().contains("\"totalTransactions\":1"));
+    }
+
+    @Test
+    void testErrors_MapToHttpStatusCodes() throws Exception {
+        assertEquals(404, get("books/978-0000000000").statusCode());
+        assertEquals(404, get("members/MEM-404").statusCode());
+        assertEquals(404, get("nothing-here").statusCode());
+        assertEquals(405, post("stats", "{}").statusCode());
+        assertEquals(400, post("borrow", "{\"memberId\":").statusCode());
+        assertEquals(400, post("borrow", "{\"memberId\":\"MEM-1\"}").statusCode());
+        assertEquals(400, post("books",
+                "{\"isbn\":\"978-0132350884\",\"title\":\"T\",\"author\":\"A\",\"publicationYear\":\"năm\"}").statusCode());
+        assertEquals(409, post("books",
+                "{\"isbn\":\"không phải ISBN\",\"title\":\"T\",\"author\":\"A\",\"publicationYear\":2000}").statusCode());
+    }
+
+    @Test
+    void testConcurrentRequests_AllServed() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            post("books", String.format(
+                    "{\"isbn\":\"%s\",\"title\":\"Sách %d\",\"author\":\"Tác giả\",\"publicationYear\":2020}",
+                    Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i)), i));
+        }
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create(baseUrl + "books?q=s%C3%A1ch")).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+            assertEquals(20, response.get().body().split("\"isbn\"").length - 1);
+        }
+    }
+
+    @Test
+    void testStart_NoHost_BindsLoopbackOnly() throws Exception {
+        assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+        assertThrows(IllegalStateException.class, () -> server.start("127.0.0.1", 0));
+
+        server.stop();
+        assertThrows(IOException.class, () -> server.start("không-có-máy-này.invalid", 0));
+    }
+
+    @Test
+    void testJson_ParseObjectHandlesEscapesAndRejectsNesting() {
+        Map<String, String> parsed = Json.parseObject(
+                " {\"a\" : \"x\\\"y\\u00e1\\n\", \"b\": -12.5e1, \"c\": true, \"d\": null} ");
+        assertEquals("x\"yá\n", parsed.get("a"));
+        assertEquals("-12.5e1", parsed.get("b"));
+        assertEquals("true", parsed.get("c"));
+        assertTrue(parsed.containsKey("d"));
+        assertNull(parsed.get("d"));
+        assertEquals("\"x\\\"yá\\n\"", Json.quote("x\"yá\n"));
+
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": {\"b\": 1}}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": tru}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"a\": 1} x"));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,75 @@
+package com.library.metrics;
+
+import com.library.exception.InvalidOperationException;
+import com.library.model.Member;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecording_BorrowReturnAndSearch_EmitEventsWithIdsAndSizes() throws Exception {
+        LibraryStatistics statistics = new LibraryStatistics();
+        BookService bookService = new BookService(new BookRepository(), statistics);
+        MemberService memberService = new MemberService(new MemberRepository(), statistics);
+        TransactionService transactionService =
+                new TransactionService(new TransactionRepository(), bookService, memberService, statistics);
+        bookService.addBook("978-0134685991", "Effective Java", "Joshua Bloch", 2018);
+        Member member = memberService.registerMember("Đặng Văn A", "dangvan@email.com", "1234567890");
+
+        Path file = tempDir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(BorrowEvent.class);
+            recording.enable(ReturnEvent.class);
+            recording.enable(SearchEvent.class);
+            recording.start();
+            String transactionId = transactionService.borrowBook(member.getMemberId(), "9780134685991")
+                    .getTransactionId();
+            assertThrows(InvalidOperationException.class,
+                    () -> transactionService.borrowBook(member.getMemberId(), "9780134685991"));
+            transactionService.returnBook(member.getMemberId(), "9780134685991");
+            bookService.searchBooks("effective");
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            List<RecordedEvent> borrows = named(events, "com.library.Borrow");
+            assertEquals(2, borrows.size());
+            assertEquals(member.getMemberId(), borrows.get(0).getString("memberId"));
+            assertEquals(transactionId, borrows.get(0).getString("transactionId"));
+            assertTrue(borrows.get(0).getBoolean("succeeded"));
+            assertFalse(borrows.get(1).getBoolean("succeeded"));
+            assertEquals(1, named(events, "com.library.Return").size());
+
+            RecordedEvent search = named(events, "com.library.Search").get(0);
+            assertEquals("keyword", search.getString("field"));
+            assertEquals(1, search.getInt("results"));
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}
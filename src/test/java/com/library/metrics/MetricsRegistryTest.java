@@ -0,0 +1,43 @@
+package com.library.metrics;
+
+import com.library.repository.BookRepository;
+import com.library.service.BookService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void testTimer_UniformLatencies_PercentilesWithinBucketError() {
+        Timer timer = new Timer("test.uniform");
+        for (int i = 1; i <= 10_000; i++) {
+            timer.record(i * 1_000L);
+        }
+
+        assertEquals(10_000, timer.getCount());
+        assertEquals(10_000_000L, timer.getMaxNanos());
+        assertEquals(5_000_500.0, timer.getMeanNanos(), 1e-6);
+        // Mỗi ô rộng tối đa 1/32 giá trị nên phân vị sai không quá ~3%
+        assertEquals(5_000_000.0, timer.getPercentileNanos(0.50), 5_000_000 * 0.04);
+        assertEquals(9_900_000.0, timer.getPercentileNanos(0.99), 9_900_000 * 0.04);
+        assertEquals(9_990_000.0, timer.getPercentileNanos(0.999), 9_990_000 * 0.04);
+        for (long value : new long[]{0, 31, 32, 33, 1_000, 123_456_789, 1L << 39, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.indexOf(value));
+            assertTrue(upper >= Math.min(value, (1L << 40) - 1), "cận trên của " + value);
+        }
+    }
+
+    @Test
+    void testFormat_AfterServiceCall_ReportsServiceTimer() throws Exception {
+        BookService bookService = new BookService(new BookRepository());
+        bookService.addBook("978-0134685991", "Effective Java", "Joshua Bloch", 2018);
+
+        Timer addBook = MetricsRegistry.getInstance().timer("book.addBook");
+        assertTrue(addBook.getCount() >= 1);
+        assertTrue(MetricsRegistry.getInstance().formatText().contains("book.addBook"));
+        String json = MetricsRegistry.getInstance().formatJson();
+        assertTrue(json.startsWith("{\"timestamp\":"));
+        assertTrue(json.contains("\"book.addBook\":{\"count\":"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.library.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+    private static final LocalDateTime BORROWED = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+
+    @Test
+    void testNewTransaction_DueDateIsBorrowPeriodAfterBorrowDate() {
+        Transaction transaction = new Transaction("TXN-000000000001", "MEM-00000001", "978-0-13-468599-1");
+        LocalDateTime borrowed = transaction.getBorrowDate();
+
+        assertEquals(borrowed.plusDays(14), transaction.getDueDate());
+        assertEquals(Transaction.TransactionType.BORROW, transaction.getType());
+        assertNull(transaction.getReturnDate());
+        assertTrue(transaction.isOverdue(borrowed.plusDays(15)));
+        assertFalse(transaction.isOverdue(borrowed.plusDays(13)));
+    }
+
+    @Test
+    void testSetBorrowDate_AfterDueAndReturnDates_KeepsThem() {
+        Transaction transaction = new Transaction();
+        transaction.setDueDate(BORROWED.plusDays(7));
+        transaction.setReturnDate(BORROWED.plusDays(10));
+        transaction.setLateFee(3.0);
+
+        transaction.setBorrowDate(BORROWED);
+        transaction.setBorrowDate(BORROWED.minusDays(1));
+
+        assertEquals(BORROWED.withNano(0).minusDays(1), transaction.getBorrowDate());
+        assertEquals(BORROWED.withNano(0).plusDays(7), transaction.getDueDate());
+        assertEquals(BORROWED.withNano(0).plusDays(10), transaction.getReturnDate());
+        assertEquals(Transaction.TransactionType.RETURN, transaction.getType());
+        assertEquals(300, transaction.getLateFeeCents());
+        assertEquals(3.0, transaction.getLateFee());
+        assertFalse(transaction.isOverdue(BORROWED.plusDays(30)));
+    }
+
+    @Test
+    void testSetters_ValuesOutsideCompactLayout_KeptExactly() {
+        Transaction transaction = new Transaction();
+        transaction.setBorrowDate(BORROWED);
+
+        transaction.setReturnDate(BORROWED.plusYears(500));
+        transaction.setDueDate(BORROWED.minusYears(200));
+        transaction.setLateFee(1e12);
+        transaction.setBorrowDate(BORROWED.plusYears(499));
+
+        assertTrue(transaction.isReturned());
+        assertEquals(BORROWED.withNano(0).plusYears(500), transaction.getReturnDate());
+        assertEquals(BORROWED.withNano(0).minusYears(200), transaction.getDueDate());
+        assertEquals(100_000_000_000_000L, transaction.getLateFeeCents());
+        assertEquals(1e12, transaction.getLateFee());
+    }
+
+    @Test
+    void testSetLateFee_NotANumber_Throws() {
+        Transaction transaction = new Transaction();
+
+        assertThrows(IllegalArgumentException.class, () -> transaction.setLateFee(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> transaction.setLateFee(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void testDeserialize_LegacyWithoutBorrowDate_KeepsReturnedStatus() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId("TXN-000000000002");
+        transaction.setDueDate(BORROWED.plusDays(14));
+        transaction.setReturnDate(BORROWED.plusDays(20));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(transaction);
+        }
+        Transaction restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Transaction) in.readObject();
+        }
+
+        assertNull(restored.getBorrowDate());
+        assertEquals(BORROWED.withNano(0).plusDays(14), restored.getDueDate());
+        assertEquals(BORROWED.withNano(0).plusDays(20), restored.getReturnDate());
+        assertEquals(Transaction.TransactionType.RETURN, restored.getType());
+    }
+}
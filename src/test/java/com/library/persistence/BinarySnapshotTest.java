@@ -0,0 +1,229 @@
+package com.library.persistence;
+
+import com.library.model.Book;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BookRepository bookRepository;
+    private MemberRepository memberRepository;
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new BookRepository();
+        memberRepository = new MemberRepository();
+        transactionRepository = new TransactionRepository();
+
+        Book book = new Book("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+        book.setStatus(BookStatus.BORROWED);
+        book.setAddedDate(LocalDate.of(2024, 3, 1));
+        bookRepository.save(book);
+        bookRepository.save(new Book("978-6043199789", "Nhà Giả Kim", "Paulo Coelho", 2013));
+
+        Member member = new Member("MEM-0000000A", "Đặng Văn A", "dangvan@email.com", "1234567890");
+        member.borrowBook("978-1784877996");
+        memberRepository.save(member);
+        Member inactive = new Member("MEM-0000000B", "Nguyễn Thị B", "nguyenthi@email.com", "0987654321");
+        inactive.setActive(false);
+        memberRepository.save(inactive);
+
+        LocalDateTime borrowDate = LocalDateTime.of(2025, 1, 2, 10, 30, 15, 123_456_789);
+        Transaction returned = new Transaction("TXN-000000000001", "MEM-0000000A", "978-6043199789");
+        returned.setBorrowDate(borrowDate);
+        returned.setDueDate(borrowDate.plusDays(14));
+        returned.setReturnDate(borrowDate.plusDays(17).plusNanos(5));
+        returned.setLateFee(3.0);
+        transactionRepository.save(returned);
+        transactionRepository.save(new Transaction("TXN-000000000002", "MEM-0000000A", "978-1784877996"));
+    }
+
+    @Test
+    void testWriteThenRead_RestoresAllFields() throws IOException {
+        Path file = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(file, bookRepository, memberRepository, transactionRepository);
+
+        BookRepository books = new BookRepository();
+        MemberRepository members = new MemberRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        BinarySnapshot.read(file, books, members, transactions);
+
+        Book book = books.findByIsbn("978-1784877996").orElseThrow();
+        assertEquals("Rừng Na Uy", book.getTitle());
+        assertEquals("Haruki Murakami", book.getAuthor());
+        assertEquals(2022, book.getPublicationYear());
+        assertEquals(BookStatus.BORROWED, book.getStatus());
+        assertEquals(LocalDate.of(2024, 3, 1), book.getAddedDate());
+        assertEquals(2, books.count());
+
+        Member member = members.findById("MEM-0000000A").orElseThrow();
+        assertEquals("dangvan@email.com", member.getEmail());
+        assertEquals(List.of("978-1784877996"), member.getBorrowedBookIsbns());
+        assertFalse(members.findById("MEM-0000000B").orElseThrow().isActive());
+
+        List<Transaction> expected = transactionRepository.findAll();
+        List<Transaction> actual = transactions.findAll();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Transaction e = expected.get(i);
+            Transaction a = actual.get(i);
+            assertEquals(e.getTransactionId(), a.getTransactionId());
+            assertEquals(e.getMemberId(), a.getMemberId());
+            assertEquals(e.getBookIsbn(), a.getBookIsbn());
+            assertEquals(e.getBorrowDate(), a.getBorrowDate());
+            assertEquals(e.getDueDate(), a.getDueDate());
+            assertEquals(e.getReturnDate(), a.getReturnDate());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getLateFee(), a.getLateFee());
+        }
+        assertTrue(transactions.findActiveTransactionByBookIsbn("978-1784877996").isPresent());
+    }
+
+    @Test
+    void testWriteThenRead_LegacyIsbnWithBadChecksum_KeepsTextAndLoans() throws IOException {
+        String legacy = "978-0123456789";
+        bookRepository.save(new Book(legacy, "Sách cũ", "Tác giả cũ", 1999));
+        memberRepository.findById("MEM-0000000A").orElseThrow().borrowBook(legacy);
+        Transaction returned = new Transaction("TXN-000000000003", "MEM-0000000A", legacy);
+        returned.setReturnDate(returned.getBorrowDate().plusDays(3));
+        transactionRepository.save(returned);
+        transactionRepository.save(new Transaction("TXN-000000000004", "MEM-0000000A", legacy));
+
+        Path file = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(file, bookRepository, memberRepository, transactionRepository);
+        BookRepository books = new BookRepository();
+        MemberRepository members = new MemberRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        BinarySnapshot.read(file, books, members, transactions);
+
+        assertEquals("Sách cũ", books.findByIsbn(legacy).orElseThrow().getTitle());
+        assertTrue(members.findById("MEM-0000000A").orElseThrow().hasBorrowedBook(legacy));
+        assertEquals(legacy, transactions.findActiveTransactionByBookIsbn(legacy).orElseThrow().getBookIsbn());
+        assertEquals(2, transactions.findByBookIsbn(legacy).size());
+        assertTrue(books.findByIsbn("978-0123456780").isEmpty());
+    }
+
+    @Test
+    void testRead_CorruptedFile_ThrowsIOException() throws IOException {
+        Path file = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(file, bookRepository, memberRepository, transactionRepository);
+
+        Path current = BinarySnapshot.current(file);
+        byte[] bytes = Files.readAllBytes(current);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(current, bytes);
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(file,
+                new BookRepository(), new MemberRepository(), new TransactionRepository()));
+    }
+
+    @Test
+    void testWrite_WhileOpenedLazily_WritesNewGenerationInsteadOfReplacing() throws IOException {
+        Path file = tempDir.resolve("library_data.bin");
+        // Snapshot cũ không có hậu tố thế hệ
+        BinarySnapshot.write(file, bookRepository, memberRepository, transactionRepository);
+        Files.move(BinarySnapshot.current(file), file);
+        TransactionRepository mapped = new TransactionRepository();
+        BinarySnapshot.open(file, new BookRepository(), new MemberRepository(), mapped);
+
+        bookRepository.save(new Book("978-0132350884", "Clean Code", "Robert C. Martin", 2008));
+        BinarySnapshot.write(file, 7, bookRepository, memberRepository, transactionRepository);
+
+        Path current = BinarySnapshot.current(file);
+        assertEquals(tempDir.resolve("library_data.bin.000001"), current);
+        assertEquals(7, BinarySnapshot.readLsn(file));
+        BookRepository books = new BookRepository();
+        BinarySnapshot.read(file, books, new MemberRepository(), new TransactionRepository());
+        assertEquals(bookRepository.count(), books.count());
+        assertTrue(books.existsByIsbn("978-0132350884"));
+        // Kho vừa mở vẫn đọc được từ vùng ánh xạ của thế hệ cũ
+        assertEquals(transactionRepository.count(), mapped.count());
+    }
+
+    @Test
+    void testOpen_LazyArchiveAnswersQueriesLikeEagerRead() throws IOException {
+        TransactionRepository source = new TransactionRepository();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < 300; i++) {
+            Transaction transaction = new Transaction(String.format("TXN-%012d", i),
+                    "MEM-" + (i % 7), "978-" + (i % 11));
+            transaction.setBorrowDate(start.plusHours(i * 5L));
+            transaction.setDueDate(transaction.getBorrowDate().plusDays(14));
+            if (i % 10 != 0) {
+                transaction.setReturnDate(transaction.getBorrowDate().plusDays(i % 20));
+                transaction.setLateFee(Math.max(0, i % 20 - 14));
+            }
+            source.save(transaction);
+        }
+        Path file = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(file, bookRepository, memberRepository, source);
+
+        TransactionRepository eager = new TransactionRepository();
+        BinarySnapshot.read(file, new BookRepository(), new MemberRepository(), eager);
+        TransactionRepository lazy = new TransactionRepository();
+        BinarySnapshot.open(file, new BookRepository(), new MemberRepository(), lazy);
+
+        assertEquals(270, lazy.getArchive().size());
+        assertEquals(source.count(), lazy.count());
+        assertEquals(source.countActive(), lazy.countActive());
+        assertEquals(source.calculateTotalLateFees(), lazy.calculateTotalLateFees());
+        assertSameTransactions(eager.findByMemberId("MEM-3"), lazy.findByMemberId("MEM-3"));
+        assertSameTransactions(eager.findByBookIsbn("978-5"), lazy.findByBookIsbn("978-5"));
+        assertSameTransactions(eager.findRecentTransactions(25), lazy.findRecentTransactions(25));
+        assertSameTransactions(eager.findByBorrowDateBetween(start.plusDays(10), start.plusDays(20)),
+                lazy.findByBorrowDateBetween(start.plusDays(10), start.plusDays(20)));
+        assertSameTransactions(List.of(eager.findById("TXN-000000000123").orElseThrow()),
+                List.of(lazy.findById("TXN-000000000123").orElseThrow()));
+        assertFalse(lazy.existsById("TXN-999999999999"));
+        // Mã giao dịch chỉ nằm trong kho vẫn không bị cấp lại
+        assertEquals(source.getIdSequence().current(), lazy.getIdSequence().current());
+        assertFalse(lazy.existsById(lazy.nextId()));
+
+        // Lưu lại một giao dịch trong kho: bản trên heap che bản trong kho, không bị đếm hai lần
+        Transaction archived = lazy.findById("TXN-000000000123").orElseThrow();
+        archived.setLateFee(archived.getLateFee() + 5.0);
+        lazy.update(archived);
+
+        assertEquals(source.count(), lazy.count());
+        assertEquals(source.calculateTotalLateFees() + 5.0, lazy.calculateTotalLateFees());
+        assertEquals(source.findByMemberId(archived.getMemberId()).size(),
+                lazy.findByMemberId(archived.getMemberId()).size());
+        assertEquals(source.count(), lazy.findAll().size());
+    }
+
+    private static void assertSameTransactions(List<Transaction> expected, List<Transaction> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Transaction e = expected.get(i);
+            Transaction a = actual.get(i);
+            assertEquals(e.getTransactionId(), a.getTransactionId());
+            assertEquals(e.getMemberId(), a.getMemberId());
+            assertEquals(e.getBookIsbn(), a.getBookIsbn());
+            assertEquals(e.getBorrowDate(), a.getBorrowDate());
+            assertEquals(e.getDueDate(), a.getDueDate());
+            assertEquals(e.getReturnDate(), a.getReturnDate());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getLateFee(), a.getLateFee());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.library.persistence;
+
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.CompositeTransactionArchive;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColdTierTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMoveReturnedBefore_QueriesMergeHotAndColdTiers() throws Exception {
+        TransactionRepository expected = new TransactionRepository();
+        TransactionRepository tiered = new TransactionRepository();
+        for (int i = 0; i < 1_000; i++) {
+            expected.save(transaction(i));
+        }
+
+        // Nửa đầu nằm trong snapshot (giao dịch đã trả được ánh xạ bộ nhớ), nửa sau trên heap
+        TransactionRepository firstHalf = new TransactionRepository();
+        for (int i = 0; i < 500; i++) {
+            firstHalf.save(transaction(i));
+        }
+        Path snapshot = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(snapshot, new BookRepository(), new MemberRepository(), firstHalf);
+        BinarySnapshot.open(snapshot, new BookRepository(), new MemberRepository(), tiered);
+        for (int i = 500; i < 1_000; i++) {
+            tiered.save(transaction(i));
+        }
+
+        try (ColdTier coldTier = new ColdTier(tempDir.resolve("cold"))) {
+            int first = coldTier.moveReturnedBefore(tiered, START.plusHours(3_000));
+            int second = coldTier.moveReturnedBefore(tiered, START.plusHours(4_500));
+
+            assertTrue(first > 0);
+            assertTrue(second > 0);
+            assertEquals(0, coldTier.moveReturnedBefore(tiered, START.plusHours(4_500)));
+            assertEquals(2, coldTier.getSegmentCount());
+            assertEquals(first + second, coldTier.getColdTransactionCount());
+            assertEquals(3, ((CompositeTransactionArchive) tiered.getArchive()).getParts().size());
+
+            assertEquals(expected.count(), tiered.count());
+            assertEquals(expected.countActive(), tiered.countActive());
+            assertEquals(expected.countOverdue(START.plusDays(300)), tiered.countOverdue(START.plusDays(300)));
+            assertEquals(expected.calculateTotalLateFees(), tiered.calculateTotalLateFees(), 1e-9);
+            assertSameTransactions(expected.findByMemberId("MEM-3"), tiered.findByMemberId("MEM-3"));
+            assertSameTransactions(expected.findByBookIsbn("978-5"), tiered.findByBookIsbn("978-5"));
+            assertSameTransactions(expected.findRecentTransactions(40), tiered.findRecentTransactions(40));
+            assertSameTransactions(expected.findByBorrowDateBetween(START.plusDays(40), START.plusDays(150)),
+                    tiered.findByBorrowDateBetween(START.plusDays(40), START.plusDays(150)));
+            assertSameTransactions(List.of(expected.findById("TXN-000000000677").orElseThrow()),
+                    List.of(tiered.findById("TXN-000000000677").orElseThrow()));
+            assertFalse(tiered.existsById("TXN-999999999999"));
+            assertEquals(expected.count(), tiered.findAll().size());
+
+            // Giao dịch ở tầng lạnh được sửa: bản trên heap che bản trong segment
+            Transaction cold = tiered.findById("TXN-000000000601").orElseThrow();
+            cold.setLateFee(cold.getLateFee() + 2.0);
+            tiered.update(cold);
+            assertEquals(expected.count(), tiered.count());
+            assertEquals(expected.calculateTotalLateFees() + 2.0, tiered.calculateTotalLateFees(), 1e-9);
+        }
+    }
+
+    @Test
+    void testSegment_WriteThenOpenAcrossManyBlocks() throws Exception {
+        TransactionRepository source = new TransactionRepository();
+        for (int i = 0; i < 1_000; i++) {
+            Transaction transaction = transaction(i);
+            if (transaction.getReturnDate() != null) {
+                source.save(transaction);
+            }
+        }
+        List<Transaction> returned = source.findReturnedBefore(LocalDateTime.MAX);
+        Path file = tempDir.resolve("segment.seg");
+        TransactionSegment.write(file, returned);
+
+        try (TransactionSegment segment = TransactionSegment.open(file)) {
+            assertEquals(returned.size(), segment.size());
+            assertEquals((returned.size() + TransactionSegment.BLOCK_SIZE - 1) / TransactionSegment.BLOCK_SIZE,
+                    segment.getBlockCount());
+            assertEquals(source.calculateTotalLateFees(), segment.totalLateFees(), 1e-9);
+            assertSameTransactions(returned, iterate(segment));
+            assertSameTransactions(source.findByMemberId("MEM-2").reversed(), segment.findByMemberId("MEM-2"));
+            assertTrue(segment.contains("TXN-000000000999"));
+            assertFalse(segment.contains("TXN-000000000990"));
+        }
+
+        // Hỏng một byte trong khối nén: lỗi khi giải nén khối đó chứ không trả về dữ liệu sai
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[10] ^= 0x55;
+        Files.write(file, bytes);
+        try (TransactionSegment segment = TransactionSegment.open(file)) {
+            assertThrows(RuntimeException.class, () -> segment.findNewest(Integer.MAX_VALUE));
+        }
+    }
+
+    private static List<Transaction> iterate(TransactionSegment segment) {
+        List<Transaction> all = new ArrayList<>();
+        segment.forEach(all::add);
+        return all;
+    }
+
+    /*
+     * Giao dịch thứ i: mượn cách nhau 5 giờ, cứ 10 giao dịch có một chưa trả
+     */
+    private static Transaction transaction(int i) {
+        Transaction transaction = new Transaction(String.format("TXN-%012d", i), "MEM-" + (i % 7), "978-" + (i % 11));
+        transaction.setBorrowDate(START.plusHours(i * 5L));
+        transaction.setDueDate(transaction.getBorrowDate().plusDays(14));
+        if (i % 10 != 0) {
+            transaction.setReturnDate(transaction.getBorrowDate().plusDays(i % 20));
+            transaction.setLateFee(Math.max(0, i % 20 - 14));
+        }
+        return transaction;
+    }
+
+    private static void assertSameTransactions(List<Transaction> expected, List<Transaction> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Transaction e = expected.get(i);
+            Transaction a = actual.get(i);
+            assertEquals(e.getTransactionId(), a.getTransactionId());
+            assertEquals(e.getMemberId(), a.getMemberId());
+            assertEquals(e.getBookIsbn(), a.getBookIsbn());
+            assertEquals(e.getBorrowDate(), a.getBorrowDate());
+            assertEquals(e.getDueDate(), a.getDueDate());
+            assertEquals(e.getReturnDate(), a.getReturnDate());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getLateFee(), a.getLateFee());
+        }
+    }
+}
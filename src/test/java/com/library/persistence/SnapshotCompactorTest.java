@@ -0,0 +1,138 @@
+package com.library.persistence;
+
+import com.library.exception.InvalidOperationException;
+import com.library.model.Member;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCompactorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSnapshot_FoldsSealedSegmentsAndKeepsNewerRecordsInLog() throws Exception {
+        Path snapshotFile = tempDir.resolve("library_data.bin");
+        Path logFile = tempDir.resolve("library_data.wal");
+        String memberId;
+
+        try (WriteAheadLog log = new WriteAheadLog(logFile);
+             SnapshotCompactor compactor = new SnapshotCompactor(snapshotFile, log)) {
+            LibraryStatistics statistics = new LibraryStatistics();
+            BookService bookService = new BookService(new BookRepository(), statistics, log);
+            MemberService memberService = new MemberService(new MemberRepository(), statistics, log);
+            TransactionService transactionService = new TransactionService(
+                    new TransactionRepository(), bookService, memberService, statistics, log);
+
+            bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+            bookService.addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+            Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+            memberId = john.getMemberId();
+            transactionService.borrowBook(memberId, "978-0132350884");
+
+            compactor.requestSnapshot().get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, compactor.getCompletedSnapshots());
+            assertEquals(4, compactor.getLastSnapshotLsn());
+            assertTrue(compactor.getLastDurationNanos() >= compactor.getLastPauseNanos());
+            assertTrue(WriteAheadLog.segments(logFile).isEmpty());
+            assertEquals(0, Files.size(logFile));
+
+            // Thao tác sau khi snapshot chỉ nằm trong nhật ký
+            transactionService.returnBook(memberId, "978-0132350884");
+            bookService.removeBook("978-1784877996");
+        }
+
+        BookRepository books = new BookRepository();
+        MemberRepository members = new MemberRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        long snapshotLsn = BinarySnapshot.read(snapshotFile, books, members, transactions);
+
+        assertEquals(4, snapshotLsn);
+        assertEquals(2, books.count());
+        assertEquals(1, transactions.countActive());
+
+        assertEquals(6, WriteAheadLog.replay(logFile, snapshotLsn, books, members, transactions));
+        assertEquals(1, books.count());
+        assertEquals(0, transactions.countActive());
+        assertEquals(0, members.findById(memberId).orElseThrow().getBorrowedBookCount());
+    }
+
+    @Test
+    void testSnapshot_WithoutNewRecordsKeepsExistingSnapshot() throws Exception {
+        Path snapshotFile = tempDir.resolve("library_data.bin");
+        try (WriteAheadLog log = new WriteAheadLog(tempDir.resolve("library_data.wal"));
+             SnapshotCompactor compactor = new SnapshotCompactor(snapshotFile, log)) {
+            new BookService(new BookRepository(), new LibraryStatistics(), log)
+                    .addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+
+            compactor.snapshotNow();
+            Path current = BinarySnapshot.current(snapshotFile);
+            long modified = Files.getLastModifiedTime(current).toMillis();
+            compactor.snapshotNow();
+
+            assertEquals(2, compactor.getCompletedSnapshots());
+            assertEquals(current, BinarySnapshot.current(snapshotFile));
+            assertEquals(modified, Files.getLastModifiedTime(current).toMillis());
+        }
+    }
+
+    @Test
+    void testSnapshot_ConcurrentWithAppends_KeepsEveryAcknowledgedRecord() throws Exception {
+        Path snapshotFile = tempDir.resolve("library_data.bin");
+        Path logFile = tempDir.resolve("library_data.wal");
+        int threads = 8;
+        int perThread = 100;
+
+        try (WriteAheadLog log = new WriteAheadLog(logFile, snapshotFile);
+             SnapshotCompactor compactor = new SnapshotCompactor(snapshotFile, log)) {
+            MemberService memberService = new MemberService(new MemberRepository(), new LibraryStatistics(), log);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        try {
+                            memberService.registerMember("Member " + worker + "-" + i,
+                                    "member" + worker + "-" + i + "@email.com", "0900000000");
+                        } catch (InvalidOperationException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            // Gộp liên tục trong lúc các luồng đang ghi nhật ký
+            while (workers.stream().anyMatch(Thread::isAlive)) {
+                compactor.snapshotNow();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            compactor.snapshotNow();
+        }
+
+        BookRepository books = new BookRepository();
+        MemberRepository members = new MemberRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        long snapshotLsn = BinarySnapshot.read(snapshotFile, books, members, transactions);
+        WriteAheadLog.replay(logFile, snapshotLsn, books, members, transactions);
+
+        assertEquals(threads * perThread, members.count());
+    }
+}
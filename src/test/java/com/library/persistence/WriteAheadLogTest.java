@@ -0,0 +1,195 @@
+package com.library.persistence;
+
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.service.BookService;
+import com.library.service.LibraryStatistics;
+import com.library.service.MemberService;
+import com.library.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path logFile;
+    private BookRepository bookRepository;
+    private MemberRepository memberRepository;
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        logFile = tempDir.resolve("library_data.wal");
+        bookRepository = new BookRepository();
+        memberRepository = new MemberRepository();
+        transactionRepository = new TransactionRepository();
+    }
+
+    @Test
+    void testReplay_RestoresServiceMutations() throws Exception {
+        String johnId;
+        String janeId;
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            LibraryStatistics statistics = new LibraryStatistics();
+            BookService bookService = new BookService(new BookRepository(), statistics, log);
+            MemberService memberService = new MemberService(new MemberRepository(), statistics, log);
+            TransactionService transactionService = new TransactionService(
+                    new TransactionRepository(), bookService, memberService, statistics, log);
+
+            bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+            bookService.addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+            bookService.addBook("978-6043199789", "Nhà Giả Kim", "Paulo Coelho", 2013);
+            Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+            Member jane = memberService.registerMember("Jane Doe", "jane@email.com", "0987654321");
+            johnId = john.getMemberId();
+            janeId = jane.getMemberId();
+
+            transactionService.borrowBook(johnId, "978-0132350884");
+            transactionService.borrowBook(johnId, "978-1784877996");
+            transactionService.returnBook(johnId, "978-0132350884");
+            memberService.updateMember(janeId, null, "jane.doe@email.com", null);
+            memberService.deactivateMember(janeId);
+            bookService.removeBook("978-6043199789");
+        }
+
+        long lastLsn = WriteAheadLog.replay(logFile, 0, bookRepository, memberRepository, transactionRepository);
+
+        assertEquals(11, lastLsn);
+        assertEquals(2, bookRepository.count());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findByIsbn("978-0132350884").orElseThrow().getStatus());
+        assertEquals(BookStatus.BORROWED, bookRepository.findByIsbn("978-1784877996").orElseThrow().getStatus());
+        assertEquals(List.of("978-1784877996"), memberRepository.findById(johnId).orElseThrow().getBorrowedBookIsbns());
+        Member jane = memberRepository.findById(janeId).orElseThrow();
+        assertFalse(jane.isActive());
+        assertTrue(memberRepository.existsByEmail("jane.doe@email.com"));
+        assertFalse(memberRepository.existsByEmail("jane@email.com"));
+        assertEquals(2, transactionRepository.count());
+        assertEquals(1, transactionRepository.countActive());
+    }
+
+    @Test
+    void testReplay_SkipsRecordsCoveredBySnapshot() throws Exception {
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            BookService bookService = new BookService(new BookRepository(), new LibraryStatistics(), log);
+            bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+            bookService.addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+        }
+
+        long lastLsn = WriteAheadLog.replay(logFile, 1, bookRepository, memberRepository, transactionRepository);
+
+        assertEquals(2, lastLsn);
+        assertFalse(bookRepository.existsByIsbn("978-0132350884"));
+        assertTrue(bookRepository.existsByIsbn("978-1784877996"));
+    }
+
+    @Test
+    void testReplay_TornTailIsIgnoredAndTruncatedOnReopen() throws Exception {
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            new BookService(new BookRepository(), new LibraryStatistics(), log)
+                    .addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+        }
+        // Mô phỏng crash giữa lúc ghi: nửa bản ghi ở cuối file
+        Files.write(logFile, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertEquals(1, WriteAheadLog.replay(logFile, 0, new BookRepository(), memberRepository,
+                transactionRepository));
+
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            new BookService(new BookRepository(), new LibraryStatistics(), log)
+                    .addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+        }
+
+        assertEquals(2, WriteAheadLog.replay(logFile, 0, bookRepository, memberRepository, transactionRepository));
+        assertEquals(2, bookRepository.count());
+    }
+
+    @Test
+    void testRotate_SealsSegmentAndReplayReadsAllSegments() throws Exception {
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            BookService bookService = new BookService(new BookRepository(), new LibraryStatistics(), log);
+            bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+
+            assertEquals(1, log.rotate());
+            assertEquals(0, Files.size(logFile));
+            assertEquals(1, WriteAheadLog.segments(logFile).size());
+
+            bookService.addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+            assertEquals(2, log.getLastLsn());
+        }
+
+        assertEquals(2, WriteAheadLog.replay(logFile, 0, bookRepository, memberRepository, transactionRepository));
+        assertEquals(2, bookRepository.count());
+
+        WriteAheadLog.deleteSegments(logFile, 1);
+        assertTrue(WriteAheadLog.segments(logFile).isEmpty());
+    }
+
+    @Test
+    void testOpen_AfterCompactionEmptiedLog_ContinuesAfterSnapshotLsn() throws Exception {
+        // Sau một lần gộp: snapshot giữ LSN 42, file đang ghi rỗng, không còn phân đoạn nào
+        Path snapshotFile = tempDir.resolve("library_data.bin");
+        BinarySnapshot.write(snapshotFile, 42, new BookRepository(), new MemberRepository(),
+                new TransactionRepository());
+        Files.createFile(logFile);
+
+        try (WriteAheadLog log = new WriteAheadLog(logFile, snapshotFile)) {
+            new BookService(new BookRepository(), new LibraryStatistics(), log)
+                    .addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+            assertEquals(43, log.getLastLsn());
+        }
+
+        assertEquals(43, WriteAheadLog.replay(logFile, BinarySnapshot.readLsn(snapshotFile),
+                bookRepository, memberRepository, transactionRepository));
+        assertTrue(bookRepository.existsByIsbn("978-0132350884"));
+    }
+
+    @Test
+    void testConcurrentAppends_AreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        Transaction transaction = new Transaction(
+                                "TXN-" + (offset + i), "MEM-00000001", "978-0132350884");
+                        log.awaitDurable(log.bookBorrowed(transaction));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertTrue(log.getBatchCount() <= threads * perThread);
+        }
+
+        assertEquals(threads * perThread,
+                WriteAheadLog.replay(logFile, 0, bookRepository, memberRepository, transactionRepository));
+        assertEquals(threads * perThread, transactionRepository.count());
+    }
+
+    @Test
+    void testReplay_MissingFileIsEmptyLog() throws IOException {
+        assertEquals(7, WriteAheadLog.replay(logFile, 7, bookRepository, memberRepository, transactionRepository));
+    }
+}
@@ -0,0 +1,105 @@
+package com.library.repository;
+
+import com.library.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookRepositoryTest {
+
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new BookRepository();
+        bookRepository.save(new Book("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022));
+        bookRepository.save(new Book("978-6043199789", "Nhà Giả Kim", "Paulo Coelho", 2013));
+        bookRepository.save(new Book("978-1908696519", "The Prince", "Niccolo Machiavelli ", 2012));
+        bookRepository.save(new Book("978-0132350884", "Clean Code: A Handbook", "Robert C. Martin", 2008));
+    }
+
+    @Test
+    void testFindByAuthor_InfixFragment_ReturnsBook() {
+        List<Book> results = bookRepository.findByAuthor("urak");
+
+        assertEquals(1, results.size());
+        assertEquals("978-1784877996", results.get(0).getIsbn());
+    }
+
+    @Test
+    void testFindByTitle_AcrossTokenBoundary_ReturnsBook() {
+        List<Book> results = bookRepository.findByTitle("ng na u");
+
+        assertEquals(1, results.size());
+        assertEquals("Rừng Na Uy", results.get(0).getTitle());
+    }
+
+    @Test
+    void testSearch_MatchesIsbnFragment() {
+        List<Book> results = bookRepository.search("-6043");
+
+        assertEquals(1, results.size());
+        assertEquals("Nhà Giả Kim", results.get(0).getTitle());
+    }
+
+    @Test
+    void testSearch_InfixIsbnFragment_ReturnsBook() {
+        List<Book> results = bookRepository.search("08696");
+
+        assertEquals(1, results.size());
+        assertEquals("The Prince", results.get(0).getTitle());
+    }
+
+    @Test
+    void testEstimateSearchIndexMemory_GrowsWithCatalog() {
+        long before = bookRepository.estimateSearchIndexMemory();
+        bookRepository.save(new Book("978-6049950421", "Hoàng tử bé", "Antoine de Saint-Exupéry", 2007));
+
+        assertTrue(before > 0);
+        assertTrue(bookRepository.estimateSearchIndexMemory() > before);
+    }
+
+    @Test
+    void testUpdate_ChangedTitle_ReindexesBook() {
+        Book book = bookRepository.findByIsbn("978-1908696519").orElseThrow();
+        book.setTitle("Quân Vương");
+        bookRepository.update(book);
+
+        assertTrue(bookRepository.findByTitle("prince").isEmpty());
+        assertEquals(1, bookRepository.findByTitle("vương").size());
+    }
+
+    @Test
+    void testDeleteByIsbn_RemovesFromSearch() {
+        bookRepository.deleteByIsbn("978-6043199789");
+
+        assertTrue(bookRepository.search("kim").isEmpty());
+        assertTrue(bookRepository.findByAuthor("coelho").isEmpty());
+    }
+
+    @Test
+    void testSearch_SameResultsAsFullScan() {
+        List<String> queries = List.of("a", "an", " a", "a ", "na u", "code:", ": a", "978", "-0",
+                "machiavelli ", "e c", "x", "rừng", "c. m", "--", " ", "hand", "andb", "rince", "ng n", "99");
+
+        for (String query : queries) {
+            String term = query.toLowerCase();
+            Set<String> expected = bookRepository.findAll().stream()
+                    .filter(book -> book.getTitle().toLowerCase().contains(term)
+                            || book.getAuthor().toLowerCase().contains(term)
+                            || book.getIsbn().toLowerCase().contains(term))
+                    .map(Book::getIsbn)
+                    .collect(Collectors.toSet());
+
+            Set<String> actual = bookRepository.search(query).stream()
+                    .map(Book::getIsbn)
+                    .collect(Collectors.toSet());
+
+            assertEquals(expected, actual, "Truy vấn: '" + query + "'");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.library.repository;
+
+import com.library.model.Book;
+import com.library.model.Member;
+import com.library.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Nhiều luồng ghi song song với các luồng đọc trên cùng repository: không mất cập nhật nào
+ * và các index phụ vẫn khớp với dữ liệu
+ */
+class ConcurrentRepositoryTest {
+    private static final int WRITERS = 8;
+    private static final int PER_WRITER = 2_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    @Test
+    void testTransactionRepository_ParallelSavesAndReturnsLoseNothing() throws Exception {
+        TransactionRepository repository = new TransactionRepository();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                for (int i = 0; i < PER_WRITER; i++) {
+                    Transaction transaction = new Transaction(String.format("TXN-%d-%05d", writer, i),
+                            "MEM-" + (i % 50), "978-" + writer + "-" + i);
+                    transaction.setBorrowDate(START.plusMinutes(i));
+                    transaction.setDueDate(START.plusMinutes(i).plusDays(14));
+                    repository.save(transaction);
+                    if (i % 2 == 0) {
+                        transaction.completeReturn();
+                        repository.update(transaction);
+                    }
+                }
+                return null;
+            });
+        }
+        for (int r = 0; r < 2; r++) {
+            tasks.add(() -> {
+                while (writing.get()) {
+                    repository.findRecentTransactions(20);
+                    repository.findByMemberId("MEM-7");
+                    repository.findActiveTransactionsByMemberId("MEM-3");
+                    repository.countOverdue(START.plusDays(30));
+                    reads.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        runAll(tasks, WRITERS, writing);
+
+        int total = WRITERS * PER_WRITER;
+        assertEquals(total, repository.count());
+        assertEquals(total, repository.findAll().size());
+        assertEquals(total / 2, repository.countActive());
+        assertEquals(total / 2, repository.countOverdue(START.plusDays(60)));
+        int byMember = 0;
+        int activeByMember = 0;
+        for (int m = 0; m < 50; m++) {
+            byMember += repository.findByMemberId("MEM-" + m).size();
+            activeByMember += repository.findActiveTransactionsByMemberId("MEM-" + m).size();
+        }
+        assertEquals(total, byMember);
+        assertEquals(total / 2, activeByMember);
+        assertEquals(total, repository.findByBorrowDateBetween(START, START.plusDays(10)).size());
+        assertTrue(reads.get() > 0);
+    }
+
+    @Test
+    void testMemberRepository_ConcurrentClaimsOfOneEmailHaveOneWinner() throws Exception {
+        MemberRepository repository = new MemberRepository();
+        AtomicInteger winners = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                for (int i = 0; i < 500; i++) {
+                    String id = String.format("MEM-%d-%03d", writer, i);
+                    // Email chung: chỉ một thành viên giữ được; email riêng: luôn lưu được
+                    if (repository.save(new Member(id + "-shared", "Shared " + id, "shared" + i + "@email.com", "0"))) {
+                        winners.incrementAndGet();
+                    }
+                    assertTrue(repository.save(new Member(id, "Thành viên " + id, id + "@email.com", "0")));
+                }
+                return null;
+            });
+        }
+
+        runAll(tasks, WRITERS, new AtomicBoolean());
+
+        assertEquals(500, winners.get());
+        assertEquals(WRITERS * 500 + 500, repository.count());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(repository.findByEmail("shared" + i + "@email.com").isPresent());
+        }
+        assertEquals(WRITERS * 500, repository.findByName("thành viên").size());
+    }
+
+    @Test
+    void testBookRepository_ParallelSavesAreAllSearchable() throws Exception {
+        BookRepository repository = new BookRepository();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    repository.save(new Book(String.format("978-%d-%04d", writer, i),
+                            "Sách tuyển tập " + writer + " số " + i, "Tác giả " + writer, 2000));
+                }
+                return null;
+            });
+        }
+        tasks.add(() -> {
+            while (writing.get()) {
+                repository.search("tuyển");
+                repository.findByAuthor("giả 3");
+            }
+            return null;
+        });
+
+        runAll(tasks, WRITERS, writing);
+
+        assertEquals(WRITERS * 1_000, repository.count());
+        assertEquals(WRITERS * 1_000, repository.search("tuyển tập").size());
+        assertEquals(1_000, repository.findByAuthor("tác giả 5").size());
+    }
+
+    /*
+     * Chạy mọi task cùng lúc; writing chuyển sang false khi writerCount task đầu (luồng ghi) xong
+     */
+    private static void runAll(List<Callable<Void>> tasks, int writerCount, AtomicBoolean writing) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < writerCount; i++) {
+                futures.get(i).get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
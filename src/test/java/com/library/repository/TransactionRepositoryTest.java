@@ -0,0 +1,159 @@
+package com.library.repository;
+
+import com.library.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+    }
+
+    private Transaction borrow(String id, String memberId, String isbn, int dayOffset) {
+        Transaction transaction = new Transaction(id, memberId, isbn);
+        transaction.setBorrowDate(START.plusDays(dayOffset));
+        transaction.setDueDate(START.plusDays(dayOffset + 14));
+        transactionRepository.save(transaction);
+        return transaction;
+    }
+
+    @Test
+    void testFindByMemberId_ReturnsNewestFirst() {
+        borrow("TXN-1", "MEM-A", "978-1", 2);
+        borrow("TXN-2", "MEM-B", "978-2", 1);
+        borrow("TXN-3", "MEM-A", "978-3", 0);
+        borrow("TXN-4", "MEM-A", "978-4", 5);
+
+        List<Transaction> results = transactionRepository.findByMemberId("MEM-A");
+
+        assertEquals(List.of("TXN-4", "TXN-1", "TXN-3"),
+                results.stream().map(Transaction::getTransactionId).toList());
+        assertTrue(transactionRepository.findByMemberId("MEM-X").isEmpty());
+    }
+
+    @Test
+    void testSave_ReplacingTransaction_MovesItInMemberAndBookHistory() {
+        borrow("TXN-1", "MEM-A", "978-1", 0);
+        borrow("TXN-2", "MEM-A", "978-2", 5);
+        borrow("TXN-3", "MEM-A", "978-3", 10);
+
+        Transaction replacement = new Transaction("TXN-2", "MEM-A", "978-2");
+        replacement.setBorrowDate(START.plusDays(12));
+        transactionRepository.save(replacement);
+
+        assertEquals(List.of("TXN-2", "TXN-3", "TXN-1"), transactionRepository.findByMemberId("MEM-A").stream()
+                .map(Transaction::getTransactionId).toList());
+        assertEquals(List.of(replacement), transactionRepository.findByBookIsbn("978-2"));
+    }
+
+    @Test
+    void testFindByBookIsbn_IncludesReturnedTransactions() {
+        Transaction first = borrow("TXN-1", "MEM-A", "978-1", 0);
+        first.completeReturn();
+        transactionRepository.update(first);
+        borrow("TXN-2", "MEM-B", "978-1", 20);
+
+        List<Transaction> results = transactionRepository.findByBookIsbn("978-1");
+
+        assertEquals(2, results.size());
+        assertEquals("TXN-2", results.get(0).getTransactionId());
+    }
+
+    @Test
+    void testUpdate_CompletedReturn_RemovesOpenLoan() {
+        Transaction transaction = borrow("TXN-1", "MEM-A", "978-1", 0);
+        borrow("TXN-2", "MEM-A", "978-2", 1);
+
+        assertTrue(transactionRepository.findActiveTransactionByBookIsbn("978-1").isPresent());
+        assertEquals(2, transactionRepository.countActive());
+
+        transaction.completeReturn();
+        transactionRepository.update(transaction);
+
+        assertTrue(transactionRepository.findActiveTransactionByBookIsbn("978-1").isEmpty());
+        assertEquals(1, transactionRepository.countActive());
+        assertEquals(List.of("TXN-2"), transactionRepository.findActiveTransactionsByMemberId("MEM-A").stream()
+                .map(Transaction::getTransactionId).toList());
+        assertEquals(2, transactionRepository.findByMemberId("MEM-A").size());
+    }
+
+    @Test
+    void testFindRecentTransactions_ReturnsLatestBorrowDatesFirst() {
+        borrow("TXN-1", "MEM-A", "978-1", 3);
+        borrow("TXN-2", "MEM-B", "978-2", 9);
+        borrow("TXN-3", "MEM-A", "978-3", 1);
+        borrow("TXN-4", "MEM-C", "978-4", 5);
+
+        assertEquals(List.of("TXN-2", "TXN-4"), transactionRepository.findRecentTransactions(2).stream()
+                .map(Transaction::getTransactionId).toList());
+        assertEquals(4, transactionRepository.findRecentTransactions(10).size());
+    }
+
+    @Test
+    void testFindByBorrowDateBetween_InclusiveRange() {
+        borrow("TXN-1", "MEM-A", "978-1", 0);
+        borrow("TXN-2", "MEM-B", "978-2", 2);
+        borrow("TXN-3", "MEM-A", "978-3", 4);
+        borrow("TXN-4", "MEM-C", "978-4", 6);
+
+        List<Transaction> results = transactionRepository.findByBorrowDateBetween(START.plusDays(2), START.plusDays(4));
+
+        assertEquals(List.of("TXN-2", "TXN-3"), results.stream().map(Transaction::getTransactionId).toList());
+        assertTrue(transactionRepository.findByBorrowDateBetween(START.plusDays(4), START).isEmpty());
+    }
+
+    @Test
+    void testFindOverdueTransactions_OrderedByDueDate() {
+        borrow("TXN-1", "MEM-A", "978-1", 5);
+        borrow("TXN-2", "MEM-B", "978-2", 0);
+        borrow("TXN-3", "MEM-C", "978-3", 30);
+
+        List<Transaction> overdue = transactionRepository.findOverdueTransactions(START.plusDays(25));
+
+        assertEquals(List.of("TXN-2", "TXN-1"), overdue.stream().map(Transaction::getTransactionId).toList());
+    }
+
+    @Test
+    void testCountOverdue_TracksClockAndMutations() {
+        Transaction first = borrow("TXN-1", "MEM-A", "978-1", 0);
+        borrow("TXN-2", "MEM-B", "978-2", 5);
+        borrow("TXN-3", "MEM-C", "978-3", 10);
+
+        assertEquals(0, transactionRepository.countOverdue(START.plusDays(14)));
+        assertEquals(1, transactionRepository.countOverdue(START.plusDays(15)));
+        assertEquals(3, transactionRepository.countOverdue(START.plusDays(30)));
+        assertEquals(2, transactionRepository.countOverdue(START.plusDays(20)));
+
+        first.setReturnDate(START.plusDays(21));
+        transactionRepository.update(first);
+        assertEquals(1, transactionRepository.countOverdue(START.plusDays(20)));
+
+        borrow("TXN-4", "MEM-D", "978-4", 1);
+        assertEquals(2, transactionRepository.countOverdue(START.plusDays(20)));
+        assertEquals(3, transactionRepository.countOverdue(START.plusDays(30)));
+        assertEquals(transactionRepository.findOverdueTransactions(START.plusDays(30)).size(),
+                transactionRepository.countOverdue(START.plusDays(30)));
+    }
+
+    @Test
+    void testClear_ResetsIndexes() {
+        borrow("TXN-1", "MEM-A", "978-1", 0);
+
+        transactionRepository.clear();
+
+        assertTrue(transactionRepository.findByMemberId("MEM-A").isEmpty());
+        assertTrue(transactionRepository.findActiveTransactionByBookIsbn("978-1").isEmpty());
+        assertEquals(0, transactionRepository.countActive());
+    }
+}
@@ -0,0 +1,99 @@
+package com.library.service;
+
+import com.library.repository.BookRepository;
+import com.library.util.Isbn;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookImporterTest {
+    private LibraryStatistics statistics;
+    private BookService bookService;
+    private BookImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        statistics = new LibraryStatistics();
+        bookService = new BookService(new BookRepository(), statistics);
+        importer = new BookImporter(bookService);
+    }
+
+    @Test
+    void testImportCsv_ValidRowsImportedAndRejectionsReported() throws Exception {
+        bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+        String csv = "isbn,title,author,publicationYear\n"
+                + "978-0201633610,\"Design Patterns: Elements, Reusable\",\"Gamma \"\"GoF\"\"\",1994\n"
+                + "978-0134685991,Effective Java,Joshua Bloch,2018\n"
+                + "\n"
+                + "không-phải-isbn,Sách lỗi,Tác giả,2000\n"
+                + "978-0596009205,Head First Java,Kathy Sierra,năm\n"
+                + "978-0134685991,Effective Java (bản trùng),Joshua Bloch,2018\n"
+                + "978-0132350884,Clean Code,Robert C. Martin,2008\n"
+                + "978-0596009205,,Kathy Sierra,2005\n"
+                + "978-1617294945,\"Thiếu nháy đóng,Tác giả,2019\n";
+
+        BookImporter.ImportReport report = importer.importFrom(
+                new BufferedReader(new StringReader(csv)), BookImporter.Format.CSV);
+
+        assertEquals(8, report.getRowsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(6, report.getRejected());
+        assertEquals("Gamma \"GoF\"", bookService.findBookByIsbn("978-0201633610").getAuthor());
+        assertEquals("Design Patterns: Elements, Reusable", bookService.findBookByIsbn("978-0201633610").getTitle());
+        assertEquals(3, statistics.getTotalBooks());
+        assertEquals(3, statistics.getAvailableBooks());
+
+        List<BookImporter.Rejection> rejections = report.getRejections();
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 5 && r.getReason().contains("ISBN")));
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 6 && r.getReason().contains("Năm")));
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 7 && r.getReason().contains("dòng 3")));
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 8 && r.getReason().contains("đã tồn tại")));
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 9));
+        assertTrue(rejections.stream().anyMatch(r -> r.getLineNumber() == 10));
+    }
+
+    @Test
+    void testImportFile_TsvAndJsonLinesAcrossChunks(@TempDir Path dir) throws Exception {
+        int rows = BookImporter.CHUNK_SIZE * 2 + 17;
+        Path tsv = dir.resolve("books.tsv");
+        try (BufferedWriter writer = Files.newBufferedWriter(tsv)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.format("%s\tSách số %d\tTác giả %d\t2000%n", isbn(i), i, i % 10));
+            }
+            // Trùng với lô đầu tiên: phát hiện qua repository
+            writer.write(isbn(1) + "\tSách trùng\tTác giả\t2000\n");
+        }
+        Path jsonl = dir.resolve("books.jsonl");
+        Files.writeString(jsonl, "{\"isbn\":\"978-0596009205\",\"title\":\"Head First Java\",\"author\":\"Kathy Sierra\",\"publicationYear\":2005}\n"
+                + "{\"isbn\":\"978-1617294945\",\"title\":\"Spring in Action\"}\n"
+                + "{\"isbn\": \n");
+
+        BookImporter.ImportReport tsvReport = importer.importFile(tsv);
+        BookImporter.ImportReport jsonReport = importer.importFile(jsonl);
+
+        assertEquals(rows + 1, tsvReport.getRowsRead());
+        assertEquals(rows, tsvReport.getImported());
+        assertEquals(1, tsvReport.getRejected());
+        assertEquals(rows + 1, tsvReport.getRejections().get(0).getLineNumber());
+        assertTrue(tsvReport.getRowsPerSecond() > 0);
+        assertEquals(1, jsonReport.getImported());
+        assertEquals(2, jsonReport.getRejected());
+        assertEquals(rows + 1, bookService.getTotalBookCount());
+        assertEquals(rows / 10 + 1, bookService.searchBooksByAuthor("tác giả 3").size());
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile(dir.resolve("books.xml")));
+    }
+
+    // ISBN-13 thứ i có chữ số kiểm tra hợp lệ
+    private static String isbn(int i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+}
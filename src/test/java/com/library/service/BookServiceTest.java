@@ -25,10 +25,10 @@ class BookServiceTest {
 
     @Test
     void testAddBook_WithValidData_Success() throws InvalidOperationException {
-        Book book = bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
+        Book book = bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
 
         assertNotNull(book);
-        assertEquals("978-0123456789", book.getIsbn());
+        assertEquals("978-0123456786", book.getIsbn());
         assertEquals("Test case", book.getTitle());
         assertEquals("Khang Dang", book.getAuthor());
         assertEquals(2026, book.getPublicationYear());
@@ -45,36 +45,49 @@ class BookServiceTest {
     @Test
     void testAddBook_WithEmptyTitle_ThrowsException() {
         assertThrows(InvalidOperationException.class, () -> {
-            bookService.addBook("978-0123456789", "", "Tac gia", 2020);
+            bookService.addBook("978-0123456786", "", "Tac gia", 2020);
         });
     }
 
     @Test
     void testAddBook_WithInvalidYear_ThrowsException() {
         assertThrows(InvalidOperationException.class, () -> {
-            bookService.addBook("978-0123456789", "Ten", "Tac gia", 2100);
+            bookService.addBook("978-0123456786", "Ten", "Tac gia", 2100);
         });
     }
 
     @Test
     void testAddBook_WithDuplicateIsbn_ThrowsException() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
 
         assertThrows(InvalidOperationException.class, () -> {
-            bookService.addBook("978-0123456789", "abc", "abc", 2020);
+            bookService.addBook("978-0123456786", "abc", "abc", 2020);
         });
     }
 
     @Test
     void testFindBookByIsbn_ExistingBook_ReturnsBook() throws Exception {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
 
-        Book found = bookService.findBookByIsbn("978-0123456789");
+        Book found = bookService.findBookByIsbn("978-0123456786");
 
         assertNotNull(found);
         assertEquals("Test case", found.getTitle());
     }
 
+    @Test
+    void testFindBookByIsbn_AnySpellingOfSameIsbn_ReturnsSameBook() throws Exception {
+        Book book = bookService.addBook("0-13-235088-2", "Clean Code", "Robert C. Martin", 2008);
+
+        // Giữ cách viết đã nhập để hiển thị và tìm kiếm
+        assertEquals("0-13-235088-2", book.getIsbn());
+        assertEquals(List.of(book), bookService.searchBooks("235088-2"));
+        assertSame(book, bookService.findBookByIsbn("9780132350884"));
+        assertSame(book, bookService.findBookByIsbn("ISBN 978-0-13-235088-4"));
+        assertThrows(InvalidOperationException.class, () ->
+                bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008));
+    }
+
     @Test
     void testFindBookByIsbn_NonExistingBook_ThrowsException() {
         assertThrows(BookNotFoundException.class, () -> {
@@ -84,8 +97,8 @@ class BookServiceTest {
 
     @Test
     void testSearchBooksByTitle_PartialMatch_ReturnsBooks() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.addBook("978-9876543210", "Test java", "abcxyz", 2017);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-9876543217", "Test java", "abcxyz", 2017);
 
         List<Book> results = bookService.searchBooksByTitle("case");
 
@@ -95,8 +108,8 @@ class BookServiceTest {
 
     @Test
     void testSearchBooksByAuthor_PartialMatch_ReturnsBooks() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2008);
-        bookService.addBook("978-9876543210", "Test java", "abcxyz", 2017);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2008);
+        bookService.addBook("978-9876543217", "Test java", "abcxyz", 2017);
 
         List<Book> results = bookService.searchBooksByAuthor("khang");
 
@@ -106,8 +119,8 @@ class BookServiceTest {
 
     @Test
     void testGetAllBooks_ReturnsAllBooks() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.addBook("978-9876543210", "Test java", "abcxyz", 2017);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-9876543217", "Test java", "abcxyz", 2017);
 
         List<Book> books = bookService.getAllBooks();
 
@@ -116,58 +129,58 @@ class BookServiceTest {
 
     @Test
     void testGetAvailableBooks_OnlyReturnsAvailable() throws Exception {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.addBook("978-9876543210", "Test java", "abcxyz", 2017);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-9876543217", "Test java", "abcxyz", 2017);
 
         // Thay đổi trạng thái
-        bookService.updateBookStatus("978-0123456789", BookStatus.BORROWED);
+        bookService.updateBookStatus("978-0123456786", BookStatus.BORROWED);
 
         List<Book> available = bookService.getAvailableBooks();
 
         assertEquals(1, available.size());
-        assertEquals("978-9876543210", available.get(0).getIsbn());
+        assertEquals("978-9876543217", available.get(0).getIsbn());
     }
 
     @Test
     void testRemoveBook_AvailableBook_Success() throws Exception {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
 
-        bookService.removeBook("978-0123456789");
+        bookService.removeBook("978-0123456786");
 
         assertThrows(BookNotFoundException.class, () -> {
-            bookService.findBookByIsbn("978-0123456789");
+            bookService.findBookByIsbn("978-0123456786");
         });
     }
 
     @Test
     void testRemoveBook_BorrowedBook_ThrowsException() throws Exception {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.updateBookStatus("978-0123456789", BookStatus.BORROWED);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.updateBookStatus("978-0123456786", BookStatus.BORROWED);
 
         assertThrows(InvalidOperationException.class, () -> {
-            bookService.removeBook("978-0123456789");
+            bookService.removeBook("978-0123456786");
         });
     }
 
     @Test
     void testIsBookAvailable_AvailableBook_ReturnsTrue() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
 
-        assertTrue(bookService.isBookAvailable("978-0123456789"));
+        assertTrue(bookService.isBookAvailable("978-0123456786"));
     }
 
     @Test
     void testIsBookAvailable_BorrowedBook_ReturnsFalse() throws Exception {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.updateBookStatus("978-0123456789", BookStatus.BORROWED);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.updateBookStatus("978-0123456786", BookStatus.BORROWED);
 
-        assertFalse(bookService.isBookAvailable("978-0123456789"));
+        assertFalse(bookService.isBookAvailable("978-0123456786"));
     }
 
     @Test
     void testGetTotalBookCount_ReturnsCorrectCount() throws InvalidOperationException {
-        bookService.addBook("978-0123456789", "Test case", "Khang Dang", 2026);
-        bookService.addBook("978-9876543210", "Test java", "abcxyz", 2017);
+        bookService.addBook("978-0123456786", "Test case", "Khang Dang", 2026);
+        bookService.addBook("978-9876543217", "Test java", "abcxyz", 2017);
 
         assertEquals(2, bookService.getTotalBookCount());
     }
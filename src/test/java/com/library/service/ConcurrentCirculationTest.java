@@ -0,0 +1,157 @@
+package com.library.service;
+
+import com.library.exception.InvalidOperationException;
+import com.library.model.BookStatus;
+import com.library.model.Member;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import com.library.util.Isbn;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Mượn/trả đồng thời từ nhiều quầy: không có hai người mượn cùng một cuốn, không vượt hạn mức,
+ * và bộ đếm thống kê khớp với dữ liệu
+ */
+class ConcurrentCirculationTest {
+    private static final int THREADS = 8;
+
+    private TransactionRepository transactionRepository;
+    private LibraryStatistics statistics;
+    private BookService bookService;
+    private MemberService memberService;
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepository();
+        statistics = new LibraryStatistics();
+        bookService = new BookService(new BookRepository(), statistics);
+        memberService = new MemberService(new MemberRepository(), statistics);
+        transactionService = new TransactionService(transactionRepository, bookService, memberService, statistics);
+    }
+
+    @Test
+    void testBorrowBook_SameCopyRacedByManyMembersHasOneWinner() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            String isbn = isbn(round);
+            bookService.addBook(isbn, "Sách " + round, "Tác giả", 2020);
+            List<String> members = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                members.add(memberService.registerMember("Thành viên " + t,
+                        "r" + round + "t" + t + "@email.com", "0900000000").getMemberId());
+            }
+            AtomicInteger winners = new AtomicInteger();
+
+            runConcurrently(t -> {
+                try {
+                    transactionService.borrowBook(members.get(t), isbn);
+                    winners.incrementAndGet();
+                } catch (InvalidOperationException e) {
+                    // Người đến sau thấy sách đã được mượn
+                }
+            });
+
+            assertEquals(1, winners.get());
+            assertEquals(BookStatus.BORROWED, bookService.findBookByIsbn(isbn).getStatus());
+        }
+        assertEquals(50, transactionRepository.countActive());
+        assertEquals(50, statistics.getOpenLoans());
+    }
+
+    @Test
+    void testBorrowBook_OneMemberAtManyDesksStaysWithinLimit() throws Exception {
+        Member member = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+        for (int i = 0; i < THREADS * 4; i++) {
+            bookService.addBook(isbn(i), "Sách " + i, "Tác giả", 2020);
+        }
+        AtomicInteger borrowed = new AtomicInteger();
+
+        runConcurrently(t -> {
+            for (int i = t; i < THREADS * 4; i += THREADS) {
+                try {
+                    transactionService.borrowBook(member.getMemberId(), isbn(i));
+                    borrowed.incrementAndGet();
+                } catch (InvalidOperationException e) {
+                    // Đã đủ hạn mức
+                }
+            }
+        });
+
+        assertEquals(memberService.getMaxBorrowLimit(), borrowed.get());
+        assertEquals(memberService.getMaxBorrowLimit(), member.getBorrowedBookCount());
+        assertEquals(memberService.getMaxBorrowLimit(), transactionRepository.countActive());
+        assertEquals(memberService.getMaxBorrowLimit(), bookService.getBorrowedBooks().size());
+    }
+
+    @Test
+    void testBorrowAndReturn_ParallelDesksKeepCountersConsistent() throws Exception {
+        List<String> members = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            members.add(memberService.registerMember("Thành viên " + t, "m" + t + "@email.com", "0900000000")
+                    .getMemberId());
+        }
+        for (int i = 0; i < 20; i++) {
+            bookService.addBook(isbn(i), "Sách " + i, "Tác giả", 2020);
+        }
+
+        // Các quầy tranh nhau cùng 20 cuốn sách: mượn được thì trả ngay
+        runConcurrently(t -> {
+            for (int i = 0; i < 500; i++) {
+                String isbn = isbn((t * 7 + i) % 20);
+                try {
+                    transactionService.borrowBook(members.get(t), isbn);
+                    transactionService.returnBook(members.get(t), isbn);
+                } catch (InvalidOperationException e) {
+                    // Sách đang ở quầy khác
+                }
+            }
+        });
+
+        assertEquals(0, transactionRepository.countActive());
+        assertEquals(0, statistics.getOpenLoans());
+        assertEquals(20, statistics.getAvailableBooks());
+        assertEquals(transactionRepository.count(), statistics.getTotalTransactions());
+        for (String memberId : members) {
+            assertEquals(0, memberService.getBorrowedBookCount(memberId));
+        }
+    }
+
+    private interface DeskTask {
+        void run(int desk) throws Exception;
+    }
+
+    private static void runConcurrently(DeskTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int desk = t;
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    task.run(desk);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ISBN-13 thứ i có chữ số kiểm tra hợp lệ
+    private static String isbn(int i) {
+        return Isbn.toString(Isbn.withCheckDigit(978_000_000_000L + i));
+    }
+}
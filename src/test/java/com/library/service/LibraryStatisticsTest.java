@@ -0,0 +1,75 @@
+package com.library.service;
+
+import com.library.model.Member;
+import com.library.model.Transaction;
+import com.library.repository.BookRepository;
+import com.library.repository.MemberRepository;
+import com.library.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryStatisticsTest {
+
+    private BookRepository bookRepository;
+    private MemberRepository memberRepository;
+    private TransactionRepository transactionRepository;
+    private LibraryStatistics statistics;
+    private BookService bookService;
+    private MemberService memberService;
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = new BookRepository();
+        memberRepository = new MemberRepository();
+        transactionRepository = new TransactionRepository();
+        statistics = new LibraryStatistics();
+        bookService = new BookService(bookRepository, statistics);
+        memberService = new MemberService(memberRepository, statistics);
+        transactionService = new TransactionService(transactionRepository, bookService, memberService, statistics);
+    }
+
+    @Test
+    void testCounters_FollowServiceMutations() throws Exception {
+        bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+        bookService.addBook("978-1784877996", "Rừng Na Uy", "Haruki Murakami", 2022);
+        bookService.addBook("978-6043199789", "Nhà Giả Kim", "Paulo Coelho", 2013);
+        Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+        Member jane = memberService.registerMember("Jane Doe", "jane@email.com", "0987654321");
+
+        transactionService.borrowBook(john.getMemberId(), "978-0132350884");
+        transactionService.borrowBook(john.getMemberId(), "978-1784877996");
+        transactionService.returnBook(john.getMemberId(), "978-0132350884");
+        memberService.deactivateMember(jane.getMemberId());
+        bookService.removeBook("978-6043199789");
+
+        assertEquals(2, statistics.getTotalBooks());
+        assertEquals(1, statistics.getAvailableBooks());
+        assertEquals(1, statistics.getBorrowedBooks());
+        assertEquals(2, statistics.getTotalMembers());
+        assertEquals(1, statistics.getActiveMembers());
+        assertEquals(2, statistics.getTotalTransactions());
+        assertEquals(1, statistics.getOpenLoans());
+        assertEquals(0.0, statistics.getTotalLateFees());
+        assertTrue(statistics.verify(bookRepository, memberRepository, transactionRepository).isEmpty());
+    }
+
+    @Test
+    void testVerify_ReportsDriftAndRebuildFixesIt() throws Exception {
+        bookService.addBook("978-0132350884", "Clean Code", "Robert C. Martin", 2008);
+        Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+
+        // Ghi thẳng vào repository, bỏ qua service
+        Transaction transaction = new Transaction("TXN-1", john.getMemberId(), "978-0132350884");
+        transactionRepository.save(transaction);
+
+        assertFalse(statistics.verify(bookRepository, memberRepository, transactionRepository).isEmpty());
+
+        statistics.rebuild(bookRepository, memberRepository, transactionRepository);
+
+        assertTrue(statistics.verify(bookRepository, memberRepository, transactionRepository).isEmpty());
+        assertEquals(1, statistics.getOpenLoans());
+    }
+}
@@ -7,6 +7,8 @@ import com.library.repository.MemberRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MemberServiceTest {
@@ -90,6 +92,19 @@ class MemberServiceTest {
         assertEquals("john@email.com", found.getEmail());
     }
 
+    @Test
+    void testSearchMembersByName_InfixFragment_ReturnsMember() throws InvalidOperationException {
+        memberService.registerMember("John Doe", "john@email.com", "1234567890");
+        memberService.registerMember("Jane Smith", "jane@email.com", "0987654321");
+
+        List<Member> results = memberService.searchMembersByName("ohn d");
+
+        assertEquals(1, results.size());
+        assertEquals("John Doe", results.get(0).getName());
+        assertEquals(1, memberService.searchMembersByName("mit").size());
+        assertEquals(2, memberService.searchMembersByName("j").size());
+    }
+
     @Test
     void testDeactivateMember_WithoutBorrowedBooks_Success() throws Exception {
         Member member = memberService.registerMember(
@@ -180,6 +195,53 @@ class MemberServiceTest {
         assertEquals("9876543210", updated.getPhone());
     }
 
+    @Test
+    void testRegisterMember_WithDuplicateEmailDifferentCase_ThrowsException() throws InvalidOperationException {
+        memberService.registerMember("John Doe", "john@email.com", "1234567890");
+
+        assertThrows(InvalidOperationException.class, () -> {
+            memberService.registerMember("Jane Doe", "JOHN@Email.com", "0987654321");
+        });
+    }
+
+    @Test
+    void testUpdateMember_WithEmailOfOtherMember_ThrowsException() throws Exception {
+        Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+        memberService.registerMember("Jane Doe", "jane@email.com", "0987654321");
+
+        assertThrows(InvalidOperationException.class, () -> {
+            memberService.updateMember(john.getMemberId(), null, "Jane@email.com", null);
+        });
+        assertEquals("john@email.com", memberService.findMemberById(john.getMemberId()).getEmail());
+    }
+
+    @Test
+    void testUpdateMember_RejectedField_LeavesMemberUnchanged() throws Exception {
+        Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+        memberService.registerMember("Jane Doe", "jane@email.com", "0987654321");
+
+        assertThrows(InvalidOperationException.class, () ->
+                memberService.updateMember(john.getMemberId(), "Johnny", "jane@email.com", null));
+        assertThrows(InvalidOperationException.class, () ->
+                memberService.updateMember(john.getMemberId(), "Johnny", "johnny@email.com", "abc"));
+
+        Member unchanged = memberService.findMemberById(john.getMemberId());
+        assertEquals("John Doe", unchanged.getName());
+        assertEquals("john@email.com", unchanged.getEmail());
+        assertEquals("1234567890", unchanged.getPhone());
+    }
+
+    @Test
+    void testUpdateMember_ChangedEmail_ReleasesOldEmail() throws Exception {
+        Member john = memberService.registerMember("John Doe", "john@email.com", "1234567890");
+
+        memberService.updateMember(john.getMemberId(), null, "john.new@email.com", null);
+
+        assertEquals(john.getMemberId(), memberService.findMemberByEmail("JOHN.NEW@email.com").getMemberId());
+        assertThrows(MemberNotFoundException.class, () -> memberService.findMemberByEmail("john@email.com"));
+        assertNotNull(memberService.registerMember("Johnny", "john@email.com", "0987654321"));
+    }
+
     @Test
     void testGetTotalMemberCount_ReturnsCorrectCount() throws InvalidOperationException {
         memberService.registerMember("John Doe", "john@email.com", "1234567890");
@@ -0,0 +1,40 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSequenceTest {
+
+    @Test
+    void testNextId_FormatsAndParsesAsLong() {
+        IdSequence sequence = new IdSequence("MEM-", 8);
+
+        assertEquals("MEM-00000001", sequence.nextId());
+        assertEquals("MEM-0000002A", sequence.format(42));
+        assertEquals("MEM-123456789", sequence.format(0x123456789L));
+        assertEquals(42, sequence.parse("MEM-0000002A"));
+        assertEquals(-1, sequence.parse("TXN-0000002A"));
+        assertEquals(-1, sequence.parse("MEM-0000002a"));
+        assertEquals(-1, sequence.parse("MEM-"));
+    }
+
+    @Test
+    void testObserve_NewIdsStartAfterLargestExistingId() {
+        IdSequence sequence = new IdSequence("TXN-", 12);
+        sequence.observe("TXN-00000000FFFF");
+        sequence.observe("TXN-000000000010");
+        // Mã cũ dạng UUID cắt ngắn có dấu '-' nên không thể trùng
+        sequence.observe("TXN-1A2B3C4D-5E6");
+
+        assertEquals("TXN-000000010000", sequence.nextId());
+
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 100_000).parallel().forEach(i -> issued.add(sequence.next()));
+        assertEquals(100_000, issued.size());
+    }
+}
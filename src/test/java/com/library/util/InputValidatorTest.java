@@ -57,6 +57,14 @@ class InputValidatorTest {
         assertTrue(InputValidator.isValidIsbn("0-596-52068-9"));
     }
 
+    @Test
+    void testIsValidIsbn_WithWrongCheckDigit_ReturnsFalse() {
+        assertFalse(InputValidator.isValidIsbn("978-0-13-235088-5"));
+        assertFalse(InputValidator.isValidIsbn("0-596-52068-8"));
+        assertFalse(InputValidator.isValidIsbn("khonghople-isbn"));
+        assertFalse(InputValidator.isValidIsbn(null));
+    }
+
     @Test
     void testIsValidPublicationYear_WithValidYears_ReturnsTrue() {
         assertTrue(InputValidator.isValidPublicationYear(2020));
@@ -0,0 +1,71 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnTest {
+
+    @Test
+    void testParse_Isbn13AndIsbn10_NormalizeToSameKey() {
+        assertEquals(9780132350884L, Isbn.parse("978-0-13-235088-4"));
+        assertEquals(9780132350884L, Isbn.parse("9780132350884"));
+        assertEquals(9780132350884L, Isbn.parse("0-13-235088-2"));
+        assertEquals(9780132350884L, Isbn.parse("ISBN-13: 978-0132350884"));
+        assertEquals(9780132350884L, Isbn.parse("  isbn 0132350882 "));
+        assertEquals(9780804429573L, Isbn.parse("080442957X"));
+        assertEquals(9780804429573L, Isbn.parse("0-8044-2957-x"));
+        assertEquals(9791090636071L, Isbn.parse("979-10-90636-07-1"));
+        assertEquals("978-0596520687", Isbn.normalize("0-596-52068-9"));
+        assertEquals("979-1090636071", Isbn.toString(9791090636071L));
+    }
+
+    @Test
+    void testParse_InvalidInput_ReturnsInvalid() {
+        assertEquals(Isbn.INVALID, Isbn.parse(null));
+        assertEquals(Isbn.INVALID, Isbn.parse(""));
+        assertEquals(Isbn.INVALID, Isbn.parse("978-0132350885"));
+        assertEquals(Isbn.INVALID, Isbn.parse("0-13-235088-3"));
+        assertEquals(Isbn.INVALID, Isbn.parse("977-0132350884"));
+        assertEquals(Isbn.INVALID, Isbn.parse("978--0132350884"));
+        assertEquals(Isbn.INVALID, Isbn.parse("-9780132350884"));
+        assertEquals(Isbn.INVALID, Isbn.parse("9780132350884-"));
+        assertEquals(Isbn.INVALID, Isbn.parse("97801323508840"));
+        assertEquals(Isbn.INVALID, Isbn.parse("978013235088X"));
+        assertEquals(Isbn.INVALID, Isbn.parse("080442957X1"));
+        assertEquals(Isbn.INVALID, Isbn.parse("978O132350884"));
+        assertNull(Isbn.normalize("khonghople-isbn"));
+    }
+
+    @Test
+    void testWithCheckDigit_RoundTripsThroughParse() {
+        for (long first12 = 978_000_000_000L; first12 < 978_000_000_000L + 10_000; first12++) {
+            long isbn = Isbn.withCheckDigit(first12);
+            assertEquals(first12, isbn / 10);
+            assertEquals(isbn, Isbn.parse(Isbn.toString(isbn)));
+            // Sai chữ số kiểm tra thì không hợp lệ
+            assertEquals(Isbn.INVALID, Isbn.parse(Long.toString(first12 * 10 + (isbn + 1) % 10)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> Isbn.withCheckDigit(123));
+    }
+
+    @Test
+    void testKeys_LegacyIsbn_KeyedOnlyWhenSavedAndPerTable() {
+        IsbnKeys keys = new IsbnKeys();
+        assertEquals(Isbn.INVALID, keys.lookupKey("978-0123456789"));
+
+        long key = keys.key("978-0123456789");
+        assertTrue(key < Isbn.INVALID);
+        assertEquals(key, keys.key("978-0123456789"));
+        assertEquals(key, keys.lookupKey("978-0123456789"));
+        assertNull(Isbn.fromKey(key));
+        assertEquals(Isbn.INVALID, new IsbnKeys().lookupKey("978-0123456789"));
+
+        assertEquals(9780132350884L, keys.key("0-13-235088-2"));
+        assertEquals("978-0132350884", Isbn.fromKey(keys.lookupKey("9780132350884")));
+        assertNull(Isbn.fromKey(Isbn.INVALID));
+
+        keys.clear();
+        assertEquals(Isbn.INVALID, keys.lookupKey("978-0123456789"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectMapTest {
+
+    @Test
+    void testPutGetRemove_MatchesHashMapUnderChurn() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = 9_780_000_000_000L + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertSame(value, map.get(key)));
+        assertEquals(expected.size(), map.values().size());
+        assertNull(map.get(-2));
+    }
+
+    @Test
+    void testRemoveByValue_OnlyRemovesSameObject() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        String value = new String("a");
+        map.put(7, value);
+
+        assertFalse(map.remove(7, new String("a")));
+        assertTrue(map.remove(7, value));
+        assertTrue(map.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, "x"));
+    }
+}